@@ -6,14 +6,18 @@ import com.ryandw11.structure.citizens.CitizensEnabled;
 import com.ryandw11.structure.citizens.CitizensNpcHook;
 import com.ryandw11.structure.commands.SCommand;
 import com.ryandw11.structure.commands.SCommandTab;
+import com.ryandw11.structure.generation.StructurePopulator;
 import com.ryandw11.structure.ignoreblocks.*;
 import com.ryandw11.structure.listener.ChunkLoad;
+import com.ryandw11.structure.listener.LazyLoot;
 import com.ryandw11.structure.listener.PlayerJoin;
+import com.ryandw11.structure.listener.WorldInit;
 import com.ryandw11.structure.loottables.LootTableHandler;
 import com.ryandw11.structure.loottables.customitems.CustomItemManager;
 import com.ryandw11.structure.mythicalmobs.MMDisabled;
 import com.ryandw11.structure.mythicalmobs.MMEnabled;
 import com.ryandw11.structure.mythicalmobs.MythicalMobHook;
+import com.ryandw11.structure.schematic.SchematicCache;
 import com.ryandw11.structure.schematic.StructureSignHandler;
 import com.ryandw11.structure.structure.StructureHandler;
 import com.ryandw11.structure.utils.CSUtils;
@@ -28,6 +32,7 @@ import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.event.HandlerList;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
@@ -66,6 +71,9 @@ public class CustomStructures extends JavaPlugin {
     private IgnoreBlocks blockIgnoreManager;
     private AddonHandler addonHandler;
     private StructureSignHandler structureSignHandler;
+    private SchematicCache schematicCache;
+    private StructurePopulator structurePopulator;
+    private LazyLoot lazyLootListener;
 
     private Metrics metrics;
 
@@ -81,7 +89,7 @@ public class CustomStructures extends JavaPlugin {
     /**
      * The current version of the compiled structure format.
      */
-    public static final int COMPILED_STRUCT_VER = 1;
+    public static final int COMPILED_STRUCT_VER = 2;
 
     /**
      * The current version of the structure configuration format.
@@ -149,6 +157,16 @@ public class CustomStructures extends JavaPlugin {
         this.lootTableHandler = new LootTableHandler();
         this.addonHandler = new AddonHandler();
         this.structureSignHandler = new StructureSignHandler();
+        this.schematicCache = new SchematicCache(this);
+
+        // The populator is added to the worlds that are already loaded and to the worlds that load later.
+        if (getConfig().getBoolean("GenerationSpawning.Enabled", false)) {
+            this.structurePopulator = new StructurePopulator(this);
+            Bukkit.getServer().getPluginManager().registerEvents(new WorldInit(), this);
+            for (World world : Bukkit.getWorlds()) {
+                addStructurePopulator(world);
+            }
+        }
 
         // Run this after the loading of all plugins.
         Bukkit.getScheduler().scheduleSyncDelayedTask(this, this::initialize, 30);
@@ -226,6 +244,12 @@ public class CustomStructures extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        if (structurePopulator != null) {
+            for (World world : Bukkit.getWorlds()) {
+                world.getPopulators().remove(structurePopulator);
+            }
+        }
+
         if (structureHandler == null) {
             getLogger().severe("ERROR: The Structure Handler was never initialized during setup.");
             return;
@@ -280,6 +304,30 @@ public class CustomStructures extends JavaPlugin {
         return structureHandler;
     }
 
+    /**
+     * Get the populator that spawns structures while chunks are generated.
+     *
+     * <p>This feature must be enabled via the config.</p>
+     *
+     * @return The structure populator. (Null if it is disabled).
+     */
+    public StructurePopulator getStructurePopulator() {
+        return structurePopulator;
+    }
+
+    /**
+     * Add the structure populator to a world, if the world is configured to spawn structures during generation.
+     * <p>This is for internal use only.</p>
+     *
+     * @param world The world.
+     */
+    public void addStructurePopulator(World world) {
+        if (structurePopulator == null || world.getPopulators().contains(structurePopulator)) return;
+        List<String> worlds = getConfig().getStringList("GenerationSpawning.Worlds");
+        if (!worlds.isEmpty() && !worlds.contains(world.getName())) return;
+        world.getPopulators().add(structurePopulator);
+    }
+
     /**
      * Get the loot table handler.
      *
@@ -298,9 +346,12 @@ public class CustomStructures extends JavaPlugin {
         this.signCommandsHandler = new SignCommandsHandler(getDataFolder(), this);
         this.npcHandler.cleanUp();
         this.npcHandler = new NpcHandler(getDataFolder(), plugin);
+        this.schematicCache.clear();
+        this.schematicCache = new SchematicCache(this);
         this.structureHandler.cleanup();
         this.structureHandler = new StructureHandler(getConfig().getStringList("Structures"), this);
         this.lootTableHandler = new LootTableHandler();
+        updateLazyLootListener();
 
         // Update the addons.
         this.addonHandler.handlePluginReload();
@@ -321,10 +372,26 @@ public class CustomStructures extends JavaPlugin {
     private void loadManager() {
         Bukkit.getServer().getPluginManager().registerEvents(new ChunkLoad(), this);
         Bukkit.getServer().getPluginManager().registerEvents(new PlayerJoin(), this);
+        updateLazyLootListener();
         Objects.requireNonNull(getCommand("customstructure")).setExecutor(new SCommand(this));
         Objects.requireNonNull(getCommand("customstructure")).setTabCompleter(new SCommandTab(this));
     }
 
+    /**
+     * Register the lazy loot listener if <code>LazyLoot</code> is enabled, or unregister it if it was disabled.
+     * <p>The listener is only registered when it is needed, since it handles every block that is broken or exploded.</p>
+     */
+    private void updateLazyLootListener() {
+        boolean enabled = getConfig().getBoolean("LazyLoot");
+        if (enabled && lazyLootListener == null) {
+            lazyLootListener = new LazyLoot();
+            Bukkit.getServer().getPluginManager().registerEvents(lazyLootListener, this);
+        } else if (!enabled && lazyLootListener != null) {
+            HandlerList.unregisterAll(lazyLootListener);
+            lazyLootListener = null;
+        }
+    }
+
     /**
      * Register the default config.
      */
@@ -784,6 +851,15 @@ public class CustomStructures extends JavaPlugin {
         return addonHandler;
     }
 
+    /**
+     * Get the cache of schematic clipboards.
+     *
+     * @return The schematic cache.
+     */
+    public SchematicCache getSchematicCache() {
+        return schematicCache;
+    }
+
     /**
      * Get the handler for registering custom structure signs.
      *
@@ -1,11 +1,10 @@
 package com.ryandw11.structure.bottomfill;
 
 import com.ryandw11.structure.CustomStructures;
+import com.ryandw11.structure.io.CompiledSchematic;
 import com.ryandw11.structure.structure.Structure;
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
 import com.sk89q.worldedit.extent.clipboard.Clipboard;
-import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormat;
-import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormats;
-import com.sk89q.worldedit.extent.clipboard.io.ClipboardReader;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.math.Vector3;
@@ -17,12 +16,14 @@ import org.bukkit.World;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Queue;
+import java.util.Set;
 
 /**
  * The default implementation for the bottom fill feature.
@@ -54,38 +55,25 @@ public class DefaultBottomFill extends BukkitRunnable implements BottomFillImpl
 
             // To get the ground plane, we need to read the schematic
             File file = new File(CustomStructures.getInstance().getDataFolder() + "/schematics/" + structure.getSchematic());
-            ClipboardFormat format = ClipboardFormats.findByFile(file);
-            if (format == null) {
-                CustomStructures.getInstance().getLogger().warning("Invalid schematic format for schematic " + structure.getSchematic());
-                CustomStructures.getInstance().getLogger().warning("Please create a valid schematic using the in-game commands");
-                return;
-            }
-            try (ClipboardReader reader = format.getReader(new FileInputStream(file))) {
-                Clipboard clipboard = reader.read();
+            try {
+                Clipboard clipboard = CustomStructures.getInstance().getSchematicCache().getClipboard(file);
+                if (clipboard == null) {
+                    CustomStructures.getInstance().getLogger().warning("Invalid schematic format for schematic " + structure.getSchematic());
+                    CustomStructures.getInstance().getLogger().warning("Please create a valid schematic using the in-game commands");
+                    return;
+                }
 
                 // The new origin point which the structure is pasted onto
                 int oX = spawnLocation.getBlockX();
                 int oY = spawnLocation.getBlockY();
                 int oZ = spawnLocation.getBlockZ();
 
-                int clipboardMinY = clipboard.getMinimumPoint().getBlockY();
-
-                for (int x = clipboard.getMinimumPoint().getBlockX(); x <= clipboard.getMaximumPoint().getBlockX(); x++) {
-                    for (int z = clipboard.getMinimumPoint().getBlockZ(); z <= clipboard.getMaximumPoint().getBlockZ(); z++) {
-                        // Loop through bottom plane of the region
-
-                        if (clipboard.getBlock(BlockVector3.at(x, clipboardMinY, z)).getBlockType().getMaterial().isMovementBlocker()) {
-                            // Find the certain point of the bottom plane which bottom fill should start at
+                for (BlockVector3 groundPoint : getGroundPoints(clipboard)) {
+                    groundPoint = groundPoint.subtract(clipboard.getOrigin()); // Translate point back to origin (0,0)
+                    Vector3 transformed = transform.apply(groundPoint.toVector3()); // Apply transformation (rotation, etc.)
+                    groundPoint = transformed.add(oX, oY, oZ).toBlockPoint(); // Translate point back (to new origin)
 
-                            BlockVector3 groundPoint = BlockVector3.at(x, clipboardMinY, z);
-
-                            groundPoint = groundPoint.subtract(clipboard.getOrigin()); // Translate point back to origin (0,0)
-                            Vector3 transformed = transform.apply(groundPoint.toVector3()); // Apply transformation (rotation, etc.)
-                            groundPoint = transformed.add(oX, oY, oZ).toBlockPoint(); // Translate point back (to new origin)
-
-                            groundPlane.add(groundPoint.toBlockVector2());
-                        }
-                    }
+                    groundPlane.add(groundPoint.toBlockVector2());
                 }
             } catch (FileNotFoundException e) {
                 CustomStructures.getInstance().getLogger().warning("Cannot find schematic file " + file.getPath());
@@ -103,6 +91,71 @@ public class DefaultBottomFill extends BukkitRunnable implements BottomFillImpl
         });
     }
 
+    /**
+     * Check if a block of the bottom layer of a schematic is part of the ground plane.
+     *
+     * <p>This is also used to compute the ground plane of compiled schematics.</p>
+     *
+     * @param material The material of the block.
+     * @return If the bottom fill should be placed under the block.
+     */
+    public static boolean isGroundBlock(Material material) {
+        return material.isSolid();
+    }
+
+    /**
+     * Get the points of the bottom layer of the schematic that the bottom fill is placed under.
+     *
+     * <p>The ground plane of the compiled schematic is used when the structure is compiled, otherwise the bottom
+     * layer of the clipboard is scanned.</p>
+     *
+     * @param clipboard The clipboard of the schematic.
+     * @return The ground points in clipboard coordinates.
+     */
+    private List<BlockVector3> getGroundPoints(Clipboard clipboard) {
+        BlockVector3 min = clipboard.getMinimumPoint();
+        BlockVector3 dimensions = clipboard.getDimensions();
+        List<BlockVector3> groundPoints = new ArrayList<>();
+
+        CompiledSchematic compiledSchematic = getCompiledSchematic();
+        if (compiledSchematic != null && compiledSchematic.hasBlockData()
+                && compiledSchematic.getWidth() == dimensions.getBlockX()
+                && compiledSchematic.getLength() == dimensions.getBlockZ()) {
+            for (BlockVector2 point : compiledSchematic.getGroundPlane()) {
+                groundPoints.add(min.add(point.getBlockX(), 0, point.getBlockZ()));
+            }
+            return groundPoints;
+        }
+
+        for (int x = min.getBlockX(); x <= clipboard.getMaximumPoint().getBlockX(); x++) {
+            for (int z = min.getBlockZ(); z <= clipboard.getMaximumPoint().getBlockZ(); z++) {
+                // Loop through bottom plane of the region
+                BlockVector3 point = BlockVector3.at(x, min.getBlockY(), z);
+                if (isGroundBlock(BukkitAdapter.adapt(clipboard.getBlock(point).getBlockType()))) {
+                    groundPoints.add(point);
+                }
+            }
+        }
+        return groundPoints;
+    }
+
+    /**
+     * Get the compiled schematic of the structure.
+     *
+     * @return The compiled schematic. (Null if the structure is not compiled or it cannot be read).
+     */
+    private CompiledSchematic getCompiledSchematic() {
+        if (!structure.isCompiled()) return null;
+        File file = new File(CustomStructures.getInstance().getDataFolder() + "/schematics/" + structure.getCompiledSchematic());
+        try {
+            return CustomStructures.getInstance().getSchematicCache().getCompiledSchematic(file);
+        } catch (IOException ex) {
+            if (CustomStructures.getInstance().isDebug())
+                ex.printStackTrace();
+            return null;
+        }
+    }
+
     @Override
     public void run() {
         World world = spawnLocation.getWorld();
@@ -113,6 +166,7 @@ public class DefaultBottomFill extends BukkitRunnable implements BottomFillImpl
             return;
         }
 
+        Set<Material> ignoreBlocks = CustomStructures.getInstance().getBlockIgnoreManager().getBlocks();
         for (int i = 0; i < 8; i++) { // Select 8 ground points in a single tick
             BlockVector2 groundPoint = groundPlane.poll();
             if (groundPoint == null) {
@@ -128,7 +182,7 @@ public class DefaultBottomFill extends BukkitRunnable implements BottomFillImpl
                         // If the block is empty
                         world.getBlockAt(x, y, z).isEmpty() ||
                                 // Or if the block is in the list of ignore blocks.
-                                CustomStructures.getInstance().getBlockIgnoreManager().getBlocks().contains(world.getBlockAt(x, y, z).getType()) ||
+                                ignoreBlocks.contains(world.getBlockAt(x, y, z).getType()) ||
                                 // Or if it is water (if it is set to be ignored)
                                 (structure.getStructureProperties().shouldIgnoreWater() && world.getBlockAt(x, y, z).getType() == Material.WATER);
                 if (shouldFill) {
@@ -27,6 +27,9 @@ public class SCommand implements CommandExecutor {
         this.commandHandler.registerCommand("createschem", new CreateSchematicCommand());
         this.commandHandler.registerCommand("create", new CreateCommand(plugin));
         this.commandHandler.registerCommand("testspawn", new TestSpawnCommand(plugin));
+        this.commandHandler.registerCommand("status", new StatusCommand(plugin));
+        this.commandHandler.registerCommand("resetchunks", new ResetChunksCommand(plugin));
+        this.commandHandler.registerCommand("conditions", new ConditionsCommand(plugin));
         this.commandHandler.registerCommand(new AddonsCommand(plugin), "addon", "addons");
         this.commandHandler.registerCommand(new SetLoottableCommand(plugin), "setloottable", "setloot", "setlt");
         this.commandHandler.registerCommand(new TestLootTableCommand(plugin), "testloottable", "testloot", "testlt");
@@ -72,6 +75,12 @@ public class SCommand implements CommandExecutor {
                         "&3/cstructure setLootTable - &2Easily specify a loot table for a container."));
                 sender.sendMessage(ChatColor.translateAlternateColorCodes('&',
                         "&3/cstructure testLootTable - &2Test a loot table on a container."));
+                sender.sendMessage(ChatColor.translateAlternateColorCodes('&',
+                        "&3/cstructure status - &2View performance information about the plugin."));
+                sender.sendMessage(ChatColor.translateAlternateColorCodes('&',
+                        "&3/cstructure resetchunks [world] - &2Evaluate chunks that were already evaluated for structures again."));
+                sender.sendMessage(ChatColor.translateAlternateColorCodes('&',
+                        "&3/cstructure conditions [name] - &2View how often the spawn conditions of structures reject locations."));
             } else {
                 sender.sendMessage(ChatColor.translateAlternateColorCodes('&',
                         "&3=============[&2CustomStructures&3]============="));
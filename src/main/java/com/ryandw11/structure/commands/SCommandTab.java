@@ -1,6 +1,8 @@
 package com.ryandw11.structure.commands;
 
 import com.ryandw11.structure.CustomStructures;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
@@ -10,6 +12,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class SCommandTab implements TabCompleter {
     private final CustomStructures plugin;
@@ -21,9 +24,13 @@ public class SCommandTab implements TabCompleter {
     @Override
     public List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command cmd, @NotNull String s, String[] args) {
         List<String> completions = new ArrayList<>();
-        if (args.length == 2 && (args[0].equalsIgnoreCase("test") || args[0].equalsIgnoreCase("testspawn") || args[0].equalsIgnoreCase("nearby"))) {
+        if (args.length == 2 && (args[0].equalsIgnoreCase("test") || args[0].equalsIgnoreCase("testspawn") || args[0].equalsIgnoreCase("nearby")
+                || args[0].equalsIgnoreCase("conditions"))) {
             completions = new ArrayList<>(plugin.getStructureHandler().getStructureNames());
             completions = getApplicableTabCompleter(args[1], completions);
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("resetchunks")) {
+            completions = Bukkit.getWorlds().stream().map(World::getName).collect(Collectors.toList());
+            completions = getApplicableTabCompleter(args[1], completions);
         } else if (args.length == 2 && (
                 args[0].equalsIgnoreCase("setLootTable") ||
                         args[0].equalsIgnoreCase("setLoot") ||
@@ -36,7 +43,8 @@ public class SCommandTab implements TabCompleter {
             completions = getApplicableTabCompleter(args[1], completions);
         } else if (args.length <= 1) {
             completions = new ArrayList<>(Arrays.asList("reload", "test", "list", "addItem", "checkKey", "getItem",
-                    "createSchem", "create", "nearby", "testspawn", "addons", "setLootTable", "testLootTable"));
+                    "createSchem", "create", "nearby", "testspawn", "addons", "setLootTable", "testLootTable", "status", "resetchunks",
+                    "conditions"));
             completions = getApplicableTabCompleter(args.length == 1 ? args[0] : "", completions);
         }
         Collections.sort(completions);
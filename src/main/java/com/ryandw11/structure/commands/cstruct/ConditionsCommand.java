@@ -0,0 +1,82 @@
+package com.ryandw11.structure.commands.cstruct;
+
+import com.ryandw11.structure.CustomStructures;
+import com.ryandw11.structure.commands.SubCommand;
+import com.ryandw11.structure.structure.SpawnConditions;
+import com.ryandw11.structure.structure.Structure;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+
+import java.util.stream.Collectors;
+
+/**
+ * The conditions command for the plugin. Displays how often the spawn condition stages of structures reject
+ * locations and how long they take.
+ *
+ * <p>Without a structure, every structure is listed with the order of its stages.</p>
+ *
+ * <p>Permission: customstructures.conditions</p>
+ *
+ * <code>
+ * /cstruct conditions [structure]
+ * </code>
+ */
+public class ConditionsCommand implements SubCommand {
+
+    private final CustomStructures plugin;
+
+    public ConditionsCommand(CustomStructures plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean subCommand(CommandSender sender, Command cmd, String s, String[] args) {
+        if (!sender.hasPermission("customstructures.conditions")) {
+            sender.sendMessage(ChatColor.RED + "You do not have permission for this command!");
+            return true;
+        }
+
+        if (plugin.getStructureHandler() == null) {
+            sender.sendMessage(ChatColor.RED + "The plugin has not been properly initialized.");
+            return true;
+        }
+
+        if (args.length > 1) {
+            sender.sendMessage(ChatColor.RED + "Invalid number of arguments: /cstruct conditions [structure]");
+            return true;
+        }
+
+        if (args.length == 0) {
+            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', "&3============[&2Spawn Conditions&3]============"));
+            for (Structure structure : plugin.getStructureHandler().getStructures()) {
+                SpawnConditions conditions = structure.getSpawnConditions();
+                quickSendMessage(sender, String.format("&3%s: &2%d &3tests, order: &2%s", structure.getName(),
+                        conditions.getTests(), conditions.getStatistics().stream()
+                                .map(statistics -> statistics.type().name().toLowerCase())
+                                .collect(Collectors.joining("&3, &2"))));
+            }
+            return true;
+        }
+
+        Structure structure = plugin.getStructureHandler().getStructure(args[0]);
+        if (structure == null) {
+            sender.sendMessage(ChatColor.RED + "That structure does not exist!");
+            return true;
+        }
+
+        SpawnConditions conditions = structure.getSpawnConditions();
+        sender.sendMessage(ChatColor.translateAlternateColorCodes('&', "&3============[&2" + structure.getName() + "&3]============"));
+        quickSendMessage(sender, String.format("&3Tests: &2%d &3(stages in the order they are tested)", conditions.getTests()));
+        for (SpawnConditions.StageStatistics statistics : conditions.getStatistics()) {
+            quickSendMessage(sender, String.format("  &3%s: &2%.1f%% &3rejected of &2%d &3tests (&2%.2f &3us average)",
+                    statistics.type().name().toLowerCase(), statistics.getRejectionRate() * 100, statistics.tests(),
+                    statistics.averageNanos() / 1000.0));
+        }
+        return true;
+    }
+
+    private void quickSendMessage(CommandSender sender, String msg) {
+        sender.sendMessage(ChatColor.translateAlternateColorCodes('&', msg));
+    }
+}
@@ -0,0 +1,68 @@
+package com.ryandw11.structure.commands.cstruct;
+
+import com.ryandw11.structure.CustomStructures;
+import com.ryandw11.structure.commands.SubCommand;
+import com.ryandw11.structure.io.EvaluatedChunkStore;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.World;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+
+import java.util.Optional;
+
+/**
+ * The reset chunks command for the plugin. Forgets which chunks were already evaluated for structure spawns.
+ *
+ * <p>Permission: customstructures.resetchunks</p>
+ *
+ * <code>
+ * /cstruct resetchunks [world]
+ * </code>
+ */
+public class ResetChunksCommand implements SubCommand {
+
+    private final CustomStructures plugin;
+
+    public ResetChunksCommand(CustomStructures plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean subCommand(CommandSender sender, Command cmd, String s, String[] args) {
+        if (!sender.hasPermission("customstructures.resetchunks")) {
+            sender.sendMessage(ChatColor.RED + "You do not have permission for this command!");
+            return true;
+        }
+
+        if (plugin.getStructureHandler() == null) {
+            sender.sendMessage(ChatColor.RED + "The plugin has not been properly initialized.");
+            return true;
+        }
+
+        Optional<EvaluatedChunkStore> chunkStore = plugin.getStructureHandler().getEvaluatedChunkStore();
+        if (chunkStore.isEmpty()) {
+            sender.sendMessage(ChatColor.RED + "Evaluated chunks are not enabled in the config.");
+            return true;
+        }
+
+        if (args.length > 1) {
+            sender.sendMessage(ChatColor.RED + "Invalid number of arguments: /cstruct resetchunks [world]");
+            return true;
+        }
+
+        if (args.length == 1) {
+            World world = Bukkit.getWorld(args[0]);
+            if (world == null) {
+                sender.sendMessage(ChatColor.RED + "The world " + args[0] + " does not exist!");
+                return true;
+            }
+            chunkStore.get().reset(world);
+            sender.sendMessage(ChatColor.GREEN + "The chunks of " + world.getName() + " will be evaluated again.");
+        } else {
+            chunkStore.get().reset();
+            sender.sendMessage(ChatColor.GREEN + "The chunks of every world will be evaluated again.");
+        }
+        return true;
+    }
+}
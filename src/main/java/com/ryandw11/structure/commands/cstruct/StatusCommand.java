@@ -0,0 +1,101 @@
+package com.ryandw11.structure.commands.cstruct;
+
+import com.ryandw11.structure.CustomStructures;
+import com.ryandw11.structure.commands.SubCommand;
+import com.ryandw11.structure.generation.StructurePopulator;
+import com.ryandw11.structure.io.EvaluatedChunkStore;
+import com.ryandw11.structure.io.StructureDatabaseHandler;
+import com.ryandw11.structure.schematic.SchematicCache;
+import com.ryandw11.structure.structure.StructureCandidateIndex;
+import com.ryandw11.structure.threading.StructureSpawnScheduler;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+
+/**
+ * The status command for the plugin. Displays performance information about the plugin.
+ *
+ * <p>Permission: customstructures.status</p>
+ *
+ * <code>
+ * /cstruct status
+ * </code>
+ */
+public class StatusCommand implements SubCommand {
+
+    private final CustomStructures plugin;
+
+    public StatusCommand(CustomStructures plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean subCommand(CommandSender sender, Command cmd, String s, String[] args) {
+        if (!sender.hasPermission("customstructures.status")) {
+            sender.sendMessage(ChatColor.RED + "You do not have permission for this command!");
+            return true;
+        }
+
+        if (plugin.getStructureHandler() == null) {
+            sender.sendMessage(ChatColor.RED + "The plugin has not been properly initialized.");
+            return true;
+        }
+
+        sender.sendMessage(ChatColor.translateAlternateColorCodes('&', "&3============[&2CustomStructures Status&3]============"));
+
+        StructureSpawnScheduler scheduler = plugin.getStructureHandler().getSpawnScheduler();
+        quickSendMessage(sender, String.format("&3Spawn Queue: &2%d&3/&2%d &3chunks (&2%.1f &3chunks/s, &2%.2f&3/&2%.2f &3ms last tick)",
+                scheduler.getQueueDepth(), scheduler.getMaxQueueSize(), scheduler.getDrainRate(),
+                scheduler.getLastTickTime(), scheduler.getTickBudget()));
+        quickSendMessage(sender, String.format("&3Chunks: &2%d &3queued, &2%d &3evaluated, &2%d &3coalesced, &2%d &3dropped",
+                scheduler.getQueuedChunks(), scheduler.getEvaluatedChunks(), scheduler.getCoalescedChunks(),
+                scheduler.getDroppedChunks()));
+        quickSendMessage(sender, String.format("&3Structure Tests: &2%d &3tested, &2%d &3skipped (&2%.2f &3skipped per chunk)",
+                scheduler.getTestedStructures(), scheduler.getSkippedStructures(),
+                scheduler.getEvaluatedChunks() == 0 ? 0 : (double) scheduler.getSkippedStructures() / scheduler.getEvaluatedChunks()));
+        quickSendMessage(sender, String.format("&3Terrain Checks: &2%d &3async, &2%d &3waiting",
+                scheduler.getTerrainChecks(), scheduler.getWaitingChunks()));
+
+        if (plugin.getStructureHandler().getEvaluatedChunkStore().isPresent()) {
+            EvaluatedChunkStore chunkStore = plugin.getStructureHandler().getEvaluatedChunkStore().get();
+            quickSendMessage(sender, String.format("&3Evaluated Chunks: &2%d &3skipped, &2%d &3regions loaded (&2%.1f &3KB memory, &2%.1f &3KB disk)",
+                    chunkStore.getSkippedChunks(), chunkStore.getLoadedRegions(), chunkStore.getMemoryUsage() / 1024.0,
+                    chunkStore.getDiskUsage() / 1024.0));
+        }
+
+        StructurePopulator structurePopulator = plugin.getStructurePopulator();
+        if (structurePopulator != null) {
+            quickSendMessage(sender, String.format("&3Generation Spawning: &2%d &3structures, &2%d &3chunks evaluated, &2%d &3chunks deferred",
+                    structurePopulator.getSpawnedStructures(), structurePopulator.getHandledChunks(),
+                    structurePopulator.getDeferredChunks()));
+        }
+
+        StructureCandidateIndex candidateIndex = plugin.getStructureHandler().getCandidateIndex();
+        quickSendMessage(sender, String.format("&3Candidates: &2%d &3evaluated, &2%d &3pruned by world and biome",
+                candidateIndex.getEvaluatedCandidates(), candidateIndex.getPrunedCandidates()));
+
+        SchematicCache schematicCache = plugin.getSchematicCache();
+        quickSendMessage(sender, String.format("&3Schematic Cache: &2%d &3schematics (&2%.1f&3/&2%.1f &3MB), &2%d &3hits, &2%d &3misses, &2%d &3evictions",
+                schematicCache.getSize(), schematicCache.getMemoryUsage() / 1048576.0, schematicCache.getMaxMemory() / 1048576.0,
+                schematicCache.getHits(), schematicCache.getMisses(), schematicCache.getEvictions()));
+
+        if (plugin.getStructureHandler().getStructureDatabaseHandler().isPresent()) {
+            StructureDatabaseHandler database = plugin.getStructureHandler().getStructureDatabaseHandler().get();
+            quickSendMessage(sender, String.format("&3Structure Log: &2%d &3queued, &2%d &3saved in &2%d &3flushes (last: &2%d &3in &2%.2f &3ms)",
+                    database.getQueueLength(), database.getSavedStructures(), database.getFlushes(),
+                    database.getLastFlushSize(), database.getLastFlushTime()));
+            quickSendMessage(sender, String.format("&3Database Reads: &2%d &3queued, &2%d &3rejected",
+                    database.getQueuedReads(), database.getRejectedReads()));
+            for (StructureDatabaseHandler.ReadType type : StructureDatabaseHandler.ReadType.values()) {
+                quickSendMessage(sender, String.format("  &3%s: &2%d &3reads (&2%.2f &3ms average, &2%.2f &3ms max)",
+                        type.name().toLowerCase(), database.getReads(type), database.getAverageReadTime(type),
+                        database.getMaxReadTime(type)));
+            }
+        }
+        return true;
+    }
+
+    private void quickSendMessage(CommandSender sender, String msg) {
+        sender.sendMessage(ChatColor.translateAlternateColorCodes('&', msg));
+    }
+}
@@ -0,0 +1,341 @@
+package com.ryandw11.structure.generation;
+
+import com.ryandw11.structure.CustomStructures;
+import com.ryandw11.structure.exceptions.StructureConfigurationException;
+import com.ryandw11.structure.schematic.RegionPaste;
+import com.ryandw11.structure.schematic.SchematicHandler;
+import com.ryandw11.structure.structure.PriorityStructureQueue;
+import com.ryandw11.structure.structure.Structure;
+import com.ryandw11.structure.structure.StructureHandler;
+import com.ryandw11.structure.structure.properties.BlockLevelLimit;
+import com.ryandw11.structure.structure.properties.StructureYSpawning;
+import com.ryandw11.structure.utils.HeightmapCache;
+import com.ryandw11.structure.utils.TerrainCheck;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+import org.bukkit.generator.BlockPopulator;
+import org.bukkit.generator.LimitedRegion;
+import org.bukkit.generator.WorldInfo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Spawns structures while chunks are generated, instead of after they are loaded.
+ *
+ * <p>The spawn conditions are the same as {@link com.ryandw11.structure.utils.StructurePicker}, but they are tested
+ * against the {@link LimitedRegion} of the chunk and the schematic is written directly into the region. This way the
+ * chunk does not need to be relit or sent to players again.</p>
+ *
+ * <p>Some structures cannot be handled while the chunk is generated: structures with addon sections, masks, a bottom
+ * fill or signs, and structures (or block level limits) that do not fit in the region. When one of them can spawn in
+ * the biomes of the chunk, the whole chunk is left to the {@link com.ryandw11.structure.threading.StructureSpawnScheduler}
+ * once it loads. This is decided before any spawn condition is tested, so no structure is rolled twice.</p>
+ *
+ * <p>The chunks of a pasted structure cannot be accessed through the world until they load. The loot of each container
+ * is added once the chunk of the container loads, and the spawn event is called once the chunk of the structure
+ * loads.</p>
+ *
+ * <p>Populators can be called from multiple threads at the same time.</p>
+ */
+public class StructurePopulator extends BlockPopulator {
+
+    private final CustomStructures plugin;
+    // The chunks that were evaluated during generation, until they load.
+    private final Set<ChunkKey> evaluatedChunks = ConcurrentHashMap.newKeySet();
+    // The structures that were pasted into the evaluated chunks, until they load.
+    private final Map<ChunkKey, RegionPaste> pastedStructures = new ConcurrentHashMap<>();
+    // The containers of the pasted structures by the chunk they are in, until it loads.
+    private final Map<ChunkKey, List<PendingContainer>> pendingContainers = new ConcurrentHashMap<>();
+
+    private final AtomicLong spawnedStructures = new AtomicLong();
+    private final AtomicLong handledChunks = new AtomicLong();
+    private final AtomicLong deferredChunks = new AtomicLong();
+
+    /**
+     * Construct the structure populator.
+     *
+     * <p>For internal use only. Access through {@link CustomStructures#getStructurePopulator()}.</p>
+     *
+     * @param plugin The instance of the plugin.
+     */
+    public StructurePopulator(CustomStructures plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void populate(@NotNull WorldInfo worldInfo, @NotNull Random random, int chunkX, int chunkZ, @NotNull LimitedRegion limitedRegion) {
+        if (!CustomStructures.enabled) return;
+
+        StructureHandler structureHandler = plugin.getStructureHandler();
+        World world = Bukkit.getWorld(worldInfo.getUID());
+        // The chunk is evaluated once it loads instead.
+        if (structureHandler == null || world == null) return;
+
+        if (evaluate(structureHandler, world, worldInfo, limitedRegion, chunkX, chunkZ)) {
+            evaluatedChunks.add(new ChunkKey(worldInfo.getUID(), chunkX, chunkZ));
+            structureHandler.getEvaluatedChunkStore().ifPresent(store -> store.markEvaluated(world, chunkX, chunkZ));
+            handledChunks.incrementAndGet();
+        } else {
+            deferredChunks.incrementAndGet();
+        }
+    }
+
+    /**
+     * Check if a chunk was evaluated while it was generated, so it does not need to be evaluated again.
+     *
+     * <p>The chunk is forgotten after this is called.</p>
+     *
+     * @param chunk The chunk that loaded.
+     * @return If the chunk was evaluated while it was generated.
+     */
+    public boolean consumeEvaluatedChunk(@NotNull Chunk chunk) {
+        return evaluatedChunks.remove(new ChunkKey(chunk.getWorld().getUID(), chunk.getX(), chunk.getZ()));
+    }
+
+    /**
+     * Add the loot of the containers in a chunk that were pasted while it (or a nearby chunk) was generated.
+     * <p>This method is to be called on the main Server thread when the chunk loads.</p>
+     *
+     * @param chunk The chunk that loaded.
+     */
+    public void replacePendingContainers(@NotNull Chunk chunk) {
+        replacePendingContainers(new ChunkKey(chunk.getWorld().getUID(), chunk.getX(), chunk.getZ()));
+    }
+
+    /**
+     * Complete the structure that was pasted into a chunk while it was generated.
+     *
+     * <p>The loot is added to the containers of the structure that are in loaded chunks (the rest is added once their
+     * chunks load), then the {@link com.ryandw11.structure.api.StructureSpawnEvent} is called.</p>
+     * <p>This method is to be called on the main Server thread when the chunk loads.</p>
+     *
+     * @param chunk The chunk that loaded.
+     */
+    public void completePastedStructure(@NotNull Chunk chunk) {
+        RegionPaste paste = pastedStructures.remove(new ChunkKey(chunk.getWorld().getUID(), chunk.getX(), chunk.getZ()));
+        if (paste == null) return;
+
+        World world = chunk.getWorld();
+        Set<ChunkKey> containerChunks = new HashSet<>();
+        for (Location container : paste.holder().getContainersAndSignsLocations()) {
+            containerChunks.add(new ChunkKey(world.getUID(), container.getBlockX() >> 4, container.getBlockZ() >> 4));
+        }
+        for (ChunkKey key : containerChunks) {
+            if (world.isChunkLoaded(key.x(), key.z()))
+                replacePendingContainers(key);
+        }
+        paste.callSpawnEvent();
+    }
+
+    /**
+     * Get the number of structures spawned while chunks were generated.
+     *
+     * @return The number of spawned structures.
+     */
+    public long getSpawnedStructures() {
+        return spawnedStructures.get();
+    }
+
+    /**
+     * Get the number of chunks that were fully evaluated while they were generated.
+     *
+     * @return The number of handled chunks.
+     */
+    public long getHandledChunks() {
+        return handledChunks.get();
+    }
+
+    /**
+     * Get the number of chunks that were left to be evaluated once they load.
+     *
+     * @return The number of deferred chunks.
+     */
+    public long getDeferredChunks() {
+        return deferredChunks.get();
+    }
+
+    /**
+     * Evaluate a chunk and spawn a structure in it.
+     *
+     * @return If the chunk was fully evaluated. (False if it must be evaluated once it loads).
+     */
+    private boolean evaluate(StructureHandler structureHandler, World world, WorldInfo worldInfo, LimitedRegion region,
+                             int chunkX, int chunkZ) {
+        int x = (chunkX << 4) + 8;
+        int z = (chunkZ << 4) + 8;
+
+        // The structures are placed in the center column, so only its biomes are needed.
+        Set<Biome> columnBiomes = EnumSet.noneOf(Biome.class);
+        Predicate<Biome> containsBiome = biome -> {
+            if (columnBiomes.isEmpty()) {
+                for (int y = worldInfo.getMinHeight(); y < worldInfo.getMaxHeight(); y += 4) {
+                    columnBiomes.add(region.getBiome(x, y, z));
+                }
+            }
+            return columnBiomes.contains(biome);
+        };
+
+        // Defer the chunk before any condition is tested (and the probability is rolled), so the structures do not
+        // get a second roll once the chunk loads.
+        List<Structure> candidates = structureHandler.getCandidateIndex().getCandidates(world, containsBiome);
+        for (Structure structure : candidates) {
+            if (!canSpawnDuringGeneration(structure, worldInfo, region, chunkX, chunkZ)) return false;
+        }
+
+        HeightmapCache heightmapCache = new HeightmapCache(region::getHighestBlockYAt, chunkX, chunkZ);
+        PriorityStructureQueue priorityStructureQueue = new PriorityStructureQueue(candidates, structure -> {
+            int y = heightmapCache.getHighestBlockYAt(x, z, structure.getStructureLocation().getSpawnSettings().getHeightMap());
+            Location block = isVoid(worldInfo, region, x, y, z) ? null : new Location(world, x, y, z);
+            return structure.canSpawn(world, block, () -> block == null
+                    ? region.getBiome(chunkX << 4, 20, chunkZ << 4) : region.getBiome(x, y, z));
+        });
+
+        while (priorityStructureQueue.hasNextStructure()) {
+            Structure structure = Objects.requireNonNull(priorityStructureQueue.getNextStructure());
+
+            try {
+                Location location = getSpawnLocation(structure, world, worldInfo, region, heightmapCache, x, z);
+                if (location == null) continue;
+
+                // Other chunks are populated on other threads, so the distances are checked again while the
+                // structure is added to the list of spawned structures.
+                RegionPaste paste = SchematicHandler.placeSchematicInRegion(worldInfo, region, chunkX, chunkZ, location,
+                        structure, () -> structureHandler.putSpawnedStructureIfValid(location, structure));
+                // The structure does not fit vertically, or another structure spawned too close to it.
+                if (paste == null) continue;
+                addPastedStructure(worldInfo.getUID(), chunkX, chunkZ, paste);
+
+                spawnedStructures.incrementAndGet();
+                return true;
+            } catch (StructureConfigurationException ex) {
+                plugin.getLogger().severe("A configuration error was encountered when attempting to spawn the structure: "
+                        + structure.getName());
+                plugin.getLogger().severe(ex.getMessage());
+                return true;
+            } catch (Exception ex) {
+                plugin.getLogger().severe("An error was encountered when attempting to spawn the structure "
+                        + structure.getName() + " during world generation.");
+                plugin.getLogger().severe("The chunk will be evaluated again once it loads.");
+                if (plugin.isDebug())
+                    ex.printStackTrace();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Keep a pasted structure until its chunks load.
+     */
+    private void addPastedStructure(UUID world, int chunkX, int chunkZ, RegionPaste paste) {
+        for (Location container : paste.holder().getContainersAndSignsLocations()) {
+            pendingContainers.merge(new ChunkKey(world, container.getBlockX() >> 4, container.getBlockZ() >> 4),
+                    List.of(new PendingContainer(paste, container)), (first, second) -> {
+                        List<PendingContainer> merged = new ArrayList<>(first);
+                        merged.addAll(second);
+                        return merged;
+                    });
+        }
+        pastedStructures.put(new ChunkKey(world, chunkX, chunkZ), paste);
+    }
+
+    private void replacePendingContainers(ChunkKey chunk) {
+        List<PendingContainer> containers = pendingContainers.remove(chunk);
+        if (containers == null) return;
+        for (PendingContainer container : containers) {
+            container.paste().replaceContainer(container.location());
+        }
+    }
+
+    /**
+     * Check if a structure can be handled while a chunk is generated.
+     *
+     * @param structure The structure.
+     * @param worldInfo The information of the world.
+     * @param region    The region of the chunk.
+     * @param chunkX    The x coordinate of the chunk.
+     * @param chunkZ    The z coordinate of the chunk.
+     * @return If the structure can spawn during generation.
+     */
+    private boolean canSpawnDuringGeneration(Structure structure, WorldInfo worldInfo, LimitedRegion region,
+                                             int chunkX, int chunkZ) {
+        // Addon sections need the chunk, masks and the bottom fill need the world.
+        if (!structure.getStructureSections().isEmpty()) return false;
+        if (structure.getSourceMaskProperties().getUnionType() != null || structure.getTargetMaskProperties().getUnionType() != null)
+            return false;
+        if (structure.getBottomSpaceFill().isEnabled()) return false;
+
+        // The block level limit must be in the region (around the center of the chunk).
+        BlockLevelLimit limit = structure.getStructureLimitations().getBlockLevelLimit();
+        int buffer = region.getBuffer();
+        if (limit.isEnabled() && (Math.min(limit.getX1(), limit.getX2()) < -8 - buffer
+                || Math.max(limit.getX1(), limit.getX2()) > 7 + buffer
+                || Math.min(limit.getZ1(), limit.getZ2()) < -8 - buffer
+                || Math.max(limit.getZ1(), limit.getZ2()) > 7 + buffer))
+            return false;
+
+        // The schematic must fit in the region and must not have signs.
+        try {
+            return SchematicHandler.canPlaceInRegion(worldInfo, region, chunkX, chunkZ, structure);
+        } catch (IOException ex) {
+            if (plugin.isDebug())
+                ex.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Get the location to spawn a structure at.
+     *
+     * @return The location to spawn the structure at. (Null if the terrain conditions fail).
+     */
+    @Nullable
+    private Location getSpawnLocation(Structure structure, World world, WorldInfo worldInfo, LimitedRegion region,
+                                      HeightmapCache heightmapCache, int x, int z) {
+        StructureYSpawning structureSpawnSettings = structure.getStructureLocation().getSpawnSettings();
+
+        // Get the highest block according to the settings for the structure.
+        int y = heightmapCache.getHighestBlockYAt(x, z, structureSpawnSettings.getHeightMap());
+
+        // If the block is in the void, skip the other steps and spawn.
+        if (isVoid(worldInfo, region, x, y, z))
+            return new Location(world, x, structureSpawnSettings.getHeight(null), z);
+
+        OptionalInt spawnY = TerrainCheck.check(structure, region::getType, world, x, y, z,
+                plugin.getBlockIgnoreManager().getBlocks());
+        return spawnY.isPresent() ? new Location(world, x, spawnY.getAsInt(), z) : null;
+    }
+
+    private boolean isVoid(WorldInfo worldInfo, LimitedRegion region, int x, int y, int z) {
+        return y < worldInfo.getMinHeight() || region.getType(x, y, z) == Material.VOID_AIR;
+    }
+
+    /**
+     * Identifies a chunk in a world.
+     *
+     * @param world The UUID of the world.
+     * @param x     The x coordinate of the chunk.
+     * @param z     The z coordinate of the chunk.
+     */
+    private record ChunkKey(UUID world, int x, int z) {
+    }
+
+    /**
+     * A container of a pasted structure that did not get its loot yet.
+     *
+     * @param paste    The pasted structure.
+     * @param location The location of the container.
+     */
+    private record PendingContainer(RegionPaste paste, Location location) {
+    }
+}
@@ -2,8 +2,13 @@ package com.ryandw11.structure.ignoreblocks;
 
 import org.bukkit.Material;
 
-import java.util.List;
+import java.util.Set;
 
 public interface IgnoreBlocks {
-    List<Material> getBlocks();
+    /**
+     * Get the blocks that are ignored (such as plants).
+     *
+     * @return The unmodifiable set of ignored blocks.
+     */
+    Set<Material> getBlocks();
 }
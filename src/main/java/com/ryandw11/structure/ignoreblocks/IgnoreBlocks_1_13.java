@@ -2,14 +2,14 @@ package com.ryandw11.structure.ignoreblocks;
 
 import org.bukkit.Material;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.List;
+import java.util.EnumSet;
+import java.util.Set;
 
 public class IgnoreBlocks_1_13 implements IgnoreBlocks{
 
-    private final List<Material> plantBlocks = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(
+    private final Set<Material> plantBlocks = Collections.unmodifiableSet(EnumSet.copyOf(Arrays.asList(
             // General BLocks
             Material.SNOW,
             // Grasses
@@ -77,7 +77,7 @@ public class IgnoreBlocks_1_13 implements IgnoreBlocks{
     )));
 
     @Override
-    public List<Material> getBlocks() {
+    public Set<Material> getBlocks() {
         return plantBlocks;
     }
 }
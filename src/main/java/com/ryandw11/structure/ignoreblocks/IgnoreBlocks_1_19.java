@@ -2,7 +2,10 @@ package com.ryandw11.structure.ignoreblocks;
 
 import org.bukkit.Material;
 
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Ignore blocks for 1.19
@@ -11,7 +14,7 @@ import java.util.List;
  */
 public class IgnoreBlocks_1_19 implements IgnoreBlocks {
 
-    private final List<Material> ignoreBlocks = List.of(
+    private final Set<Material> ignoreBlocks = Collections.unmodifiableSet(EnumSet.copyOf(Arrays.asList(
             // General BLocks
             Material.SNOW,
             // Grasses
@@ -113,10 +116,10 @@ public class IgnoreBlocks_1_19 implements IgnoreBlocks {
             Material.MANGROVE_LEAVES,
             Material.MANGROVE_PROPAGULE,
             Material.SCULK_VEIN
-    );
+    )));
 
     @Override
-    public List<Material> getBlocks() {
+    public Set<Material> getBlocks() {
         return ignoreBlocks;
     }
 }
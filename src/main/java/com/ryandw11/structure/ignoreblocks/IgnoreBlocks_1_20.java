@@ -2,7 +2,10 @@ package com.ryandw11.structure.ignoreblocks;
 
 import org.bukkit.Material;
 
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Ignore blocks for 1.20, 1.21
@@ -10,7 +13,7 @@ import java.util.List;
 // TODO: Maybe use built in list defined by data packs? Or have the option
 public class IgnoreBlocks_1_20 implements IgnoreBlocks {
 
-    private final List<Material> ignoreBlocks = List.of(
+    private final Set<Material> ignoreBlocks = Collections.unmodifiableSet(EnumSet.copyOf(Arrays.asList(
             // General BLocks
             Material.SNOW,
             // Grasses
@@ -121,10 +124,10 @@ public class IgnoreBlocks_1_20 implements IgnoreBlocks {
             Material.PITCHER_CROP,
             Material.PITCHER_PLANT
 
-    );
+    )));
 
     @Override
-    public List<Material> getBlocks() {
+    public Set<Material> getBlocks() {
         return ignoreBlocks;
     }
 }
@@ -0,0 +1,439 @@
+package com.ryandw11.structure.io;
+
+import com.ryandw11.structure.CustomStructures;
+import com.sk89q.worldedit.math.BlockVector2;
+import me.ryandw11.ods.ObjectDataStructure;
+import me.ryandw11.ods.tags.ListTag;
+import me.ryandw11.ods.tags.ObjectTag;
+import org.bukkit.Material;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The data of a compiled schematic (.cschem) file.
+ *
+ * <p>Version 2 files use the following binary layout (big endian):</p>
+ * <pre>
+ * magic           4 bytes  "CSCH"
+ * version         int
+ * schematic hash  32 bytes (SHA-256 of the .schem file, all zeros if unknown)
+ * bounding box    int width, int height, int length
+ * palette         int size, then each block data string as (unsigned short length, modified UTF-8 bytes)
+ * blocks          byte bits per block, int long count, then the packed palette indices as longs
+ * containers      int count, then each as (material string, int x, int y, int z)
+ * signs           int count, then each as (material string, int x, int y, int z)
+ * ground plane    int count, then each as (int x, int z)
+ * </pre>
+ *
+ * <p>All positions are offsets from the minimum corner of the schematic. Palette indices are ordered by y, then z,
+ * then x and do not span multiple longs. Strings are written by {@link DataOutputStream#writeUTF(String)} and read
+ * with {@link DataInputStream#readUTF(DataInput)}.</p>
+ *
+ * <p>Version 1 files (ODS) are still read. They only contain the containers and signs.</p>
+ */
+public class CompiledSchematic {
+
+    private static final byte[] MAGIC = {'C', 'S', 'C', 'H'};
+    private static final int HASH_LENGTH = 32;
+
+    private final int version;
+    private final byte[] schematicHash;
+    private final int width;
+    private final int height;
+    private final int length;
+    private final String[] palette;
+    private final int bitsPerBlock;
+    private final long[] blocks;
+    private final List<BlockEntry> containers;
+    private final List<BlockEntry> signs;
+    private final List<BlockVector2> groundPlane;
+
+    /**
+     * Create a compiled schematic.
+     *
+     * @param version       The version of the format.
+     * @param schematicHash The SHA-256 hash of the schematic. (Null if unknown).
+     * @param width         The width (x) of the schematic.
+     * @param height        The height (y) of the schematic.
+     * @param length        The length (z) of the schematic.
+     * @param palette       The block palette.
+     * @param paletteIndex  The palette index of every block. (Ordered by y, then z, then x).
+     * @param containers    The containers of the schematic.
+     * @param signs         The signs of the schematic.
+     * @param groundPlane   The points of the bottom layer that are solid.
+     */
+    public CompiledSchematic(int version, @Nullable byte[] schematicHash, int width, int height, int length,
+                             @NotNull String[] palette, @NotNull int[] paletteIndex, @NotNull List<BlockEntry> containers,
+                             @NotNull List<BlockEntry> signs, @NotNull List<BlockVector2> groundPlane) {
+        this(version, schematicHash, width, height, length, palette, getBitsPerBlock(palette.length),
+                pack(paletteIndex, getBitsPerBlock(palette.length)), containers, signs, groundPlane);
+    }
+
+    private CompiledSchematic(int version, byte[] schematicHash, int width, int height, int length, String[] palette,
+                              int bitsPerBlock, long[] blocks, List<BlockEntry> containers, List<BlockEntry> signs,
+                              List<BlockVector2> groundPlane) {
+        this.version = version;
+        this.schematicHash = schematicHash == null ? new byte[HASH_LENGTH] : schematicHash;
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        this.palette = palette;
+        this.bitsPerBlock = bitsPerBlock;
+        this.blocks = blocks;
+        this.containers = Collections.unmodifiableList(containers);
+        this.signs = Collections.unmodifiableList(signs);
+        this.groundPlane = Collections.unmodifiableList(groundPlane);
+    }
+
+    /**
+     * Read a compiled schematic file.
+     *
+     * @param file The compiled schematic file.
+     * @return The compiled schematic.
+     * @throws IOException If the file cannot be read, is not a valid compiled schematic or was compiled by a newer
+     *                     version of the plugin.
+     */
+    @NotNull
+    public static CompiledSchematic read(@NotNull File file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("The compiled schematic " + file.getName() + " is too large.");
+            // The file is read into the heap, a mapped buffer would keep the file mapped until it is garbage collected.
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0)
+                    throw new EOFException("The compiled schematic " + file.getName() + " ended unexpectedly.");
+            }
+            buffer.flip();
+        }
+        if (!hasMagic(buffer))
+            return readLegacy(file);
+
+        try {
+            buffer.position(MAGIC.length);
+            int version = buffer.getInt();
+            if (version > CustomStructures.COMPILED_STRUCT_VER)
+                throw new IOException("The compiled schematic " + file.getName() + " uses version " + version
+                        + " of the format, but this version of the plugin can only read up to version "
+                        + CustomStructures.COMPILED_STRUCT_VER + ". Compile the schematic again or update the plugin.");
+
+            byte[] schematicHash = new byte[HASH_LENGTH];
+            buffer.get(schematicHash);
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            int length = buffer.getInt();
+
+            String[] palette = new String[buffer.getInt()];
+            for (int i = 0; i < palette.length; i++) {
+                palette[i] = readString(buffer);
+            }
+
+            int bitsPerBlock = buffer.get();
+            long[] blocks = new long[buffer.getInt()];
+            buffer.asLongBuffer().get(blocks);
+            buffer.position(buffer.position() + blocks.length * Long.BYTES);
+
+            List<BlockEntry> containers = readBlockEntries(buffer);
+            List<BlockEntry> signs = readBlockEntries(buffer);
+
+            int groundPlaneSize = buffer.getInt();
+            List<BlockVector2> groundPlane = new ArrayList<>(groundPlaneSize);
+            for (int i = 0; i < groundPlaneSize; i++) {
+                groundPlane.add(BlockVector2.at(buffer.getInt(), buffer.getInt()));
+            }
+
+            return new CompiledSchematic(version, schematicHash, width, height, length, palette, bitsPerBlock,
+                    blocks, containers, signs, groundPlane);
+        } catch (RuntimeException | UTFDataFormatException ex) {
+            throw new IOException("The compiled schematic " + file.getName() + " is corrupted.", ex);
+        }
+    }
+
+    /**
+     * Read a version 1 (ODS) compiled schematic.
+     *
+     * @param file The compiled schematic file.
+     * @return The compiled schematic.
+     */
+    private static CompiledSchematic readLegacy(File file) {
+        ObjectDataStructure ods = new ObjectDataStructure(file);
+        ListTag<ObjectTag> containerTags = ods.get("containers");
+        ListTag<ObjectTag> signTags = ods.get("signs");
+
+        List<BlockEntry> containers = new ArrayList<>();
+        for (ObjectTag con : containerTags.getValue()) {
+            BlockTag tag = new BlockTag(con);
+            containers.add(new BlockEntry(tag.getType(), tag.getLocation().getBlockX(), tag.getLocation().getBlockY(), tag.getLocation().getBlockZ()));
+        }
+        List<BlockEntry> signs = new ArrayList<>();
+        for (ObjectTag sign : signTags.getValue()) {
+            BlockTag tag = new BlockTag(sign);
+            signs.add(new BlockEntry(tag.getType(), tag.getLocation().getBlockX(), tag.getLocation().getBlockY(), tag.getLocation().getBlockZ()));
+        }
+
+        return new CompiledSchematic(1, null, 0, 0, 0, new String[0], 0, new long[0], containers, signs, new ArrayList<>());
+    }
+
+    /**
+     * Write the compiled schematic to a file using the latest version of the format.
+     *
+     * @param file The file to write to.
+     * @throws IOException If an error occurs while writing the file.
+     */
+    public void write(@NotNull File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.write(MAGIC);
+            out.writeInt(version);
+            out.write(schematicHash);
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeInt(length);
+
+            out.writeInt(palette.length);
+            for (String blockData : palette) {
+                out.writeUTF(blockData);
+            }
+
+            out.writeByte(bitsPerBlock);
+            out.writeInt(blocks.length);
+            for (long value : blocks) {
+                out.writeLong(value);
+            }
+
+            writeBlockEntries(out, containers);
+            writeBlockEntries(out, signs);
+
+            out.writeInt(groundPlane.size());
+            for (BlockVector2 point : groundPlane) {
+                out.writeInt(point.getBlockX());
+                out.writeInt(point.getBlockZ());
+            }
+        }
+    }
+
+    /**
+     * Compute the SHA-256 hash of a schematic file.
+     *
+     * @param schematicFile The schematic file.
+     * @return The hash of the file. (Null if the file does not exist).
+     * @throws IOException If an error occurs while reading the file.
+     */
+    @Nullable
+    public static byte[] hashSchematic(@NotNull File schematicFile) throws IOException {
+        if (!schematicFile.exists()) return null;
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(schematicFile.toPath()));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM.", ex);
+        }
+    }
+
+    /**
+     * Check if the compiled schematic was compiled from a schematic file.
+     *
+     * <p>Compiled schematics without a hash (such as version 1 files) always match.</p>
+     *
+     * @param schematicFile The schematic file.
+     * @return If the compiled schematic matches the schematic file.
+     * @throws IOException If an error occurs while reading the file.
+     */
+    public boolean matchesSchematic(@NotNull File schematicFile) throws IOException {
+        if (Arrays.equals(schematicHash, new byte[HASH_LENGTH])) return true;
+        return Arrays.equals(schematicHash, hashSchematic(schematicFile));
+    }
+
+    /**
+     * Get the version of the format the schematic was read from.
+     *
+     * @return The version of the format.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the width (x-axis) of the schematic.
+     * <p>This is 0 for version 1 files.</p>
+     *
+     * @return The width of the schematic.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height (y-axis) of the schematic.
+     * <p>This is 0 for version 1 files.</p>
+     *
+     * @return The height of the schematic.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the length (z-axis) of the schematic.
+     * <p>This is 0 for version 1 files.</p>
+     *
+     * @return The length of the schematic.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Check if the compiled schematic contains the block palette and ground plane.
+     *
+     * @return If the compiled schematic contains the block palette and ground plane. (False for version 1 files).
+     */
+    public boolean hasBlockData() {
+        return version >= 2;
+    }
+
+    /**
+     * Get the block data of a block in the schematic.
+     *
+     * @param x The x offset from the minimum corner.
+     * @param y The y offset from the minimum corner.
+     * @param z The z offset from the minimum corner.
+     * @return The block data as a string.
+     * @throws IndexOutOfBoundsException If the offset is outside the schematic.
+     */
+    @NotNull
+    public String getBlockData(int x, int y, int z) {
+        if (x < 0 || y < 0 || z < 0 || x >= width || y >= height || z >= length)
+            throw new IndexOutOfBoundsException("The offset is outside of the schematic.");
+        int index = (y * length + z) * width + x;
+        int perLong = 64 / bitsPerBlock;
+        long value = blocks[index / perLong] >>> ((index % perLong) * bitsPerBlock);
+        return palette[(int) (value & ((1L << bitsPerBlock) - 1))];
+    }
+
+    /**
+     * Get the block palette of the schematic.
+     *
+     * @return The block palette.
+     */
+    @NotNull
+    public List<String> getPalette() {
+        return Collections.unmodifiableList(Arrays.asList(palette));
+    }
+
+    /**
+     * Get the containers of the schematic.
+     *
+     * @return The containers of the schematic.
+     */
+    @NotNull
+    public List<BlockEntry> getContainers() {
+        return containers;
+    }
+
+    /**
+     * Get the signs of the schematic.
+     *
+     * @return The signs of the schematic.
+     */
+    @NotNull
+    public List<BlockEntry> getSigns() {
+        return signs;
+    }
+
+    /**
+     * Get the points of the bottom layer of the schematic that are solid.
+     * <p>This is used by the bottom fill. This is empty for version 1 files.</p>
+     *
+     * @return The points of the bottom layer that are solid.
+     */
+    @NotNull
+    public List<BlockVector2> getGroundPlane() {
+        return groundPlane;
+    }
+
+    /**
+     * Get the estimated memory used by the compiled schematic.
+     *
+     * @return The estimated memory usage in bytes.
+     */
+    public long getEstimatedSize() {
+        return (long) blocks.length * Long.BYTES + palette.length * 64L
+                + (containers.size() + signs.size()) * 32L + groundPlane.size() * 24L;
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer) {
+        if (buffer.remaining() < MAGIC.length) return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    private static int getBitsPerBlock(int paletteSize) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(0, paletteSize - 1)));
+    }
+
+    private static long[] pack(int[] paletteIndex, int bitsPerBlock) {
+        int perLong = 64 / bitsPerBlock;
+        long[] packed = new long[(paletteIndex.length + perLong - 1) / perLong];
+        for (int i = 0; i < paletteIndex.length; i++) {
+            packed[i / perLong] |= (long) paletteIndex[i] << ((i % perLong) * bitsPerBlock);
+        }
+        return packed;
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getShort(buffer.position()) & 0xFFFF;
+        if (buffer.remaining() < Short.BYTES + length)
+            throw new BufferUnderflowException();
+        // The strings are written with DataOutputStream#writeUTF, which uses modified UTF-8.
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array(),
+                buffer.arrayOffset() + buffer.position(), Short.BYTES + length));
+        buffer.position(buffer.position() + Short.BYTES + length);
+        return in.readUTF();
+    }
+
+    private static List<BlockEntry> readBlockEntries(ByteBuffer buffer) throws IOException {
+        int size = buffer.getInt();
+        List<BlockEntry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Material type = Material.matchMaterial(readString(buffer));
+            entries.add(new BlockEntry(type, buffer.getInt(), buffer.getInt(), buffer.getInt()));
+        }
+        return entries;
+    }
+
+    private static void writeBlockEntries(DataOutputStream out, List<BlockEntry> entries) throws IOException {
+        out.writeInt(entries.size());
+        for (BlockEntry entry : entries) {
+            out.writeUTF(entry.type() == null ? "AIR" : entry.type().name());
+            out.writeInt(entry.x());
+            out.writeInt(entry.y());
+            out.writeInt(entry.z());
+        }
+    }
+
+    /**
+     * A block in a compiled schematic.
+     *
+     * @param type The type of the block. (Null if the material no longer exists).
+     * @param x    The x offset from the minimum corner.
+     * @param y    The y offset from the minimum corner.
+     * @param z    The z offset from the minimum corner.
+     */
+    public record BlockEntry(Material type, int x, int y, int z) {
+    }
+}
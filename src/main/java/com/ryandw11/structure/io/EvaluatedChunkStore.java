@@ -0,0 +1,277 @@
+package com.ryandw11.structure.io;
+
+import com.ryandw11.structure.CustomStructures;
+import com.ryandw11.structure.structure.StructureHandler;
+import org.bukkit.World;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Stores which chunks were already evaluated for structure spawns, so they are not evaluated again when they load.
+ *
+ * <p>Each world has a folder in <code>data/chunks</code> with one file for every region of 32x32 chunks. A region
+ * is a bitset of 1024 bits (128 bytes). Regions are read the first time they are needed and modified regions are
+ * written in batches by this task and when the plugin is disabled. Regions that were not used since the last batch
+ * are removed from memory.</p>
+ *
+ * <p>This class is thread safe.</p>
+ */
+public class EvaluatedChunkStore extends BukkitRunnable {
+
+    // Regions are 2^5 = 32 chunks wide.
+    private static final int REGION_SHIFT = 5;
+    private static final int REGION_MASK = (1 << REGION_SHIFT) - 1;
+    private static final int REGION_LONGS = (1 << (REGION_SHIFT * 2)) / Long.SIZE;
+    // The estimated number of bytes used per loaded region.
+    private static final int BYTES_PER_REGION = REGION_LONGS * Long.BYTES + 64;
+
+    private final CustomStructures plugin;
+    private final File folder;
+    private final Map<UUID, Map<Long, Region>> worlds = new HashMap<>();
+    // Serializes the writes and deletions of the region files. This lock is always taken before the store itself.
+    private final Object fileLock = new Object();
+
+    private long skippedChunks;
+
+    /**
+     * Construct the evaluated chunk store.
+     *
+     * <p>For internal use only. Access through {@link StructureHandler#getEvaluatedChunkStore()}.</p>
+     *
+     * @param plugin The instance of the plugin.
+     */
+    public EvaluatedChunkStore(CustomStructures plugin) {
+        this.plugin = plugin;
+        this.folder = new File(plugin.getDataFolder(), "data/chunks");
+    }
+
+    /**
+     * Check if a chunk was already evaluated.
+     *
+     * @param world  The world of the chunk.
+     * @param chunkX The x coordinate of the chunk.
+     * @param chunkZ The z coordinate of the chunk.
+     * @return If the chunk was already evaluated.
+     */
+    public synchronized boolean isEvaluated(@NotNull World world, int chunkX, int chunkZ) {
+        boolean evaluated = getRegion(world.getUID(), chunkX, chunkZ).get(chunkX, chunkZ);
+        if (evaluated)
+            skippedChunks++;
+        return evaluated;
+    }
+
+    /**
+     * Mark a chunk as evaluated.
+     *
+     * @param world  The world of the chunk.
+     * @param chunkX The x coordinate of the chunk.
+     * @param chunkZ The z coordinate of the chunk.
+     */
+    public synchronized void markEvaluated(@NotNull World world, int chunkX, int chunkZ) {
+        getRegion(world.getUID(), chunkX, chunkZ).set(chunkX, chunkZ);
+    }
+
+    /**
+     * Forget every evaluated chunk of a world, so the chunks are evaluated again.
+     *
+     * @param world The world to reset.
+     */
+    public void reset(@NotNull World world) {
+        synchronized (fileLock) {
+            // The files are deleted while holding the lock of the store, so the old regions are not read again.
+            synchronized (this) {
+                worlds.remove(world.getUID());
+                deleteFolder(new File(folder, world.getUID().toString()));
+            }
+        }
+    }
+
+    /**
+     * Forget every evaluated chunk of every world, so the chunks are evaluated again.
+     */
+    public void reset() {
+        synchronized (fileLock) {
+            synchronized (this) {
+                worlds.clear();
+                deleteFolder(folder);
+            }
+        }
+    }
+
+    /**
+     * Write the modified regions to the disk and remove the unused regions from memory.
+     */
+    public void flush() {
+        // A reset cannot run between the copy and the write, so the bits of a reset world are never written back.
+        synchronized (fileLock) {
+            // Copy the modified regions, so the files can be written without holding the lock of the store.
+            Map<File, long[]> toWrite = new HashMap<>();
+            synchronized (this) {
+                for (Map.Entry<UUID, Map<Long, Region>> world : worlds.entrySet()) {
+                    Iterator<Region> iterator = world.getValue().values().iterator();
+                    while (iterator.hasNext()) {
+                        Region region = iterator.next();
+                        if (region.dirty) {
+                            region.dirty = false;
+                            toWrite.put(getRegionFile(world.getKey(), region.regionX, region.regionZ), region.bits.clone());
+                        } else if (!region.accessed) {
+                            iterator.remove();
+                        }
+                        region.accessed = false;
+                    }
+                }
+            }
+
+            for (Map.Entry<File, long[]> entry : toWrite.entrySet()) {
+                ByteBuffer buffer = ByteBuffer.allocate(REGION_LONGS * Long.BYTES);
+                buffer.asLongBuffer().put(entry.getValue());
+                try {
+                    Files.createDirectories(entry.getKey().getParentFile().toPath());
+                    Files.write(entry.getKey().toPath(), buffer.array());
+                } catch (IOException ex) {
+                    plugin.getLogger().warning("Unable to save the evaluated chunks to " + entry.getKey().getName() + "!");
+                    if (plugin.isDebug())
+                        ex.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of regions in memory.
+     *
+     * @return The number of regions in memory.
+     */
+    public synchronized int getLoadedRegions() {
+        int count = 0;
+        for (Map<Long, Region> regions : worlds.values()) {
+            count += regions.size();
+        }
+        return count;
+    }
+
+    /**
+     * Get the estimated memory used by the regions in memory.
+     *
+     * @return The estimated memory usage in bytes.
+     */
+    public long getMemoryUsage() {
+        return (long) getLoadedRegions() * BYTES_PER_REGION;
+    }
+
+    /**
+     * Get the size of the region files on the disk.
+     *
+     * <p>This walks the data folder, so it should not be called often.</p>
+     *
+     * @return The size of the region files in bytes.
+     */
+    public long getDiskUsage() {
+        long size = 0;
+        File[] worldFolders = folder.listFiles(File::isDirectory);
+        if (worldFolders == null) return 0;
+        for (File worldFolder : worldFolders) {
+            File[] files = worldFolder.listFiles();
+            if (files == null) continue;
+            for (File file : files) {
+                size += file.length();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Get the number of chunks that were skipped because they were already evaluated.
+     *
+     * @return The number of skipped chunks.
+     */
+    public synchronized long getSkippedChunks() {
+        return skippedChunks;
+    }
+
+    @Override
+    public void run() {
+        flush();
+    }
+
+    @Override
+    public void cancel() throws IllegalStateException {
+        super.cancel();
+        flush();
+    }
+
+    private Region getRegion(UUID world, int chunkX, int chunkZ) {
+        int regionX = chunkX >> REGION_SHIFT;
+        int regionZ = chunkZ >> REGION_SHIFT;
+        Region region = worlds.computeIfAbsent(world, uuid -> new HashMap<>())
+                .computeIfAbsent(((long) regionX << 32) | (regionZ & 0xFFFFFFFFL), key -> readRegion(world, regionX, regionZ));
+        region.accessed = true;
+        return region;
+    }
+
+    private Region readRegion(UUID world, int regionX, int regionZ) {
+        Region region = new Region(regionX, regionZ);
+        File file = getRegionFile(world, regionX, regionZ);
+        if (!file.exists()) return region;
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (buffer.remaining() == REGION_LONGS * Long.BYTES)
+                buffer.asLongBuffer().get(region.bits);
+        } catch (IOException ex) {
+            plugin.getLogger().warning("Unable to read the evaluated chunks from " + file.getName() + "!");
+            if (plugin.isDebug())
+                ex.printStackTrace();
+        }
+        return region;
+    }
+
+    private File getRegionFile(UUID world, int regionX, int regionZ) {
+        return new File(folder, world + "/r." + regionX + "." + regionZ + ".bin");
+    }
+
+    private void deleteFolder(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteFolder(child);
+            }
+        }
+        if (file.exists() && !file.delete())
+            plugin.getLogger().warning("Unable to delete " + file.getPath() + "!");
+    }
+
+    /**
+     * The evaluated chunks of a region.
+     */
+    private static class Region {
+        private final int regionX;
+        private final int regionZ;
+        private final long[] bits = new long[REGION_LONGS];
+        private boolean dirty;
+        private boolean accessed;
+
+        private Region(int regionX, int regionZ) {
+            this.regionX = regionX;
+            this.regionZ = regionZ;
+        }
+
+        private boolean get(int chunkX, int chunkZ) {
+            int index = ((chunkZ & REGION_MASK) << REGION_SHIFT) | (chunkX & REGION_MASK);
+            return (bits[index >> 6] & (1L << index)) != 0;
+        }
+
+        private void set(int chunkX, int chunkZ) {
+            int index = ((chunkZ & REGION_MASK) << REGION_SHIFT) | (chunkX & REGION_MASK);
+            if ((bits[index >> 6] & (1L << index)) != 0) return;
+            bits[index >> 6] |= 1L << index;
+            dirty = true;
+        }
+    }
+}
@@ -7,21 +7,19 @@ import com.ryandw11.structure.exceptions.StructureNotFoundException;
 import com.ryandw11.structure.io.sql.DistanceFunction;
 import com.ryandw11.structure.structure.Structure;
 import com.ryandw11.structure.structure.StructureHandler;
-import com.ryandw11.structure.utils.Pair;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.sqlite.Function;
+import org.sqlite.SQLiteConfig;
 
 import java.io.File;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Handles the saving and reading of structures from the spawned structure database.
@@ -32,17 +30,45 @@ import java.util.concurrent.CopyOnWriteArrayList;
  *
  * <p>Access this class from {@link StructureHandler#getStructureDatabaseHandler()}</p>
  *
+ * <p>Structures are saved in batches. A batch is written in a single transaction once
+ * <code>StructureDatabase.BatchSize</code> structures are queued or the oldest queued structure has waited
+ * <code>StructureDatabase.MaxDelay</code> milliseconds.</p>
+ *
+ * <p>Reads are handled right away by <code>StructureDatabase.ReadThreads</code> threads, each with its own read-only
+ * connection. At most <code>StructureDatabase.MaxQueuedReads</code> reads can wait for a thread, further reads complete
+ * exceptionally with {@link RateLimitException}.</p>
+ *
  * <p>Note: This feature needs to be enabled by the user in the config.</p>
  */
 public class StructureDatabaseHandler extends BukkitRunnable {
-    private final Map<Location, Structure> structuresToSave = new ConcurrentHashMap<>();
-    private final List<Pair<Location, CompletableFuture<Structure>>> structuresToGet = new CopyOnWriteArrayList<>();
-    private final List<Pair<Structure, CompletableFuture<List<Location>>>> locationsToGet = new CopyOnWriteArrayList<>();
-    private final List<Pair<NearbyStructuresRequest, CompletableFuture<NearbyStructuresResponse>>> findNearby = new CopyOnWriteArrayList<>();
+    // The version of the database schema, stored in the user_version of the database.
+    private static final int SCHEMA_VERSION = 1;
+    // Structures are indexed in cells that are 2^8 = 256 blocks wide.
+    static final int CELL_SHIFT = 8;
+    static final int CELL_SIZE = 1 << CELL_SHIFT;
+    // The number of cells to the world border.
+    static final int MAX_CELL_RADIUS = 30_000_000 >> CELL_SHIFT;
+
+    private final Queue<QueuedStructure> structuresToSave = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueLength = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
 
     private final Connection connection;
+    private final PreparedStatement insertStatement;
+    private final BlockingQueue<Connection> readConnections;
+    private final ThreadPoolExecutor readExecutor;
+    private final Map<ReadType, ReadMetrics> readMetrics = new EnumMap<>(ReadType.class);
+    private final AtomicLong rejectedReads = new AtomicLong();
 
     private final CustomStructures plugin;
+    private final int batchSize;
+    private final long maxDelay;
+
+    // Only written while flushing, read without a lock by the status command.
+    private volatile long flushes;
+    private volatile long savedStructures;
+    private volatile int lastFlushSize;
+    private volatile double lastFlushTime;
 
     /**
      * Construct the StructureDatabaseHandler.
@@ -55,20 +81,31 @@ public class StructureDatabaseHandler extends BukkitRunnable {
      */
     public StructureDatabaseHandler(CustomStructures plugin) {
         this.plugin = plugin;
+        this.batchSize = Math.max(1, plugin.getConfig().getInt("StructureDatabase.BatchSize", 256));
+        this.maxDelay = Math.max(0, plugin.getConfig().getLong("StructureDatabase.MaxDelay", 5000));
+        int readThreads = Math.max(1, plugin.getConfig().getInt("StructureDatabase.ReadThreads", 2));
+        int maxQueuedReads = Math.max(1, plugin.getConfig().getInt("StructureDatabase.MaxQueuedReads", 100));
+        for (ReadType type : ReadType.values()) {
+            readMetrics.put(type, new ReadMetrics());
+        }
 
         File dataDirectory = new File(plugin.getDataFolder() + "/data/");
         if (!dataDirectory.exists())
             if (!dataDirectory.mkdir())
                 throw new StructureDatabaseException("Unable to create 'data' folder. Does the plugin have the correct permissions?");
 
+        String url = String.format("jdbc:sqlite:%s", plugin.getDataFolder() + "/data/structures.db");
         try {
-            connection = DriverManager.getConnection(String.format("jdbc:sqlite:%s", plugin.getDataFolder() + "/data/structures.db"));
+            connection = DriverManager.getConnection(url);
 
             // Create custom SQLite functions.
             Function.create(connection, "DIST", new DistanceFunction());
 
             Statement statement = connection.createStatement();
             statement.setQueryTimeout(30);
+            // Write-ahead logging does not need to sync the database file on every commit.
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=NORMAL");
             statement.executeUpdate("""
                     CREATE TABLE IF NOT EXISTS Structures (
                         id INTEGER PRIMARY KEY,
@@ -76,18 +113,97 @@ public class StructureDatabaseHandler extends BukkitRunnable {
                         x DOUBLE NOT NULL,
                         y DOUBLE NOT NULL,
                         z DOUBLE NOT NULL,
-                        world VARCHAR(300) NOT NULL
+                        world VARCHAR(300) NOT NULL,
+                        cellX INTEGER,
+                        cellZ INTEGER
                     )
                     """);
+            migrate(statement);
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS StructuresCell ON Structures (world, cellX, cellZ)");
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS StructuresNameCell ON Structures (name, world, cellX, cellZ)");
             statement.close();
 
+            insertStatement = connection.prepareStatement("INSERT INTO Structures (name, x, y, z, world, cellX, cellZ) VALUES (?, ?, ?, ?, ?, ?, ?)");
 
+            // Every read thread has its own connection, WAL allows them to read while the structures are saved.
+            readConnections = new ArrayBlockingQueue<>(readThreads);
+            for (int i = 0; i < readThreads; i++) {
+                readConnections.add(openReadConnection(url));
+            }
         } catch (SQLException exception) {
             if (plugin.isDebug()) {
                 exception.printStackTrace();
             }
             throw new StructureDatabaseException("Unable to connect to SQLite database.");
         }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        readExecutor = new ThreadPoolExecutor(readThreads, readThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueuedReads), runnable -> {
+            Thread thread = new Thread(runnable, "CustomStructures-Database-Read-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Open a read-only connection to the database.
+     *
+     * @param url The url of the database.
+     * @return The connection.
+     * @throws SQLException If the connection cannot be opened.
+     */
+    private Connection openReadConnection(String url) throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(true);
+        Connection readConnection = DriverManager.getConnection(url, config.toProperties());
+        Function.create(readConnection, "DIST", new DistanceFunction());
+        return readConnection;
+    }
+
+    /**
+     * Update the database from older versions of the plugin.
+     *
+     * <p>Version 1 adds the cell columns used to find nearby structures.</p>
+     *
+     * @param statement The statement to execute the migration with.
+     * @throws SQLException If an error occurs during the migration.
+     */
+    private void migrate(Statement statement) throws SQLException {
+        int version;
+        try (ResultSet resultSet = statement.executeQuery("PRAGMA user_version")) {
+            version = resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+        if (version >= SCHEMA_VERSION) return;
+
+        connection.setAutoCommit(false);
+        try {
+            boolean hasCells = false;
+            try (ResultSet resultSet = statement.executeQuery("PRAGMA table_info(Structures)")) {
+                while (resultSet.next()) {
+                    if (resultSet.getString("name").equalsIgnoreCase("cellX")) hasCells = true;
+                }
+            }
+            if (!hasCells) {
+                plugin.getLogger().info("Updating the structure database. This might take a moment.");
+                statement.executeUpdate("ALTER TABLE Structures ADD COLUMN cellX INTEGER");
+                statement.executeUpdate("ALTER TABLE Structures ADD COLUMN cellZ INTEGER");
+            }
+            // Integer division rounds towards zero, so negative coordinates are shifted to round down.
+            statement.executeUpdate(String.format("""
+                    UPDATE Structures SET
+                        cellX = (CAST(x AS INTEGER) - (CAST(x AS INTEGER) < 0) * %1$d) / %2$d,
+                        cellZ = (CAST(z AS INTEGER) - (CAST(z AS INTEGER) < 0) * %1$d) / %2$d
+                    WHERE cellX IS NULL OR cellZ IS NULL
+                    """, CELL_SIZE - 1, CELL_SIZE));
+            statement.executeUpdate("PRAGMA user_version = " + SCHEMA_VERSION);
+            connection.commit();
+        } catch (SQLException ex) {
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(true);
+        }
     }
 
     /**
@@ -100,7 +216,14 @@ public class StructureDatabaseHandler extends BukkitRunnable {
      * @param structure The structure.
      */
     public void addStructure(Location loc, Structure structure) {
-        structuresToSave.put(loc, structure);
+        structuresToSave.add(new QueuedStructure(loc.clone(), structure, System.nanoTime()));
+        // Flush early once a full batch is queued.
+        if (queueLength.incrementAndGet() >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+                flushScheduled.set(false);
+                flush(false);
+            });
+        }
     }
 
     /**
@@ -127,10 +250,24 @@ public class StructureDatabaseHandler extends BukkitRunnable {
      * @return The completable future that this will return.
      */
     public CompletableFuture<Structure> getStructure(Location location) {
-        CompletableFuture<Structure> completableFuture = new CompletableFuture<>();
-        structuresToGet.add(Pair.of(location, completableFuture));
+        return read(ReadType.STRUCTURE, "An error was encountered when attempting to retrieve a structure from the structure database!", readConnection -> {
+            try (PreparedStatement statement = readConnection.prepareStatement("SELECT name FROM Structures WHERE x = ? AND y = ? AND z = ? AND world = ?")) {
+                statement.setDouble(1, location.getBlockX());
+                statement.setDouble(2, location.getBlockY());
+                statement.setDouble(3, location.getBlockZ());
+                statement.setString(4, Objects.requireNonNull(location.getWorld()).getName());
 
-        return completableFuture;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (!resultSet.next())
+                        throw new StructureNotFoundException("Cannot find structure with the provided location.");
+
+                    Structure structure = plugin.getStructureHandler().getStructure(resultSet.getString("name"));
+                    if (structure == null)
+                        throw new StructureNotFoundException("Retrieved structure is not loaded!");
+                    return structure;
+                }
+            }
+        });
     }
 
     /**
@@ -144,15 +281,8 @@ public class StructureDatabaseHandler extends BukkitRunnable {
      * @return A completable future containing the NearbyStructuresResponse.
      */
     public CompletableFuture<NearbyStructuresResponse> findNearby(NearbyStructuresRequest request) {
-        CompletableFuture<NearbyStructuresResponse> completableFuture = new CompletableFuture<>();
-        if (findNearby.size() <= 5)
-            findNearby.add(Pair.of(request, completableFuture));
-        else
-            Bukkit.getScheduler().runTaskLater(plugin,
-                    () -> completableFuture.completeExceptionally(new RateLimitException("The maximum amount of requests has been hit.")),
-                    5);
-
-        return completableFuture;
+        return read(ReadType.NEARBY, "An error was encountered when attempting to retrieve structures from the structure database! (Nearby)",
+                readConnection -> new NearbyStructuresResponse(findNearbyStructures(readConnection, request)));
     }
 
     /**
@@ -162,152 +292,327 @@ public class StructureDatabaseHandler extends BukkitRunnable {
      * @return A completable future containing the list of locations.
      */
     public CompletableFuture<List<Location>> getStructureLocations(Structure structure) {
-        CompletableFuture<List<Location>> completableFuture = new CompletableFuture<>();
-        locationsToGet.add(Pair.of(structure, completableFuture));
+        return read(ReadType.LOCATIONS, "An error was encountered when attempting to retrieve structures from the structure database!", readConnection -> {
+            List<Location> result = new ArrayList<>();
+            try (PreparedStatement statement = readConnection.prepareStatement("SELECT * FROM Structures WHERE name = ?")) {
+                statement.setString(1, structure.getName());
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        result.add(new Location(
+                                Bukkit.getWorld(resultSet.getString("world")),
+                                resultSet.getDouble("x"),
+                                resultSet.getDouble("y"),
+                                resultSet.getDouble("z")
+                        ));
+                    }
+                }
+            }
+            return result;
+        });
+    }
 
+    /**
+     * Run a read on one of the read threads.
+     *
+     * @param type         The type of read.
+     * @param errorMessage The message to log if an SQL error occurs.
+     * @param read         The read to run.
+     * @param <T>          The result of the read.
+     * @return A completable future containing the result of the read.
+     */
+    private <T> CompletableFuture<T> read(ReadType type, String errorMessage, DatabaseRead<T> read) {
+        CompletableFuture<T> completableFuture = new CompletableFuture<>();
+        long start = System.nanoTime();
+        try {
+            readExecutor.execute(() -> {
+                // There is one connection for every thread.
+                Connection readConnection = Objects.requireNonNull(readConnections.poll());
+                try {
+                    completableFuture.complete(read.read(readConnection));
+                } catch (SQLException ex) {
+                    completableFuture.completeExceptionally(new StructureDatabaseException(errorMessage));
+                    if (plugin.isDebug()) {
+                        plugin.getLogger().warning(errorMessage);
+                        ex.printStackTrace();
+                    }
+                } catch (RuntimeException ex) {
+                    completableFuture.completeExceptionally(ex);
+                } finally {
+                    readConnections.add(readConnection);
+                    readMetrics.get(type).record(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            if (readExecutor.isShutdown()) {
+                completableFuture.completeExceptionally(new StructureDatabaseException("The structure database is closed."));
+            } else {
+                rejectedReads.incrementAndGet();
+                completableFuture.completeExceptionally(new RateLimitException("The maximum amount of requests has been hit."));
+            }
+        }
         return completableFuture;
     }
 
-    @Override
-    public void run() {
-        // Handle save requests.
-        for (Map.Entry<Location, Structure> entry : structuresToSave.entrySet()) {
-            String worldName = Objects.requireNonNull(entry.getKey().getWorld()).getName();
+    /**
+     * Save the queued structures to the database in a single transaction.
+     *
+     * @param force If the structures should be saved even if the batch size or deadline have not been reached.
+     */
+    private synchronized void flush(boolean force) {
+        QueuedStructure oldest = structuresToSave.peek();
+        if (oldest == null) return;
+        if (!force && queueLength.get() < batchSize && System.nanoTime() - oldest.queuedTime() < maxDelay * 1_000_000)
+            return;
+
+        long start = System.nanoTime();
+        int count = 0;
+        try {
+            connection.setAutoCommit(false);
+            QueuedStructure queued;
+            while ((queued = structuresToSave.poll()) != null) {
+                queueLength.decrementAndGet();
+                insertStatement.setString(1, queued.structure().getName());
+                insertStatement.setDouble(2, queued.location().getBlockX());
+                insertStatement.setDouble(3, queued.location().getBlockY());
+                insertStatement.setDouble(4, queued.location().getBlockZ());
+                insertStatement.setString(5, Objects.requireNonNull(queued.location().getWorld()).getName());
+                insertStatement.setInt(6, queued.location().getBlockX() >> CELL_SHIFT);
+                insertStatement.setInt(7, queued.location().getBlockZ() >> CELL_SHIFT);
+                insertStatement.addBatch();
+                count++;
+            }
+            insertStatement.executeBatch();
+            connection.commit();
+        } catch (SQLException exception) {
             try {
-                PreparedStatement statement = connection.prepareStatement("INSERT INTO Structures (name, x, y, z, world) VALUES (?, ?, ?, ?, ?)");
-                statement.setString(1, entry.getValue().getName());
-                statement.setDouble(2, entry.getKey().getBlockX());
-                statement.setDouble(3, entry.getKey().getBlockY());
-                statement.setDouble(4, entry.getKey().getBlockZ());
-                statement.setString(5, worldName);
-
-                statement.executeUpdate();
-                statement.close();
-            } catch (SQLException exception) {
-                if (plugin.isDebug()) {
-                    plugin.getLogger().warning("An error was encountered when attempting to save a structure to the structure database!");
-                    exception.printStackTrace();
-                }
+                insertStatement.clearBatch();
+                connection.rollback();
+            } catch (SQLException ignored) {
+            }
+            count = 0;
+            if (plugin.isDebug()) {
+                plugin.getLogger().warning("An error was encountered when attempting to save structures to the structure database!");
+                exception.printStackTrace();
+            }
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException ignored) {
             }
         }
-        structuresToSave.clear();
 
-        // Handle structures at a specific location requests.
-        for (Pair<Location, CompletableFuture<Structure>> pair : structuresToGet) {
-            try {
-                PreparedStatement statement = connection.prepareStatement("SELECT name FROM Structures WHERE x = ? AND y = ? AND z = ? AND world = ?");
-                statement.setDouble(1, pair.getLeft().getBlockX());
-                statement.setDouble(2, pair.getLeft().getBlockY());
-                statement.setDouble(3, pair.getLeft().getBlockZ());
-                statement.setString(4, Objects.requireNonNull(pair.getLeft().getWorld()).getName());
+        flushes++;
+        savedStructures += count;
+        lastFlushSize = count;
+        lastFlushTime = (System.nanoTime() - start) / 1_000_000.0;
+    }
 
-                ResultSet resultSet = statement.executeQuery();
+    /**
+     * Get the number of structures waiting to be saved.
+     *
+     * @return The number of structures waiting to be saved.
+     */
+    public int getQueueLength() {
+        return queueLength.get();
+    }
 
-                if (resultSet.next()) {
-                    Structure structure = plugin.getStructureHandler().getStructure(resultSet.getString("name"));
-                    if (structure != null) {
-                        pair.getRight().complete(structure);
-                    } else {
-                        pair.getRight().completeExceptionally(new StructureNotFoundException("Retrieved structure is not loaded!"));
-                    }
-                } else {
-                    pair.getRight().completeExceptionally(new StructureNotFoundException("Cannot find structure with the provided location."));
-                }
-            } catch (SQLException exception) {
-                pair.getRight().completeExceptionally(new StructureDatabaseException("An error was encountered when attempting to retrieve a structure from the structure database!"));
-                if (plugin.isDebug()) {
-                    plugin.getLogger().warning("An error was encountered when attempting to retrieve a structure from the structure database!");
-                    exception.printStackTrace();
-                }
-            }
-        }
-        structuresToGet.clear();
+    /**
+     * Get the number of times structures were saved to the database.
+     *
+     * @return The number of flushes.
+     */
+    public long getFlushes() {
+        return flushes;
+    }
 
-        // Handle locations of a specific structure requests.
-        for (Pair<Structure, CompletableFuture<List<Location>>> pair : locationsToGet) {
-            List<Location> result = new ArrayList<>();
-            try {
-                PreparedStatement statement = connection.prepareStatement("SELECT * FROM Structures WHERE name = ?");
-                statement.setString(1, pair.getLeft().getName());
+    /**
+     * Get the number of structures saved to the database.
+     *
+     * @return The number of saved structures.
+     */
+    public long getSavedStructures() {
+        return savedStructures;
+    }
+
+    /**
+     * Get the number of structures saved by the last flush.
+     *
+     * @return The number of structures saved by the last flush.
+     */
+    public int getLastFlushSize() {
+        return lastFlushSize;
+    }
 
-                ResultSet resultSet = statement.executeQuery();
+    /**
+     * Get the time the last flush took.
+     *
+     * @return The time in milliseconds.
+     */
+    public double getLastFlushTime() {
+        return lastFlushTime;
+    }
 
-                while (resultSet.next()) {
-                    result.add(new Location(
-                            Bukkit.getWorld(resultSet.getString("world")),
-                            resultSet.getDouble("x"),
-                            resultSet.getDouble("y"),
-                            resultSet.getDouble("z")
-                    ));
-                }
+    /**
+     * Get the number of reads waiting for a read thread.
+     *
+     * @return The number of queued reads.
+     */
+    public int getQueuedReads() {
+        return readExecutor.getQueue().size();
+    }
 
-                pair.getRight().complete(result);
-            } catch (SQLException exception) {
-                pair.getRight().completeExceptionally(new StructureDatabaseException("An error was encountered when attempting to retrieve structures from the structure database!"));
-                if (plugin.isDebug()) {
-                    plugin.getLogger().warning("An error was encountered when attempting to retrieve structures from the structure database!");
-                    exception.printStackTrace();
-                }
-            }
-        }
-        locationsToGet.clear();
+    /**
+     * Get the number of reads that were rejected because too many reads were queued.
+     *
+     * @return The number of rejected reads.
+     */
+    public long getRejectedReads() {
+        return rejectedReads.get();
+    }
 
-        // Handle nearby requests.
-        for (Pair<NearbyStructuresRequest, CompletableFuture<NearbyStructuresResponse>> pair : findNearby) {
-            try {
-                List<NearbyStructuresResponse.NearbyStructureContainer> result = new ArrayList<>();
-                // So this does not clog up the IO Operations.
-                NearbyStructuresRequest nearbyStructuresRequest = pair.getLeft();
-                PreparedStatement statement = null;
-
-                if (nearbyStructuresRequest.hasName()) {
-                    statement = connection.prepareStatement("SELECT *, DIST(?, ?, ?, x, y, z) AS dist FROM Structures WHERE name = ? AND world = ? ORDER BY dist ASC LIMIT ?");
-                    statement.setInt(1, nearbyStructuresRequest.getLocation().getBlockX());
-                    statement.setInt(2, nearbyStructuresRequest.getLocation().getBlockY());
-                    statement.setInt(3, nearbyStructuresRequest.getLocation().getBlockZ());
-                    statement.setString(4, nearbyStructuresRequest.getName());
-                    statement.setString(5, Objects.requireNonNull(nearbyStructuresRequest.getLocation().getWorld()).getName());
-                    statement.setInt(6, nearbyStructuresRequest.getLimit());
-                } else {
-                    statement = connection.prepareStatement("SELECT *, DIST(?, ?, ?, x, y, z) AS dist FROM Structures WHERE world = ? ORDER BY dist ASC LIMIT ?");
-                    statement.setInt(1, nearbyStructuresRequest.getLocation().getBlockX());
-                    statement.setInt(2, nearbyStructuresRequest.getLocation().getBlockY());
-                    statement.setInt(3, nearbyStructuresRequest.getLocation().getBlockZ());
-                    statement.setString(4, Objects.requireNonNull(nearbyStructuresRequest.getLocation().getWorld()).getName());
-                    statement.setInt(5, nearbyStructuresRequest.getLimit());
-                }
-                ResultSet resultSet = statement.executeQuery();
+    /**
+     * Get the number of completed reads of a type.
+     *
+     * @param type The type of read.
+     * @return The number of completed reads.
+     */
+    public long getReads(ReadType type) {
+        return readMetrics.get(type).getCount();
+    }
 
-                while (resultSet.next()) {
-                    result.add(new NearbyStructuresResponse.NearbyStructureContainer(
-                            new Location(
-                                    Bukkit.getWorld(resultSet.getString("world")),
-                                    resultSet.getDouble("x"),
-                                    resultSet.getDouble("y"),
-                                    resultSet.getDouble("z")
-                            ),
-                            plugin.getStructureHandler().getStructure(resultSet.getString("name")),
-                            resultSet.getDouble("dist")
-                    ));
-                }
+    /**
+     * Get the average time a read of a type took, including the time it was queued.
+     *
+     * @param type The type of read.
+     * @return The average time in milliseconds.
+     */
+    public double getAverageReadTime(ReadType type) {
+        return readMetrics.get(type).getAverageTime();
+    }
+
+    /**
+     * Get the longest time a read of a type took, including the time it was queued.
+     *
+     * @param type The type of read.
+     * @return The longest time in milliseconds.
+     */
+    public double getMaxReadTime(ReadType type) {
+        return readMetrics.get(type).getMaxTime();
+    }
+
+    @Override
+    public synchronized void run() {
+        // Handle save requests.
+        flush(false);
+    }
 
-                pair.getRight().complete(new NearbyStructuresResponse(result));
-            } catch (SQLException ex) {
-                pair.getRight().completeExceptionally(new StructureDatabaseException("An error was encountered when attempting to retrieve structures from the structure database!"));
-                if (plugin.isDebug()) {
-                    plugin.getLogger().warning("An error was encountered when attempting to retrieve structures from the structure database! (Nearby)");
-                    ex.printStackTrace();
+    /**
+     * Find the structures closest to a location.
+     *
+     * <p>The cells around the location are searched in rings of growing size until enough structures are found
+     * that are closer than the searched area, so only the rows near the location are read.</p>
+     *
+     * @param readConnection The connection to read with.
+     * @param request        The nearby structures request.
+     * @return The closest structures, sorted by distance.
+     * @throws SQLException If an error occurs while reading the database.
+     */
+    private List<NearbyStructuresResponse.NearbyStructureContainer> findNearbyStructures(Connection readConnection, NearbyStructuresRequest request) throws SQLException {
+        List<NearbyStructuresResponse.NearbyStructureContainer> result = new ArrayList<>();
+        // A negative limit returns every structure (like the SQL LIMIT).
+        int limit = request.getLimit();
+        if (limit == 0) return result;
+
+        Location location = request.getLocation();
+        int centerX = location.getBlockX() >> CELL_SHIFT;
+        int centerZ = location.getBlockZ() >> CELL_SHIFT;
+        try (PreparedStatement statement = readConnection.prepareStatement(getNearbyQuery(request.hasName()))) {
+            int innerRadius = -1;
+            int radius = 0;
+            while (true) {
+                int index = 1;
+                statement.setInt(index++, location.getBlockX());
+                statement.setInt(index++, location.getBlockY());
+                statement.setInt(index++, location.getBlockZ());
+                statement.setString(index++, Objects.requireNonNull(location.getWorld()).getName());
+                if (request.hasName())
+                    statement.setString(index++, request.getName());
+                // The ring is the square of the radius without the square that was already searched.
+                statement.setInt(index++, centerX - radius);
+                statement.setInt(index++, centerX + radius);
+                statement.setInt(index++, centerZ - radius);
+                statement.setInt(index++, centerZ + radius);
+                statement.setInt(index++, centerX - innerRadius);
+                statement.setInt(index++, centerX + innerRadius);
+                statement.setInt(index++, centerZ - innerRadius);
+                statement.setInt(index, centerZ + innerRadius);
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        result.add(new NearbyStructuresResponse.NearbyStructureContainer(
+                                new Location(
+                                        Bukkit.getWorld(resultSet.getString("world")),
+                                        resultSet.getDouble("x"),
+                                        resultSet.getDouble("y"),
+                                        resultSet.getDouble("z")
+                                ),
+                                plugin.getStructureHandler().getStructure(resultSet.getString("name")),
+                                resultSet.getDouble("dist")
+                        ));
+                    }
                 }
+                result.sort(Comparator.comparingDouble(NearbyStructuresResponse.NearbyStructureContainer::getDistance));
+
+                // Every structure within radius * CELL_SIZE blocks has been found.
+                if (limit > 0 && result.size() >= limit && result.get(limit - 1).getDistance() <= (double) radius * CELL_SIZE)
+                    break;
+                if (radius >= MAX_CELL_RADIUS)
+                    break;
+
+                innerRadius = radius;
+                radius = radius == 0 ? 1 : Math.min(radius * 2, MAX_CELL_RADIUS);
             }
         }
-        findNearby.clear();
+
+        if (limit > 0 && result.size() > limit)
+            return new ArrayList<>(result.subList(0, limit));
+        return result;
+    }
+
+    /**
+     * Get the query that finds the structures in a ring of cells.
+     *
+     * <p>The parameters are the location (x, y, z), the world, the name (only if <code>hasName</code> is true), the
+     * square of cells to search (minimum x, maximum x, minimum z, maximum z) and the square of cells that was already
+     * searched (in the same order).</p>
+     *
+     * @param hasName If only structures with a name are found.
+     * @return The query.
+     */
+    static String getNearbyQuery(boolean hasName) {
+        return "SELECT *, DIST(?, ?, ?, x, y, z) AS dist FROM Structures WHERE world = ?" + (hasName ? " AND name = ?" : "")
+                + " AND cellX BETWEEN ? AND ? AND cellZ BETWEEN ? AND ? AND NOT (cellX BETWEEN ? AND ? AND cellZ BETWEEN ? AND ?)";
     }
 
     @Override
     public synchronized void cancel() throws IllegalStateException {
         run();
+        flush(true);
         super.cancel();
+        readExecutor.shutdown();
+        try {
+            if (!readExecutor.awaitTermination(5, TimeUnit.SECONDS))
+                readExecutor.shutdownNow();
+        } catch (InterruptedException ex) {
+            readExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
         try {
+            for (Connection readConnection : readConnections) {
+                readConnection.close();
+            }
+            insertStatement.close();
             connection.close();
         } catch (SQLException ex) {
             if (plugin.isDebug()) {
@@ -316,4 +621,69 @@ public class StructureDatabaseHandler extends BukkitRunnable {
             }
         }
     }
+
+    /**
+     * A structure waiting to be saved.
+     *
+     * @param location   The location of the structure.
+     * @param structure  The structure.
+     * @param queuedTime The time the structure was queued (in nanoseconds).
+     */
+    private record QueuedStructure(Location location, Structure structure, long queuedTime) {
+    }
+
+    /**
+     * The types of reads from the database.
+     */
+    public enum ReadType {
+        /**
+         * {@link #getStructure(Location)}
+         */
+        STRUCTURE,
+        /**
+         * {@link #getStructureLocations(Structure)}
+         */
+        LOCATIONS,
+        /**
+         * {@link #findNearby(NearbyStructuresRequest)}
+         */
+        NEARBY
+    }
+
+    /**
+     * Reads a value from the database.
+     *
+     * @param <T> The type of the value.
+     */
+    @FunctionalInterface
+    private interface DatabaseRead<T> {
+        T read(Connection readConnection) throws SQLException;
+    }
+
+    /**
+     * The latency of a type of read.
+     */
+    private static class ReadMetrics {
+        private long count;
+        private long totalTime;
+        private long maxTime;
+
+        private synchronized void record(long time) {
+            count++;
+            totalTime += time;
+            maxTime = Math.max(maxTime, time);
+        }
+
+        private synchronized long getCount() {
+            return count;
+        }
+
+        private synchronized double getAverageTime() {
+            return count == 0 ? 0 : totalTime / (double) count / 1_000_000.0;
+        }
+
+        private synchronized double getMaxTime() {
+            return maxTime / 1_000_000.0;
+        }
+    }
 }
@@ -1,8 +1,8 @@
 package com.ryandw11.structure.listener;
 
 import com.ryandw11.structure.CustomStructures;
-import com.ryandw11.structure.utils.StructurePicker;
-import org.bukkit.block.Block;
+import com.ryandw11.structure.generation.StructurePopulator;
+import com.ryandw11.structure.structure.StructureHandler;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.world.ChunkLoadEvent;
@@ -24,22 +24,33 @@ public class ChunkLoad implements Listener {
     public void onChunkLoad(ChunkLoadEvent e) {
         if (!CustomStructures.enabled) return;
 
+        // Add the loot of the structures that were pasted into the chunk while it was generated.
+        StructurePopulator structurePopulator = plugin.getStructurePopulator();
+        if (structurePopulator != null)
+            structurePopulator.replacePendingContainers(e.getChunk());
+
         // Allow new chunk to be disabled.
         boolean newChunk = plugin.getConfig().contains("new_chunks") && !plugin.getConfig().getBoolean("new_chunks");
         if (!newChunk && !e.isNewChunk()) return;
 
 
-        Block b = e.getChunk().getBlock(8, 5, 8); //Grabs the block 8, 5, 8 in that chunk.
+        StructureHandler structureHandler = plugin.getStructureHandler();
+        if (structureHandler == null) {
+            plugin.getLogger().warning("A structure is trying to spawn without the plugin initialization step being completed.");
+            plugin.getLogger().warning("If you are using a fork of Spigot, this likely means that the fork does not adhere to the API standard properly.");
+            return;
+        }
+
+        // The chunk was already evaluated while it was generated.
+        if (structurePopulator != null && structurePopulator.consumeEvaluatedChunk(e.getChunk())) {
+            structurePopulator.completePastedStructure(e.getChunk());
+            return;
+        }
 
         /*
-         * Schematic handler
-         * This activity is done async to prevent the server from lagging.
+         * The chunk is evaluated later by the spawn scheduler.
+         * This prevents the server from lagging when many chunks load at once.
          */
-        try {
-            StructurePicker s = new StructurePicker(b, e.getChunk(), CustomStructures.getInstance());
-            s.runTaskTimer(CustomStructures.plugin, 1, 10);
-        } catch (RuntimeException ex) {
-            // ignore, error already logged.
-        }
+        structureHandler.getSpawnScheduler().queueChunk(e.getChunk());
     }
 }
@@ -0,0 +1,62 @@
+package com.ryandw11.structure.listener;
+
+import com.ryandw11.structure.schematic.LootTableReplacer;
+import org.bukkit.block.Block;
+import org.bukkit.block.Container;
+import org.bukkit.block.DoubleChest;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.inventory.InventoryHolder;
+
+import java.util.List;
+
+/**
+ * Fills the containers of structures that were spawned with lazy loot.
+ *
+ * <p>Containers are filled when they are opened, broken or destroyed by an explosion.</p>
+ */
+public class LazyLoot implements Listener {
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryOpen(InventoryOpenEvent e) {
+        InventoryHolder holder = e.getInventory().getHolder();
+        if (holder instanceof DoubleChest doubleChest) {
+            fill(doubleChest.getLeftSide());
+            fill(doubleChest.getRightSide());
+        } else {
+            fill(holder);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent e) {
+        LootTableReplacer.fillLazyLoot(e.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent e) {
+        fill(e.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent e) {
+        fill(e.blockList());
+    }
+
+    private void fill(InventoryHolder holder) {
+        if (holder instanceof Container container) {
+            LootTableReplacer.fillLazyLoot(container.getBlock());
+        }
+    }
+
+    private void fill(List<Block> blocks) {
+        for (Block block : blocks) {
+            LootTableReplacer.fillLazyLoot(block);
+        }
+    }
+}
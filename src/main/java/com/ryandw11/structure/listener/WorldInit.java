@@ -0,0 +1,23 @@
+package com.ryandw11.structure.listener;
+
+import com.ryandw11.structure.CustomStructures;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldInitEvent;
+
+/**
+ * Adds the structure populator to worlds that load after the plugin is enabled.
+ */
+public class WorldInit implements Listener {
+
+    private final CustomStructures plugin;
+
+    public WorldInit() {
+        this.plugin = CustomStructures.getInstance();
+    }
+
+    @EventHandler
+    public void onWorldInit(WorldInitEvent e) {
+        plugin.addStructurePopulator(e.getWorld());
+    }
+}
@@ -155,10 +155,11 @@ public abstract class LootTable {
 
     /**
      * Add a LootTable type.
+     * <p>Structures are loaded on multiple threads, so types can be added at the same time.</p>
      *
      * @param type The LootTable type to be added.
      */
-    public final void addType(LootTableType type) {
+    public final synchronized void addType(LootTableType type) {
         this.types.add(type);
     }
 }
@@ -5,11 +5,16 @@ import com.ryandw11.structure.api.CustomStructuresAPI;
 import com.ryandw11.structure.exceptions.LootTableException;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
  * This handles the loot tables.
  *
  * <p>Get this handler via {@link CustomStructuresAPI#getLootTableHandler()}.</p>
+ *
+ * <p>Loot tables can be loaded and added from multiple threads.</p>
  */
 public class LootTableHandler {
 
@@ -17,8 +22,8 @@ public class LootTableHandler {
     private final Map<String, Class<? extends ConfigLootItem>> lootItems;
 
     public LootTableHandler() {
-        this.lootTables = new HashMap<>();
-        this.lootItems = new HashMap<>();
+        this.lootTables = new ConcurrentHashMap<>();
+        this.lootItems = new ConcurrentHashMap<>();
     }
 
     /**
@@ -32,11 +37,7 @@ public class LootTableHandler {
      * @return If the loot table was added successfully.
      */
     public boolean addLootTable(LootTable lootTable) {
-        if (lootTables.containsKey(lootTable.getName()))
-            return false;
-
-        this.lootTables.put(lootTable.getName(), lootTable);
-        return true;
+        return this.lootTables.putIfAbsent(lootTable.getName(), lootTable) == null;
     }
 
     /**
@@ -50,11 +51,7 @@ public class LootTableHandler {
      * @return If the loot item was added successfully.
      */
     public boolean addLootItem(String typeName, Class<? extends ConfigLootItem> lootItemClass) {
-        if (lootItems.containsKey(typeName.toUpperCase()))
-            return false;
-
-        this.lootItems.put(typeName.toUpperCase(), lootItemClass);
-        return true;
+        return this.lootItems.putIfAbsent(typeName.toUpperCase(), lootItemClass) == null;
     }
 
     /**
@@ -66,21 +63,58 @@ public class LootTableHandler {
      * @return The loot table. This will return null if the loot table does not exist or loads with an error.
      */
     public LootTable getLootTableByName(String lootTableName) {
-        if (!this.lootTables.containsKey(lootTableName)) {
-            try {
-                // Support minecraft loot tables.
-                if (lootTableName.contains(":")) {
-                    this.lootTables.put(lootTableName, new MinecraftLootTable(lootTableName));
-                } else {
-                    this.lootTables.put(lootTableName, new ConfigLootTable(lootTableName));
-                }
-            } catch (LootTableException ex) {
-                CustomStructures.getInstance().getLogger().severe("There seems to be a problem with the '" +
-                        lootTableName + "' loot table:");
-                CustomStructures.getInstance().getLogger().severe(ex.getMessage());
-            }
+        try {
+            return loadLootTable(lootTableName);
+        } catch (LootTableException ex) {
+            CustomStructures.getInstance().getLogger().severe("There seems to be a problem with the '" +
+                    lootTableName + "' loot table:");
+            CustomStructures.getInstance().getLogger().severe(ex.getMessage());
+            return null;
         }
-        return this.lootTables.get(lootTableName);
+    }
+
+    /**
+     * Get the loot table by the name, and load it if it is not loaded.
+     *
+     * @param lootTableName The name of the loot table.
+     * @return The loot table.
+     * @throws LootTableException If the loot table does not exist or loads with an error.
+     */
+    private LootTable loadLootTable(String lootTableName) {
+        LootTable lootTable = this.lootTables.get(lootTableName);
+        if (lootTable != null)
+            return lootTable;
+
+        // Support minecraft loot tables.
+        if (lootTableName.contains(":")) {
+            lootTable = new MinecraftLootTable(lootTableName);
+        } else {
+            lootTable = new ConfigLootTable(lootTableName);
+        }
+        // Another thread may have loaded the same loot table.
+        LootTable existing = this.lootTables.putIfAbsent(lootTableName, lootTable);
+        return existing != null ? existing : lootTable;
+    }
+
+    /**
+     * Load loot tables on multiple threads, so they do not need to be loaded when they are first used.
+     *
+     * <p>Loot tables that cannot be loaded are skipped without an error, the error is reported by
+     * {@link #getLootTableByName(String)} when the loot table is used. This waits until every loot table is loaded.</p>
+     *
+     * @param lootTableNames The names of the loot tables to load.
+     * @param executor       The executor to load the loot tables on.
+     */
+    public void loadLootTables(Collection<String> lootTableNames, Executor executor) {
+        CompletableFuture.allOf(lootTableNames.stream()
+                .map(name -> CompletableFuture.runAsync(() -> {
+                    try {
+                        loadLootTable(name);
+                    } catch (RuntimeException ex) {
+                        // The error is reported when the loot table is used.
+                    }
+                }, executor))
+                .toArray(CompletableFuture[]::new)).join();
     }
 
     /**
@@ -2,6 +2,7 @@ package com.ryandw11.structure.loottables;
 
 import com.ryandw11.structure.exceptions.LootTableException;
 import com.ryandw11.structure.utils.NumberStylizer;
+import com.ryandw11.structure.utils.Pair;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
@@ -11,19 +12,25 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.EnchantmentStorageMeta;
 import org.bukkit.inventory.meta.ItemMeta;
 
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 /**
  * Represents a Standard Item within a {@link ConfigLootTable}.
+ *
+ * <p>The amount and enchantments are parsed when the item is loaded. Enchantments with a fixed level are applied to
+ * the base item, so generating an item only needs to clone it and pick the random values.</p>
  */
 public class StandardLootItem implements LootItem {
 
     private int weight;
-    private final String amount;
-    private final Map<String, String> enchants;
+    private final int minAmount;
+    private final int maxAmount;
+    // Enchantments with a fixed level, these are already applied to the base item.
+    private final Map<Enchantment, Integer> fixedEnchants = new LinkedHashMap<>();
+    // Enchantments with a random level.
+    private final List<EnchantmentRange> rangedEnchants = new ArrayList<>();
     private ItemStack item;
 
     /**
@@ -43,7 +50,8 @@ public class StandardLootItem implements LootItem {
         } catch (IllegalArgumentException ex) {
             throw new LootTableException("Unknown Material Type: " + material);
         }
-        this.amount = amount + "";
+        this.minAmount = amount;
+        this.maxAmount = amount;
         this.item.setAmount(amount);
 
         if (customName != null) { //Catch for people who do not want different names
@@ -57,7 +65,7 @@ public class StandardLootItem implements LootItem {
             Objects.requireNonNull(this.item.getItemMeta()).setLore(lore);
         }
 
-        this.enchants = enchants;
+        resolveEnchants(enchants);
     }
 
     /**
@@ -77,8 +85,14 @@ public class StandardLootItem implements LootItem {
         } catch (IllegalArgumentException ex) {
             throw new LootTableException("Unknown Material Type: " + material);
         }
-        this.amount = amount;
-        this.item.setAmount(NumberStylizer.getStylizedInt(amount));
+        try {
+            Pair<Integer, Integer> amountRange = NumberStylizer.parseStylizedInt(amount);
+            this.minAmount = amountRange.getLeft();
+            this.maxAmount = amountRange.getRight();
+        } catch (NumberFormatException ex) {
+            throw new LootTableException("Invalid Amount: " + amount);
+        }
+        this.item.setAmount(minAmount);
         ItemMeta meta = Objects.requireNonNull(this.item.getItemMeta());
         if (customName != null) { //Catch for people who do not want different names
             meta.setDisplayName(ChatColor.translateAlternateColorCodes('&', customName));
@@ -91,28 +105,65 @@ public class StandardLootItem implements LootItem {
         }
 
         this.item.setItemMeta(meta);
-        this.enchants = enchants;
+        resolveEnchants(enchants);
     }
 
     /**
-     * Apply the stylized enchantments and amount to the itemstack.
+     * Resolve the enchantments and apply the ones with a fixed level to the base item.
      *
-     * @param item The item stack to apply the stats to.
+     * @param enchants The enchants (name, stylized level).
      */
-    private void applyStats(ItemStack item) {
-        item.setAmount(NumberStylizer.getStylizedInt(amount));
-        for (String enchantName : enchants.keySet()) {
-            int level = NumberStylizer.getStylizedInt(enchants.get(enchantName));
-            Enchantment enchantment = EnchantmentWrapper.getByKey(NamespacedKey.minecraft(enchantName.toLowerCase()));
+    private void resolveEnchants(Map<String, String> enchants) {
+        for (Map.Entry<String, String> enchant : enchants.entrySet()) {
+            Enchantment enchantment = EnchantmentWrapper.getByKey(NamespacedKey.minecraft(enchant.getKey().toLowerCase()));
             if (enchantment == null)
-                throw new LootTableException("Invalid Enchantment: " + enchantName);
-            if (item.getItemMeta() instanceof EnchantmentStorageMeta enchantmentStorageMeta) {
-                enchantmentStorageMeta.addStoredEnchant(enchantment, level, true);
-                item.setItemMeta(enchantmentStorageMeta);
-            } else {
-                item.addUnsafeEnchantment(enchantment, level);
+                throw new LootTableException("Invalid Enchantment: " + enchant.getKey());
+
+            Pair<Integer, Integer> level;
+            try {
+                level = NumberStylizer.parseStylizedInt(enchant.getValue());
+            } catch (NumberFormatException ex) {
+                throw new LootTableException("Invalid Enchantment Level: " + enchant.getValue());
             }
+            if (level.getLeft().equals(level.getRight()))
+                fixedEnchants.put(enchantment, level.getLeft());
+            else
+                rangedEnchants.add(new EnchantmentRange(enchantment, level.getLeft(), level.getRight()));
         }
+        applyEnchants(item, fixedEnchants);
+    }
+
+    /**
+     * Apply enchantments to an item stack.
+     *
+     * @param item     The item stack.
+     * @param enchants The enchantments and their levels.
+     */
+    private static void applyEnchants(ItemStack item, Map<Enchantment, Integer> enchants) {
+        if (enchants.isEmpty()) return;
+        if (item.getItemMeta() instanceof EnchantmentStorageMeta enchantmentStorageMeta) {
+            enchants.forEach((enchantment, level) -> enchantmentStorageMeta.addStoredEnchant(enchantment, level, true));
+            item.setItemMeta(enchantmentStorageMeta);
+        } else {
+            item.addUnsafeEnchantments(enchants);
+        }
+    }
+
+    /**
+     * Apply the random amount and enchantment levels to the itemstack.
+     *
+     * @param item The item stack to apply the stats to.
+     */
+    private void applyStats(ItemStack item) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        item.setAmount(minAmount == maxAmount ? minAmount : random.nextInt(minAmount, maxAmount + 1));
+        if (rangedEnchants.isEmpty()) return;
+
+        Map<Enchantment, Integer> levels = new LinkedHashMap<>();
+        for (EnchantmentRange range : rangedEnchants) {
+            levels.put(range.enchantment(), random.nextInt(range.minLevel(), range.maxLevel() + 1));
+        }
+        applyEnchants(item, levels);
     }
 
     /**
@@ -152,6 +203,17 @@ public class StandardLootItem implements LootItem {
      */
     public void setItem(ItemStack item) {
         this.item = item;
+        applyEnchants(item, fixedEnchants);
+    }
+
+    /**
+     * An enchantment with a random level.
+     *
+     * @param enchantment The enchantment.
+     * @param minLevel    The lowest level.
+     * @param maxLevel    The highest level.
+     */
+    private record EnchantmentRange(Enchantment enchantment, int minLevel, int maxLevel) {
     }
 
 }
@@ -0,0 +1,62 @@
+package com.ryandw11.structure.schematic;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import com.sk89q.worldedit.world.block.BlockType;
+import org.bukkit.Material;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Replaces the blocks from the 'replacement_blocks' section of a structure while the schematic is pasted.
+ *
+ * <p>Replaced blocks are set to the default state of the new type, so each block is only written once.</p>
+ */
+class BlockReplacementExtent extends AbstractDelegateExtent {
+
+    private final Map<BlockType, BlockState> replacements = new HashMap<>();
+
+    /**
+     * Create a block replacement extent.
+     *
+     * @param extent       The extent to paste to.
+     * @param replacements The blocks to replace (from, to).
+     */
+    BlockReplacementExtent(Extent extent, Map<Material, Material> replacements) {
+        super(extent);
+        for (Map.Entry<Material, Material> replacement : replacements.entrySet()) {
+            // Invalid materials are ignored.
+            if (replacement.getKey() == null || replacement.getValue() == null
+                    || !replacement.getKey().isBlock() || !replacement.getValue().isBlock())
+                continue;
+            this.replacements.put(BukkitAdapter.asBlockType(replacement.getKey()),
+                    BukkitAdapter.asBlockType(replacement.getValue()).getDefaultState());
+        }
+    }
+
+    /**
+     * Wrap an extent if there are blocks to replace.
+     *
+     * @param extent       The extent to paste to.
+     * @param replacements The blocks to replace (from, to).
+     * @return The extent to paste to.
+     */
+    static Extent wrap(Extent extent, Map<Material, Material> replacements) {
+        return replacements.isEmpty() ? extent : new BlockReplacementExtent(extent, replacements);
+    }
+
+    @Override
+    public <T extends BlockStateHolder<T>> boolean setBlock(BlockVector3 location, T block) throws WorldEditException {
+        BlockState replacement = replacements.get(block.getBlockType());
+        if (replacement != null) {
+            return super.setBlock(location, replacement);
+        }
+        return super.setBlock(location, block);
+    }
+}
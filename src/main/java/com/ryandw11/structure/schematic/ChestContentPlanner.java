@@ -0,0 +1,79 @@
+package com.ryandw11.structure.schematic;
+
+import com.ryandw11.structure.loottables.LootTable;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Plans the layout of the items of a loot table in a chest.
+ *
+ * <p>The layout is planned on an array of the contents, so the inventory only needs to be written once.</p>
+ */
+final class ChestContentPlanner {
+
+    private ChestContentPlanner() {
+    }
+
+    /**
+     * Plan the placement of the loot table items in the contents of a chest.
+     *
+     * @param lootTable        The loot table.
+     * @param random           The value of random.
+     * @param containerContent The contents of the chest. This array is modified.
+     */
+    static void plan(LootTable lootTable, Random random, ItemStack[] containerContent) {
+        // The items placed by this method, which can be modified without affecting the inventory.
+        ItemStack[] placedFrom = new ItemStack[containerContent.length];
+
+        for (int roll = 0; roll < lootTable.getRolls(); roll++) {
+            ItemStack randomItem = lootTable.getRandomWeightedItem();
+            ItemMeta randomItemMeta = null;
+
+            for (int j = 0; j < randomItem.getAmount(); j++) {
+                for (int attempts = 0; attempts < containerContent.length; attempts++) {
+                    int randomPos = random.nextInt(containerContent.length);
+                    ItemStack randomPosItem = containerContent[randomPos];
+                    if (randomPosItem == null) {
+                        ItemStack randomItemCopy = randomItem.clone();
+                        randomItemCopy.setAmount(1);
+                        containerContent[randomPos] = randomItemCopy;
+                        placedFrom[randomPos] = randomItem;
+                        break;
+                    }
+
+                    if (randomPosItem.getAmount() >= randomItem.getMaxStackSize()) continue;
+                    if (placedFrom[randomPos] != randomItem) {
+                        if (randomItemMeta == null)
+                            randomItemMeta = randomItem.getItemMeta();
+                        if (!isSameItem(randomPosItem, randomItem, randomItemMeta)) continue;
+                    }
+
+                    // Copy items that were already in the inventory before changing them.
+                    if (placedFrom[randomPos] == null) {
+                        randomPosItem = randomPosItem.clone();
+                        containerContent[randomPos] = randomPosItem;
+                    }
+                    placedFrom[randomPos] = randomItem;
+                    randomPosItem.setAmount(randomPosItem.getAmount() + 1);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Check if two items are the same.
+     *
+     * @param randomPosItem  The first item.
+     * @param randomItem     The second item.
+     * @param randomItemMeta The metadata of the second item.
+     * @return If the two items have the same metadata and type.
+     */
+    private static boolean isSameItem(ItemStack randomPosItem, ItemStack randomItem, ItemMeta randomItemMeta) {
+        if (!randomPosItem.getType().equals(randomItem.getType())) return false;
+        return Objects.equals(randomPosItem.getItemMeta(), randomItemMeta);
+    }
+}
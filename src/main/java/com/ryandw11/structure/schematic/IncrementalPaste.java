@@ -0,0 +1,175 @@
+package com.ryandw11.structure.schematic;
+
+import com.ryandw11.structure.structure.Structure;
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.transform.BlockTransformExtent;
+import com.sk89q.worldedit.function.mask.ExistingBlockMask;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.MaskIntersection;
+import com.sk89q.worldedit.function.operation.ForwardExtentCopy;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.math.transform.Transform;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Pastes a schematic over multiple ticks.
+ *
+ * <p>The pasted structure is split along the 16x16x16 chunk sections of the world (from the bottom up), so a tick
+ * only writes to a few chunk sections. Each world section is mapped back to the part of the clipboard that is pasted
+ * into it (through the inverse of the rotation). Sections are pasted each tick until the block budget of the tick is
+ * used. At least one section is pasted every tick.</p>
+ *
+ * <p>This task runs on the main server thread.</p>
+ */
+class IncrementalPaste extends BukkitRunnable {
+
+    private static final int SECTION_SIZE = 16;
+
+    private final Clipboard clipboard;
+    private final Extent source;
+    private final Transform transform;
+    private final Location location;
+    private final BlockVector3 to;
+    private final boolean useAir;
+    private final Structure structure;
+    private final int blocksPerTick;
+    private final Queue<CuboidRegion> sections = new LinkedList<>();
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    /**
+     * Create an incremental paste.
+     *
+     * @param clipboard     The clipboard to paste.
+     * @param transform     The transform of the clipboard.
+     * @param location      The location to paste the clipboard at.
+     * @param useAir        If air is to be used in the schematic.
+     * @param structure     The structure that is getting spawned.
+     * @param blocksPerTick The maximum number of blocks to paste per tick.
+     */
+    IncrementalPaste(Clipboard clipboard, Transform transform, Location location, boolean useAir, Structure structure, int blocksPerTick) {
+        this.clipboard = clipboard;
+        this.source = transform.isIdentity() ? clipboard : new BlockTransformExtent(clipboard, transform);
+        this.transform = transform;
+        this.location = location;
+        this.useAir = useAir;
+        this.structure = structure;
+        this.blocksPerTick = blocksPerTick;
+
+        this.to = BlockVector3.at(location.getX(), location.getY(), location.getZ());
+
+        BlockVector3 min = clipboard.getRegion().getMinimumPoint();
+        BlockVector3 max = clipboard.getRegion().getMaximumPoint();
+        BlockVector3 origin = clipboard.getOrigin();
+        Transform inverse = transform.inverse();
+
+        // The bounds of the structure in the world.
+        BlockVector3[] worldBounds = transformBounds(min.subtract(origin), max.subtract(origin), transform, to);
+        BlockVector3 worldMin = worldBounds[0];
+        BlockVector3 worldMax = worldBounds[1];
+        for (int y = Math.floorDiv(worldMin.getBlockY(), SECTION_SIZE) * SECTION_SIZE; y <= worldMax.getBlockY(); y += SECTION_SIZE) {
+            for (int x = Math.floorDiv(worldMin.getBlockX(), SECTION_SIZE) * SECTION_SIZE; x <= worldMax.getBlockX(); x += SECTION_SIZE) {
+                for (int z = Math.floorDiv(worldMin.getBlockZ(), SECTION_SIZE) * SECTION_SIZE; z <= worldMax.getBlockZ(); z += SECTION_SIZE) {
+                    // The part of the clipboard that is pasted into this section of the world.
+                    BlockVector3 sectionMin = BlockVector3.at(x, y, z);
+                    BlockVector3[] bounds = transformBounds(sectionMin.subtract(to),
+                            sectionMin.add(SECTION_SIZE - 1, SECTION_SIZE - 1, SECTION_SIZE - 1).subtract(to), inverse, origin);
+                    BlockVector3 lower = bounds[0].getMaximum(min);
+                    BlockVector3 upper = bounds[1].getMinimum(max);
+                    if (lower.getX() > upper.getX() || lower.getY() > upper.getY() || lower.getZ() > upper.getZ())
+                        continue;
+                    sections.add(new CuboidRegion(lower, upper));
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the bounds of a box after it is transformed and moved.
+     *
+     * @param min       The minimum point of the box.
+     * @param max       The maximum point of the box.
+     * @param transform The transform to apply to the box.
+     * @param offset    The offset to add after the transform.
+     * @return The minimum and maximum point of the transformed box.
+     */
+    private static BlockVector3[] transformBounds(BlockVector3 min, BlockVector3 max, Transform transform, BlockVector3 offset) {
+        BlockVector3 lower = null;
+        BlockVector3 upper = null;
+        for (int i = 0; i < 8; i++) {
+            Vector3 corner = transform.apply(Vector3.at(
+                    (i & 1) == 0 ? min.getX() : max.getX(),
+                    (i & 2) == 0 ? min.getY() : max.getY(),
+                    (i & 4) == 0 ? min.getZ() : max.getZ()));
+            BlockVector3 point = offset.add((int) Math.round(corner.getX()), (int) Math.round(corner.getY()), (int) Math.round(corner.getZ()));
+            lower = lower == null ? point : lower.getMinimum(point);
+            upper = upper == null ? point : upper.getMaximum(point);
+        }
+        return new BlockVector3[]{lower, upper};
+    }
+
+    /**
+     * Start pasting the schematic.
+     *
+     * @param plugin The plugin to run the task with.
+     * @return A future that is completed once the last section is pasted.
+     */
+    CompletableFuture<Void> start(Plugin plugin) {
+        runTaskTimer(plugin, 0, 1);
+        return future;
+    }
+
+    @Override
+    public void run() {
+        World world = location.getWorld();
+        if (world == null) {
+            cancel();
+            future.completeExceptionally(new IllegalStateException("The world of the structure " + structure.getName() + " is not loaded."));
+            return;
+        }
+
+        int pasted = 0;
+        try (EditSession editSession = WorldEdit.getInstance().getEditSessionFactory()
+                .getEditSession(BukkitAdapter.adapt(world), -1)) {
+            editSession.setMask(SchematicHandler.createTargetMask(structure, editSession));
+            Extent target = BlockReplacementExtent.wrap(editSession, structure.getStructureLimitations().getBlockReplacement());
+            Mask sourceMask = SchematicHandler.createSourceMask(structure, clipboard);
+            if (!useAir) {
+                sourceMask = sourceMask == null ? new ExistingBlockMask(clipboard) : new MaskIntersection(sourceMask, new ExistingBlockMask(clipboard));
+            }
+
+            while (pasted < blocksPerTick && !sections.isEmpty()) {
+                CuboidRegion section = sections.poll();
+                ForwardExtentCopy copy = new ForwardExtentCopy(source, section, clipboard.getOrigin(), target, to);
+                copy.setTransform(transform);
+                if (sourceMask != null)
+                    copy.setSourceMask(sourceMask);
+                Operations.complete(copy);
+                pasted += section.getArea();
+            }
+        } catch (WorldEditException | RuntimeException ex) {
+            cancel();
+            future.completeExceptionally(ex);
+            return;
+        }
+
+        if (sections.isEmpty()) {
+            cancel();
+            future.complete(null);
+        }
+    }
+}
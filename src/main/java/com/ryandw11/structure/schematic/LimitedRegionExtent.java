@@ -0,0 +1,82 @@
+package com.ryandw11.structure.schematic;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import org.bukkit.generator.LimitedRegion;
+import org.bukkit.generator.WorldInfo;
+
+/**
+ * An extent that writes blocks to the {@link LimitedRegion} of a chunk that is being generated.
+ *
+ * <p>Only blocks are supported. Block entity data and entities are not copied, and blocks outside the region are
+ * ignored.</p>
+ */
+class LimitedRegionExtent extends AbstractDelegateExtent {
+
+    private final LimitedRegion region;
+    private final BlockVector3 minimumPoint;
+    private final BlockVector3 maximumPoint;
+
+    /**
+     * Create a limited region extent.
+     *
+     * @param worldInfo The information of the world that is being generated.
+     * @param region    The region to write to.
+     * @param chunkX    The x coordinate of the chunk that is being generated.
+     * @param chunkZ    The z coordinate of the chunk that is being generated.
+     */
+    LimitedRegionExtent(WorldInfo worldInfo, LimitedRegion region, int chunkX, int chunkZ) {
+        super(new NullExtent());
+        this.region = region;
+        int buffer = region.getBuffer();
+        int centerX = chunkX << 4;
+        int centerZ = chunkZ << 4;
+        this.minimumPoint = BlockVector3.at(centerX - buffer, worldInfo.getMinHeight(), centerZ - buffer);
+        this.maximumPoint = BlockVector3.at(centerX + 15 + buffer, worldInfo.getMaxHeight() - 1, centerZ + 15 + buffer);
+    }
+
+    /**
+     * Check if a position can be written to.
+     *
+     * @param position The position.
+     * @return If the position is in the region.
+     */
+    boolean contains(BlockVector3 position) {
+        return position.containedWithin(minimumPoint, maximumPoint)
+                && region.isInRegion(position.getX(), position.getY(), position.getZ());
+    }
+
+    @Override
+    public BlockVector3 getMinimumPoint() {
+        return minimumPoint;
+    }
+
+    @Override
+    public BlockVector3 getMaximumPoint() {
+        return maximumPoint;
+    }
+
+    @Override
+    public BlockState getBlock(BlockVector3 position) {
+        if (!contains(position)) return super.getBlock(position);
+        return BukkitAdapter.adapt(region.getBlockData(position.getX(), position.getY(), position.getZ()));
+    }
+
+    @Override
+    public BaseBlock getFullBlock(BlockVector3 position) {
+        return getBlock(position).toBaseBlock();
+    }
+
+    @Override
+    public <T extends BlockStateHolder<T>> boolean setBlock(BlockVector3 position, T block) throws WorldEditException {
+        if (!contains(position)) return false;
+        region.setBlockData(position.getX(), position.getY(), position.getZ(), BukkitAdapter.adapt(block));
+        return true;
+    }
+}
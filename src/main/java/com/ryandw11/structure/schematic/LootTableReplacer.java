@@ -9,14 +9,17 @@ import com.ryandw11.structure.utils.RandomCollection;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
 import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
 import org.bukkit.block.BlockState;
 import org.bukkit.block.Container;
 import org.bukkit.inventory.BrewerInventory;
 import org.bukkit.inventory.FurnaceInventory;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
 
 import java.util.Random;
 
@@ -24,12 +27,20 @@ import java.util.Random;
  * Handle loot table replacement in schematics.
  */
 public class LootTableReplacer {
+    private static final NamespacedKey LOOT_TABLE_KEY = new NamespacedKey(CustomStructures.getInstance(), "loot_table");
+    private static final NamespacedKey LOOT_FILLS_KEY = new NamespacedKey(CustomStructures.getInstance(), "loot_fills");
+    private static final NamespacedKey LOOT_EXPLICIT_KEY = new NamespacedKey(CustomStructures.getInstance(), "loot_explicit");
+    private static final NamespacedKey LOOT_STRUCTURE_KEY = new NamespacedKey(CustomStructures.getInstance(), "loot_structure");
+
     private LootTableReplacer() {
     }
 
     /**
      * Replace the contents of a container with the loot table from a structure.
      *
+     * <p>If <code>LazyLoot</code> is enabled, the loot table is stored in the container and the container is filled
+     * once it is opened (see {@link #fillLazyLoot(Block)}).</p>
+     *
      * @param structure The structure that is being spawned.
      * @param location  The location of the container.
      */
@@ -73,6 +84,81 @@ public class LootTableReplacer {
             lootTable = tables.next();
         }
 
+        if (CustomStructures.getInstance().getConfig().getBoolean("LazyLoot") && canFillLazily(block)) {
+            // Get a new state, so updating it does not restore the contents that were cleared.
+            Container lazyContainer = (Container) block.getState();
+            PersistentDataContainer data = lazyContainer.getPersistentDataContainer();
+            data.set(LOOT_TABLE_KEY, PersistentDataType.STRING, lootTable.getName());
+            data.set(LOOT_FILLS_KEY, PersistentDataType.INTEGER, numberOfFills);
+            data.set(LOOT_EXPLICIT_KEY, PersistentDataType.BYTE, (byte) (explictLoottableDefined ? 1 : 0));
+            data.set(LOOT_STRUCTURE_KEY, PersistentDataType.STRING, structure.getName());
+            lazyContainer.update();
+            return;
+        }
+
+        fillContainer(structure, location, container, lootTable, numberOfFills, explictLoottableDefined);
+    }
+
+    /**
+     * Fill a container that was spawned with lazy loot, if it has not been filled yet.
+     *
+     * <p>This is called when the container is opened or broken.</p>
+     *
+     * @param block The block of the container.
+     */
+    public static void fillLazyLoot(Block block) {
+        // Skip other blocks before their (expensive) state is read.
+        if (!PasteManifest.isContainer(block.getType())) return;
+        if (!(block.getState() instanceof Container container)) return;
+        PersistentDataContainer data = container.getPersistentDataContainer();
+        String lootTableName = data.get(LOOT_TABLE_KEY, PersistentDataType.STRING);
+        if (lootTableName == null) return;
+
+        int numberOfFills = data.getOrDefault(LOOT_FILLS_KEY, PersistentDataType.INTEGER, 1);
+        boolean explicit = data.getOrDefault(LOOT_EXPLICIT_KEY, PersistentDataType.BYTE, (byte) 0) == 1;
+        String structureName = data.get(LOOT_STRUCTURE_KEY, PersistentDataType.STRING);
+        // The container is only filled once.
+        data.remove(LOOT_TABLE_KEY);
+        data.remove(LOOT_FILLS_KEY);
+        data.remove(LOOT_EXPLICIT_KEY);
+        data.remove(LOOT_STRUCTURE_KEY);
+        container.update();
+
+        CustomStructures plugin = CustomStructures.getInstance();
+        Structure structure = plugin.getStructureHandler() == null ? null : plugin.getStructureHandler().getStructure(structureName);
+        LootTable lootTable = plugin.getLootTableHandler().getLootTableByName(lootTableName);
+        if (structure == null || lootTable == null) return;
+
+        fillContainer(structure, block.getLocation(), (Container) block.getState(), lootTable, numberOfFills, explicit);
+    }
+
+    /**
+     * Check if the loot of a container can be generated once it is opened.
+     *
+     * <p>Hoppers take items out of containers without opening them, so containers with a hopper below them
+     * (and hoppers themselves) are filled right away.</p>
+     *
+     * @param block The block of the container.
+     * @return If the loot can be generated later.
+     */
+    private static boolean canFillLazily(Block block) {
+        return block.getType() != Material.HOPPER && block.getRelative(BlockFace.DOWN).getType() != Material.HOPPER;
+    }
+
+    /**
+     * Fill a container with a loot table.
+     *
+     * @param structure     The structure that is being spawned.
+     * @param location      The location of the container.
+     * @param container     The container.
+     * @param lootTable     The loot table to fill the container with.
+     * @param numberOfFills The number of times the loot table is used.
+     * @param explicit      If the loot table was defined in the container.
+     */
+    private static void fillContainer(Structure structure, Location location, Container container, LootTable lootTable,
+                                      int numberOfFills, boolean explicit) {
+        Inventory containerInventory = container.getInventory();
+        LootTableType blockType = LootTableType.valueOf(location.getBlock().getType());
         Random random = new Random();
 
         // Trigger the loot populate event.
@@ -83,11 +169,11 @@ public class LootTableReplacer {
 
         // TODO: This is not a good method, should try to pick another loot table if failed.
         for(int i = 0; i < numberOfFills; i++) {
-            if ((lootTable.getTypes().contains(blockType) || explictLoottableDefined) && containerInventory instanceof FurnaceInventory) {
+            if ((lootTable.getTypes().contains(blockType) || explicit) && containerInventory instanceof FurnaceInventory) {
                 lootTable.fillFurnaceInventory((FurnaceInventory) containerInventory, random, container.getLocation());
-            } else if ((lootTable.getTypes().contains(blockType) || explictLoottableDefined) && containerInventory instanceof BrewerInventory) {
+            } else if ((lootTable.getTypes().contains(blockType) || explicit) && containerInventory instanceof BrewerInventory) {
                 lootTable.fillBrewerInventory((BrewerInventory) containerInventory, random, container.getLocation());
-            } else if (lootTable.getTypes().contains(blockType) || explictLoottableDefined) {
+            } else if (lootTable.getTypes().contains(blockType) || explicit) {
                 lootTable.fillContainerInventory(containerInventory, random, container.getLocation());
             }
         }
@@ -96,49 +182,17 @@ public class LootTableReplacer {
     /**
      * Replace the chest content.
      *
+     * <p>Each unit of an item is put in a random slot, either an empty slot or a slot with the same item that is not
+     * full. The layout is planned on a copy of the contents, which is then set to the inventory once.</p>
+     *
      * @param lootTable          The loot table.
      * @param random             The value of random.
      * @param containerInventory The container inventory
      */
     public static void replaceChestContent(LootTable lootTable, Random random, Inventory containerInventory) {
-        for(int roll = 0; roll < lootTable.getRolls(); roll++){
-            ItemStack[] containerContent = containerInventory.getContents();
-
-            ItemStack randomItem = lootTable.getRandomWeightedItem();
-
-            for (int j = 0; j < randomItem.getAmount(); j++) {
-                boolean done = false;
-                int attemps = 0;
-                while (!done) {
-                    int randomPos = random.nextInt(containerContent.length);
-                    ItemStack randomPosItem = containerInventory.getItem(randomPos);
-                    if (randomPosItem != null) {
-
-                        if (isSameItem(randomPosItem, randomItem)) {
-                            if (randomPosItem.getAmount() < randomItem.getMaxStackSize()) {
-                                ItemStack randomItemCopy = randomItem.clone();
-                                int newAmount = randomPosItem.getAmount() + 1;
-                                randomItemCopy.setAmount(newAmount);
-                                containerContent[randomPos] = randomItemCopy;
-                                containerInventory.setContents(containerContent);
-                                done = true;
-                            }
-                        }
-                    } else {
-                        ItemStack randomItemCopy = randomItem.clone();
-                        randomItemCopy.setAmount(1);
-                        containerContent[randomPos] = randomItemCopy;
-                        containerInventory.setContents(containerContent);
-                        done = true;
-
-                    }
-                    attemps++;
-                    if (attemps >= containerContent.length) {
-                        done = true;
-                    }
-                }
-            }
-        }
+        ItemStack[] containerContent = containerInventory.getContents();
+        ChestContentPlanner.plan(lootTable, random, containerContent);
+        containerInventory.setContents(containerContent);
     }
 
     /**
@@ -183,18 +237,4 @@ public class LootTableReplacer {
             }
         }
     }
-
-    /**
-     * Check if two items are the same.
-     *
-     * @param randomPosItem The first item.
-     * @param randomItem    The second item.
-     * @return If the two items have the same metadata and type.
-     */
-    private static boolean isSameItem(ItemStack randomPosItem, ItemStack randomItem) {
-        ItemMeta randomPosItemMeta = randomPosItem.getItemMeta();
-        ItemMeta randomItemMeta = randomItem.getItemMeta();
-
-        return randomPosItem.getType().equals(randomItem.getType()) && randomPosItemMeta.equals(randomItemMeta);
-    }
 }
@@ -0,0 +1,176 @@
+package com.ryandw11.structure.schematic;
+
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.math.transform.Transform;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Tag;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.type.Chest;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * The locations of the containers and signs of a schematic, relative to the origin of the clipboard.
+ *
+ * <p>The manifest is computed once from the clipboard and cached with it, so the pasted region of the world does not
+ * need to be scanned after every paste. The offsets are rotated for each paste.</p>
+ *
+ * <p>This class is thread safe.</p>
+ */
+class PasteManifest {
+
+    // The estimated number of bytes used per offset.
+    private static final int BYTES_PER_OFFSET = 32;
+
+    private static final Set<Material> CONTAINERS = EnumSet.of(Material.CHEST, Material.TRAPPED_CHEST,
+            Material.FURNACE, Material.BREWING_STAND, Material.DISPENSER, Material.DROPPER, Material.HOPPER);
+    private static final Set<Material> SIGNS = EnumSet.noneOf(Material.class);
+
+    static {
+        CONTAINERS.addAll(Tag.SHULKER_BOXES.getValues());
+        // These materials might not exist in older versions of minecraft.
+        for (String name : new String[]{"BARREL", "BLAST_FURNACE", "SMOKER"}) {
+            Material material = Material.getMaterial(name);
+            if (material != null)
+                CONTAINERS.add(material);
+        }
+        // The sign tags differ between versions of minecraft, so signs (including wall and hanging signs) are
+        // matched by name.
+        for (Material material : Material.values()) {
+            if (!material.isLegacy() && (material.name().equals("SIGN") || material.name().endsWith("_SIGN")))
+                SIGNS.add(material);
+        }
+    }
+
+    private final List<BlockVector3> containers;
+    private final List<BlockVector3> signs;
+
+    private PasteManifest(List<BlockVector3> containers, List<BlockVector3> signs) {
+        this.containers = containers;
+        this.signs = signs;
+    }
+
+    /**
+     * Create the manifest of a clipboard.
+     *
+     * <p>Only one side of a double chest is added to the containers.</p>
+     *
+     * @param clipboard The clipboard of the schematic.
+     * @return The paste manifest.
+     */
+    static PasteManifest create(@NotNull Clipboard clipboard) {
+        List<BlockVector3> containers = new ArrayList<>();
+        List<BlockVector3> signs = new ArrayList<>();
+        BlockVector3 origin = clipboard.getOrigin();
+        Map<BlockType, Material> materials = new HashMap<>();
+
+        for (BlockVector3 point : clipboard.getRegion()) {
+            BlockState state = clipboard.getBlock(point);
+            Material material = materials.computeIfAbsent(state.getBlockType(), BukkitAdapter::adapt);
+            if (material == null) continue;
+
+            if (CONTAINERS.contains(material)) {
+                if (isSecondChestSide(clipboard, point, state)) continue;
+                containers.add(point.subtract(origin));
+            } else if (SIGNS.contains(material)) {
+                signs.add(point.subtract(origin));
+            }
+        }
+
+        return new PasteManifest(List.copyOf(containers), List.copyOf(signs));
+    }
+
+    /**
+     * Check if a material is a container that can get loot.
+     *
+     * <p>This does not need the state of the block, so it is cheap enough to call for every block of an explosion.</p>
+     *
+     * @param material The material of the block.
+     * @return If the material is a container.
+     */
+    static boolean isContainer(Material material) {
+        return CONTAINERS.contains(material);
+    }
+
+    /**
+     * Check if a chest is the left side of a double chest, where the right side is also in the clipboard.
+     *
+     * @param clipboard The clipboard.
+     * @param point     The position of the chest.
+     * @param state     The state of the chest.
+     * @return If the chest should be skipped.
+     */
+    private static boolean isSecondChestSide(Clipboard clipboard, BlockVector3 point, BlockState state) {
+        BlockData blockData = BukkitAdapter.adapt(state);
+        if (!(blockData instanceof Chest chest) || chest.getType() != Chest.Type.LEFT) return false;
+
+        BlockFace face = switch (chest.getFacing()) {
+            case NORTH -> BlockFace.EAST;
+            case EAST -> BlockFace.SOUTH;
+            case SOUTH -> BlockFace.WEST;
+            default -> BlockFace.NORTH;
+        };
+        BlockVector3 other = point.add(face.getModX(), 0, face.getModZ());
+        return clipboard.getRegion().contains(other) && clipboard.getBlock(other).getBlockType() == state.getBlockType();
+    }
+
+    /**
+     * Get the locations of the containers of a paste.
+     *
+     * @param pasteLocation The location the clipboard was pasted at.
+     * @param transform     The transform the clipboard was pasted with.
+     * @return The locations of the containers.
+     */
+    List<Location> getContainers(Location pasteLocation, Transform transform) {
+        return toLocations(containers, pasteLocation, transform);
+    }
+
+    /**
+     * Get the locations of the signs of a paste.
+     *
+     * @param pasteLocation The location the clipboard was pasted at.
+     * @param transform     The transform the clipboard was pasted with.
+     * @return The locations of the signs.
+     */
+    List<Location> getSigns(Location pasteLocation, Transform transform) {
+        return toLocations(signs, pasteLocation, transform);
+    }
+
+    /**
+     * Check if the schematic has any signs.
+     *
+     * @return If the schematic has signs.
+     */
+    boolean hasSigns() {
+        return !signs.isEmpty();
+    }
+
+    /**
+     * Get the estimated memory used by the manifest.
+     *
+     * @return The estimated size in bytes.
+     */
+    long getEstimatedSize() {
+        return (long) (containers.size() + signs.size()) * BYTES_PER_OFFSET;
+    }
+
+    private static List<Location> toLocations(List<BlockVector3> offsets, Location pasteLocation, Transform transform) {
+        List<Location> locations = new ArrayList<>(offsets.size());
+        for (BlockVector3 offset : offsets) {
+            Vector3 rotated = transform.apply(offset.toVector3());
+            locations.add(new Location(pasteLocation.getWorld(),
+                    pasteLocation.getBlockX() + Math.round(rotated.getX()),
+                    pasteLocation.getBlockY() + Math.round(rotated.getY()),
+                    pasteLocation.getBlockZ() + Math.round(rotated.getZ())));
+        }
+        return locations;
+    }
+}
@@ -0,0 +1,43 @@
+package com.ryandw11.structure.schematic;
+
+import com.ryandw11.structure.api.StructureSpawnEvent;
+import com.ryandw11.structure.api.holder.StructureSpawnHolder;
+import com.ryandw11.structure.structure.Structure;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.block.Container;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A structure that was pasted into a chunk while the chunk was generated.
+ *
+ * <p>The blocks of the chunks cannot be accessed through the world until the chunks are loaded, so the loot of the
+ * containers is added and the {@link StructureSpawnEvent} is called once they load.</p>
+ *
+ * @param structure The structure that was pasted.
+ * @param location  The location the structure was pasted at.
+ * @param rotation  The rotation of the structure (in degrees).
+ * @param holder    The bounds and the container locations of the structure.
+ */
+public record RegionPaste(Structure structure, Location location, double rotation, StructureSpawnHolder holder) {
+
+    /**
+     * Add the loot of a container of the structure.
+     * <p>This method is to be called on the main Server thread, once the chunk of the container is loaded.</p>
+     *
+     * @param container The location of the container.
+     */
+    public void replaceContainer(@NotNull Location container) {
+        if (container.getBlock().getState() instanceof Container) {
+            LootTableReplacer.replaceContainerContent(structure, container);
+        }
+    }
+
+    /**
+     * Call the {@link StructureSpawnEvent} for the structure.
+     * <p>This method is to be called on the main Server thread, once the chunk of the structure is loaded.</p>
+     */
+    public void callSpawnEvent() {
+        Bukkit.getServer().getPluginManager().callEvent(new StructureSpawnEvent(structure, location, rotation, holder));
+    }
+}
@@ -0,0 +1,250 @@
+package com.ryandw11.structure.schematic;
+
+import com.ryandw11.structure.CustomStructures;
+import com.ryandw11.structure.io.CompiledSchematic;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormat;
+import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormats;
+import com.sk89q.worldedit.extent.clipboard.io.ClipboardReader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+/**
+ * Caches the clipboards of schematics (and compiled schematics) so the files do not need to be read for every spawn.
+ *
+ * <p>Clipboards are cached by the path of the schematic and are read again if the file is modified. The least
+ * recently used clipboards are removed once the estimated memory usage is above
+ * <code>SchematicCache.MaxMemory</code> (in megabytes). Setting it to 0 disables the cache.</p>
+ *
+ * <p>Cached clipboards are shared, so they must not be modified. This class is thread safe.</p>
+ */
+public class SchematicCache {
+
+    // The estimated number of bytes used per block of a clipboard.
+    private static final int BYTES_PER_BLOCK = 8;
+
+    private final CustomStructures plugin;
+    private final long maxMemory;
+    // An access ordered map, the first entry is the least recently used.
+    private final LinkedHashMap<String, CachedValue> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryUsage;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Construct the schematic cache.
+     *
+     * <p>For internal use only. Access through {@link CustomStructures#getSchematicCache()}.</p>
+     *
+     * @param plugin The instance of the plugin.
+     */
+    public SchematicCache(CustomStructures plugin) {
+        this.plugin = plugin;
+        this.maxMemory = Math.max(0, plugin.getConfig().getLong("SchematicCache.MaxMemory", 256)) * 1024 * 1024;
+    }
+
+    /**
+     * Get the clipboard of a schematic file.
+     *
+     * <p>The clipboard is read from the file if it is not cached or the file was modified.</p>
+     *
+     * @param schematicFile The schematic file.
+     * @return The clipboard. (Null if the format of the file is not a valid schematic format).
+     * @throws IOException If an error occurs while reading the file.
+     */
+    @Nullable
+    public Clipboard getClipboard(@NotNull File schematicFile) throws IOException {
+        return get(schematicFile, schematicFile.getAbsolutePath(), Clipboard.class, file -> {
+            ClipboardFormat format = ClipboardFormats.findByFile(file);
+            if (format == null)
+                return null;
+
+            try (ClipboardReader reader = format.getReader(new FileInputStream(file))) {
+                return reader.read();
+            }
+        }, clipboard -> (long) clipboard.getRegion().getArea() * BYTES_PER_BLOCK);
+    }
+
+    /**
+     * Get a compiled schematic (.cschem) file.
+     *
+     * <p>The compiled schematic is read from the file if it is not cached or the file was modified.</p>
+     *
+     * @param compiledSchematicFile The compiled schematic file.
+     * @return The compiled schematic.
+     * @throws IOException If an error occurs while reading the file.
+     */
+    @NotNull
+    public CompiledSchematic getCompiledSchematic(@NotNull File compiledSchematicFile) throws IOException {
+        return Objects.requireNonNull(get(compiledSchematicFile, compiledSchematicFile.getAbsolutePath(),
+                CompiledSchematic.class, CompiledSchematic::read, CompiledSchematic::getEstimatedSize));
+    }
+
+    /**
+     * Get the paste manifest of a schematic file.
+     *
+     * <p>The manifest is created from the clipboard if it is not cached or the file was modified.</p>
+     *
+     * @param schematicFile The schematic file.
+     * @param clipboard     The clipboard of the schematic file.
+     * @return The paste manifest.
+     * @throws IOException If an error occurs while reading the file.
+     */
+    @NotNull
+    PasteManifest getPasteManifest(@NotNull File schematicFile, @NotNull Clipboard clipboard) throws IOException {
+        return Objects.requireNonNull(get(schematicFile, schematicFile.getAbsolutePath() + "#manifest",
+                PasteManifest.class, file -> PasteManifest.create(clipboard), PasteManifest::getEstimatedSize));
+    }
+
+    /**
+     * Get a value from the cache or load it from the file.
+     *
+     * @param file   The file to get.
+     * @param key    The key of the value in the cache.
+     * @param type   The type of the value.
+     * @param loader Loads the value from the file.
+     * @param sizer  Estimates the memory used by the value.
+     * @param <T>    The type of the value.
+     * @return The value. (Null if the loader returned null).
+     * @throws IOException If an error occurs while reading the file.
+     */
+    private <T> T get(File file, String key, Class<T> type, FileLoader<T> loader, ToLongFunction<T> sizer) throws IOException {
+        long lastModified = file.lastModified();
+
+        synchronized (this) {
+            CachedValue cached = cache.get(key);
+            if (cached != null && cached.lastModified() == lastModified && type.isInstance(cached.value())) {
+                hits++;
+                return type.cast(cached.value());
+            }
+            misses++;
+        }
+
+        T value = loader.load(file);
+        if (value == null)
+            return null;
+
+        long size = sizer.applyAsLong(value);
+        synchronized (this) {
+            CachedValue previous = cache.remove(key);
+            if (previous != null)
+                memoryUsage -= previous.size();
+
+            // Values larger than the cache are not stored.
+            if (size <= maxMemory) {
+                cache.put(key, new CachedValue(value, lastModified, size));
+                memoryUsage += size;
+                evict();
+            }
+        }
+
+        if (plugin.isDebug()) {
+            plugin.getLogger().info(String.format("Loaded the schematic %s into the cache (~%d KB).", file.getName(), size / 1024));
+        }
+        return value;
+    }
+
+    /**
+     * Remove the least recently used clipboards until the memory usage is below the limit.
+     */
+    private void evict() {
+        Iterator<CachedValue> iterator = cache.values().iterator();
+        while (memoryUsage > maxMemory && iterator.hasNext()) {
+            memoryUsage -= iterator.next().size();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Remove all clipboards from the cache.
+     */
+    public synchronized void clear() {
+        cache.clear();
+        memoryUsage = 0;
+    }
+
+    /**
+     * Get the number of clipboards in the cache.
+     *
+     * @return The number of clipboards in the cache.
+     */
+    public synchronized int getSize() {
+        return cache.size();
+    }
+
+    /**
+     * Get the estimated memory used by the cache.
+     *
+     * @return The estimated memory usage in bytes.
+     */
+    public synchronized long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    /**
+     * Get the maximum memory the cache can use.
+     *
+     * @return The maximum memory in bytes.
+     */
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * Get the number of times a clipboard was found in the cache.
+     *
+     * @return The number of cache hits.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of times a clipboard had to be read from a file.
+     *
+     * @return The number of cache misses.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of clipboards that were removed to stay below the memory limit.
+     *
+     * @return The number of evictions.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Loads a value from a file.
+     *
+     * @param <T> The type of the value.
+     */
+    @FunctionalInterface
+    private interface FileLoader<T> {
+        T load(File file) throws IOException;
+    }
+
+    /**
+     * A clipboard (or compiled schematic) stored in the cache.
+     *
+     * @param value        The clipboard or compiled schematic.
+     * @param lastModified The time the file was last modified.
+     * @param size         The estimated size of the value in bytes.
+     */
+    private record CachedValue(Object value, long lastModified, long size) {
+    }
+}
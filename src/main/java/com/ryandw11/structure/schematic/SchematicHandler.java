@@ -4,7 +4,8 @@ import com.ryandw11.structure.CustomStructures;
 import com.ryandw11.structure.api.StructureSpawnEvent;
 import com.ryandw11.structure.api.holder.StructureSpawnHolder;
 import com.ryandw11.structure.bottomfill.BottomFillProvider;
-import com.ryandw11.structure.io.BlockTag;
+import com.ryandw11.structure.bottomfill.DefaultBottomFill;
+import com.ryandw11.structure.io.CompiledSchematic;
 import com.ryandw11.structure.structure.Structure;
 import com.ryandw11.structure.structure.properties.MaskProperty;
 import com.sk89q.worldedit.EditSession;
@@ -13,6 +14,7 @@ import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.bukkit.BukkitAdapter;
 import com.sk89q.worldedit.bukkit.WorldEditPlugin;
+import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
 import com.sk89q.worldedit.extent.clipboard.Clipboard;
 import com.sk89q.worldedit.extent.clipboard.io.*;
@@ -22,25 +24,30 @@ import com.sk89q.worldedit.function.mask.MaskUnion;
 import com.sk89q.worldedit.function.operation.ForwardExtentCopy;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector3;
 import com.sk89q.worldedit.math.transform.AffineTransform;
+import com.sk89q.worldedit.math.transform.Transform;
 import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.session.ClipboardHolder;
-import me.ryandw11.ods.ObjectDataStructure;
-import me.ryandw11.ods.tags.IntTag;
-import me.ryandw11.ods.tags.ListTag;
-import me.ryandw11.ods.tags.ObjectTag;
 import org.bukkit.*;
 import org.bukkit.block.*;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.entity.Player;
+import org.bukkit.generator.LimitedRegion;
+import org.bukkit.generator.WorldInfo;
 import org.bukkit.inventory.InventoryHolder;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BooleanSupplier;
 
 /**
  * Handles schematic operations.
@@ -64,13 +71,237 @@ public class SchematicHandler {
      */
     public static void placeSchematic(Location loc, String filename, boolean useAir, Structure structure, int iteration)
             throws IOException, WorldEditException {
+        File schematicFile = getSchematicFile(filename, structure, iteration);
+        if (schematicFile == null) return;
+
+        PreparedSchematic preparedSchematic = prepareSchematic(schematicFile, filename, structure, iteration,
+                getRotation(structure, iteration), isRotated(structure, iteration));
+        if (preparedSchematic == null) return;
+
+        pasteSchematic(loc, filename, useAir, structure, iteration, preparedSchematic).exceptionally(ex -> {
+            // Only incremental pastes can fail after this method returns.
+            CustomStructures.getInstance().getLogger().warning("An error has occurred when attempting to paste the structure " + structure.getName() + ".");
+            if (CustomStructures.getInstance().isDebug()) {
+                ex.printStackTrace();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Handles the schematic.
+     * <p>This method is to be called on the main Server thread.</p>
+     *
+     * @param loc       - The location
+     * @param filename  - The file name. Ex: demo.schematic
+     * @param useAir    - if air is to be used in the schematic
+     * @param structure - The structure that is getting spawned.
+     * @throws WorldEditException If world edit has a problem pasting the schematic.
+     * @throws IOException        If an error occurs during file reading.
+     */
+    public static void placeSchematic(Location loc, String filename, boolean useAir, Structure structure)
+            throws IOException, WorldEditException {
+        placeSchematic(loc, filename, useAir, structure, 0);
+    }
+
+    /**
+     * Handles the actual pasting of the structure without reading the schematic on the main Server thread.
+     * <p>The schematic is read and transformed on a separate thread. Only the paste is done on the main Server thread.</p>
+     * <p>This method is to be called on the main Server thread.</p>
+     *
+     * @param loc       - The location
+     * @param filename  - The file name. Ex: demo.schematic
+     * @param useAir    - if air is to be used in the schematic
+     * @param structure - The structure that is getting spawned.
+     * @param iteration - The number of iterations in a structure.
+     * @return A future that is completed once the schematic is pasted. The future is completed exceptionally
+     * if the schematic could not be read ({@link IOException}) or pasted ({@link WorldEditException}).
+     */
+    public static CompletableFuture<Void> placeSchematicAsync(Location loc, String filename, boolean useAir, Structure structure, int iteration) {
+        File schematicFile;
+        try {
+            schematicFile = getSchematicFile(filename, structure, iteration);
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        if (schematicFile == null) return CompletableFuture.completedFuture(null);
+
+        // The rotation is read now since the sub-schematic rotation of the structure can change before the schematic is read.
+        double rotY = getRotation(structure, iteration);
+        boolean rotated = isRotated(structure, iteration);
+
+        CustomStructures plugin = CustomStructures.getInstance();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return prepareSchematic(schematicFile, filename, structure, iteration, rotY, rotated);
+            } catch (IOException ex) {
+                throw new CompletionException(ex);
+            }
+        }, task -> Bukkit.getScheduler().runTaskAsynchronously(plugin, task)).thenComposeAsync(preparedSchematic -> {
+            if (preparedSchematic == null) return CompletableFuture.completedFuture(null);
+            try {
+                return pasteSchematic(loc, filename, useAir, structure, iteration, preparedSchematic);
+            } catch (WorldEditException ex) {
+                throw new CompletionException(ex);
+            }
+        }, task -> Bukkit.getScheduler().runTask(plugin, task));
+    }
+
+    /**
+     * Handles the schematic without reading the schematic on the main Server thread.
+     * <p>This method is to be called on the main Server thread.</p>
+     *
+     * @param loc       - The location
+     * @param filename  - The file name. Ex: demo.schematic
+     * @param useAir    - if air is to be used in the schematic
+     * @param structure - The structure that is getting spawned.
+     * @return A future that is completed once the schematic is pasted.
+     * @see #placeSchematicAsync(Location, String, boolean, Structure, int)
+     */
+    public static CompletableFuture<Void> placeSchematicAsync(Location loc, String filename, boolean useAir, Structure structure) {
+        return placeSchematicAsync(loc, filename, useAir, structure, 0);
+    }
+
+    /**
+     * Check if a structure can be pasted into a chunk while the chunk is being generated, before any of its spawn
+     * conditions are tested.
+     * <p>The schematic must be valid, must not have signs and must fit horizontally in the region (at the center of the
+     * chunk) in every rotation it can spawn with. Only the height of the structure is left to
+     * {@link #placeSchematicInRegion(WorldInfo, LimitedRegion, int, int, Location, Structure, BooleanSupplier)}.</p>
+     * <p>This method is safe to call off the main Server thread.</p>
+     *
+     * @param worldInfo The information of the world that is being generated.
+     * @param region    The region of the chunk that is being generated.
+     * @param chunkX    The x coordinate of the chunk.
+     * @param chunkZ    The z coordinate of the chunk.
+     * @param structure The structure to paste.
+     * @return If the structure can be pasted into the region.
+     * @throws IOException If an error occurs during file reading.
+     */
+    public static boolean canPlaceInRegion(WorldInfo worldInfo, LimitedRegion region, int chunkX, int chunkZ,
+                                           Structure structure) throws IOException {
+        CustomStructures plugin = CustomStructures.getInstance();
+        String filename = structure.getSchematic();
+        File schematicFile = new File(plugin.getDataFolder() + "/schematics/" + filename);
+        if (!schematicFile.exists()) return false;
+
+        PreparedSchematic preparedSchematic = prepareSchematic(schematicFile, filename, structure, 0, 0, false);
+        // The text of the signs is not available until the chunk is loaded.
+        if (preparedSchematic == null || preparedSchematic.manifest().hasSigns()) return false;
+
+        LimitedRegionExtent extent = new LimitedRegionExtent(worldInfo, region, chunkX, chunkZ);
+        BlockVector3 to = BlockVector3.at((chunkX << 4) + 8, worldInfo.getMinHeight(), (chunkZ << 4) + 8);
+        // Random rotations are multiples of 90 degrees. (The base rotation is not applied to the clipboard).
+        int rotations = isRotated(structure, 0) ? 4 : 1;
+        for (int i = 0; i < rotations; i++) {
+            if (!fitsInRegion(extent, preparedSchematic.clipboard(), new AffineTransform().rotateY(i * 90), to, false))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Paste a structure into a chunk while the chunk is being generated.
+     * <p>The blocks are written through the {@link LimitedRegion} of a {@link org.bukkit.generator.BlockPopulator},
+     * so the chunk does not need to be relit or sent to players again. Block entity data from the schematic is not
+     * copied. The chunks cannot be accessed through the world yet, so the loot of the containers and the spawn event
+     * are left to the caller (see {@link RegionPaste}) until the chunks are loaded.</p>
+     * <p>Structures that do not fit in the region, or that have signs, are not pasted. Use
+     * {@link #canPlaceInRegion(WorldInfo, LimitedRegion, int, int, Structure)} to check that before the spawn
+     * conditions are tested.</p>
+     * <p>This method is to be called from {@link org.bukkit.generator.BlockPopulator#populate(WorldInfo, Random, int, int, LimitedRegion)}.</p>
+     *
+     * @param worldInfo The information of the world that is being generated.
+     * @param region    The region of the chunk that is being generated.
+     * @param chunkX    The x coordinate of the chunk.
+     * @param chunkZ    The z coordinate of the chunk.
+     * @param loc       The location to paste the structure at.
+     * @param structure The structure to paste.
+     * @param reserve   Called once the structure is known to fit, right before it is pasted. The structure is not
+     *                  pasted if this returns false.
+     * @return The pasted structure. (Null if the structure was not pasted).
+     * @throws WorldEditException If world edit has a problem pasting the schematic.
+     * @throws IOException        If an error occurs during file reading.
+     */
+    @Nullable
+    public static RegionPaste placeSchematicInRegion(WorldInfo worldInfo, LimitedRegion region, int chunkX, int chunkZ,
+                                                     Location loc, Structure structure, BooleanSupplier reserve)
+            throws IOException, WorldEditException {
+        CustomStructures plugin = CustomStructures.getInstance();
+        String filename = structure.getSchematic();
+        File schematicFile = new File(plugin.getDataFolder() + "/schematics/" + filename);
+        if (!schematicFile.exists()) return null;
+
+        PreparedSchematic preparedSchematic = prepareSchematic(schematicFile, filename, structure, 0,
+                getRotation(structure, 0), isRotated(structure, 0));
+        // The text of the signs is not available until the chunk is loaded.
+        if (preparedSchematic == null || preparedSchematic.manifest().hasSigns()) return null;
+
+        Clipboard clipboard = preparedSchematic.clipboard();
+        ClipboardHolder ch = preparedSchematic.holder();
+        LimitedRegionExtent extent = new LimitedRegionExtent(worldInfo, region, chunkX, chunkZ);
+        BlockVector3 to = BlockVector3.at(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
+
+        if (!fitsInRegion(extent, clipboard, ch.getTransform(), to, true) || !reserve.getAsBoolean())
+            return null;
+
+        Extent target = BlockReplacementExtent.wrap(extent, structure.getStructureLimitations().getBlockReplacement());
+        Operation operation = ch.createPaste(target)
+                .to(to).ignoreAirBlocks(!structure.getStructureProperties().canPlaceAir()).build();
+        Operations.complete(operation);
+
+        if (plugin.isDebug()) {
+            plugin.getLogger().info(String.format("(%s) Created an instance of %s at %s, %s, %s with rotation %s during world generation", worldInfo.getName(), filename, loc.getBlockX(), loc.getBlockY(), loc.getBlockZ(), preparedSchematic.rotY()));
+        }
 
+        return new RegionPaste(structure, loc, preparedSchematic.rotY(), new StructureSpawnHolder(
+                SchematicLocationUtils.getMinimumLocation(clipboard, loc, 0),
+                SchematicLocationUtils.getMaximumLocation(clipboard, loc, 0),
+                getContainersAndSignsLocations(loc, preparedSchematic)));
+    }
+
+    /**
+     * Check if every corner of a (transformed) schematic is in a region.
+     *
+     * @param extent    The region.
+     * @param clipboard The schematic.
+     * @param transform The transform of the schematic.
+     * @param to        The location the schematic is pasted at.
+     * @param checkY    If the height of the corners is checked. (If false, only the x and z coordinates are checked).
+     * @return If the schematic fits in the region.
+     */
+    private static boolean fitsInRegion(LimitedRegionExtent extent, Clipboard clipboard, Transform transform,
+                                        BlockVector3 to, boolean checkY) {
+        BlockVector3 min = clipboard.getRegion().getMinimumPoint().subtract(clipboard.getOrigin());
+        BlockVector3 max = clipboard.getRegion().getMaximumPoint().subtract(clipboard.getOrigin());
+        for (int i = 0; i < 8; i++) {
+            Vector3 corner = transform.apply(Vector3.at(
+                    (i & 1) == 0 ? min.getX() : max.getX(),
+                    (i & 2) == 0 ? min.getY() : max.getY(),
+                    (i & 4) == 0 ? min.getZ() : max.getZ()));
+            if (!extent.contains(to.add((int) Math.round(corner.getX()), checkY ? (int) Math.round(corner.getY()) : 0,
+                    (int) Math.round(corner.getZ()))))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get the schematic file to paste.
+     * <p>This method is to be called on the main Server thread.</p>
+     *
+     * @param filename  The file name of the schematic.
+     * @param structure The structure that is getting spawned.
+     * @param iteration The number of iterations in a structure.
+     * @return The schematic file. (Null if the structure should not be pasted).
+     */
+    private static File getSchematicFile(String filename, Structure structure, int iteration) {
         CustomStructures plugin = CustomStructures.getInstance();
 
         if (iteration > structure.getStructureLimitations().getIterationLimit()) {
             plugin.getLogger().severe("Critical Error: StackOverflow detected. Automatically terminating the spawning of the structure.");
             plugin.getLogger().severe("The structure '" + structure.getName() + "' has spawned too many sub structure via recursion.");
-            return;
+            return null;
         }
 
         File schematicFile = new File(plugin.getDataFolder() + "/schematics/" + filename);
@@ -86,71 +317,184 @@ public class SchematicHandler {
                     "If you need help look at the wiki: https://github.com/ryandw11/CustomStructures/wiki or contact Ryandw11 on spigot!");
             plugin.getLogger().warning("The plugin will now disable to prevent damage to the server.");
             Bukkit.getPluginManager().disablePlugin(plugin);
-            return;
+            return null;
         } else if (!schematicFile.exists()) {
             plugin.getLogger().warning("Error: The schematic " + filename + " does not exist!");
             throw new RuntimeException("Cannot find schematic file!");
         }
 
-        ClipboardFormat format = ClipboardFormats.findByFile(schematicFile);
-        Clipboard clipboard;
+        return schematicFile;
+    }
 
-        if (format == null) {
-            plugin.getLogger().warning("Invalid schematic format for schematic " + filename + "!");
-            plugin.getLogger().warning("Please create a valid schematic using the in-game commands!");
-            return;
+    /**
+     * Get the rotation (in degrees) of the schematic.
+     *
+     * @param structure The structure that is getting spawned.
+     * @param iteration The number of iterations in a structure.
+     * @return The rotation of the schematic in degrees.
+     */
+    private static double getRotation(Structure structure, int iteration) {
+        // If random rotation is enabled, rotate the clipboard
+        if (structure.getStructureProperties().isRandomRotation() && iteration == 0) {
+            return new Random().nextInt(4) * 90;
+        } else if (iteration != 0) {
+            return Math.toDegrees(structure.getSubSchemRotation());
         }
+        // Define rotation y with the default base rotation.
+        return Math.toDegrees(structure.getBaseRotation());
+    }
+
+    /**
+     * Check if the rotation is applied to the clipboard.
+     * <p>The base rotation is not applied to the clipboard itself.</p>
+     *
+     * @param structure The structure that is getting spawned.
+     * @param iteration The number of iterations in a structure.
+     * @return If the rotation is applied to the clipboard.
+     */
+    private static boolean isRotated(Structure structure, int iteration) {
+        return iteration != 0 || structure.getStructureProperties().isRandomRotation();
+    }
+
+    /**
+     * Read and transform the schematic.
+     * <p>This method is safe to call off the main Server thread.</p>
+     *
+     * @param schematicFile The schematic file.
+     * @param filename      The file name of the schematic.
+     * @param structure     The structure that is getting spawned.
+     * @param iteration     The number of iterations in a structure.
+     * @param rotY          The rotation of the schematic (in degrees).
+     * @param rotated       If the rotation should be applied to the clipboard.
+     * @return The schematic ready to be pasted. (Null if the schematic format is invalid).
+     * @throws IOException If an error occurs during file reading.
+     */
+    private static PreparedSchematic prepareSchematic(File schematicFile, String filename, Structure structure, int iteration,
+                                                      double rotY, boolean rotated) throws IOException {
+        CustomStructures plugin = CustomStructures.getInstance();
+
+        Clipboard clipboard = plugin.getSchematicCache().getClipboard(schematicFile);
 
-        try (ClipboardReader reader = format.getReader(new FileInputStream(schematicFile))) {
-            clipboard = reader.read();
+        if (clipboard == null) {
+            plugin.getLogger().warning("Invalid schematic format for schematic " + filename + "!");
+            plugin.getLogger().warning("Please create a valid schematic using the in-game commands!");
+            return null;
         }
 
         ClipboardHolder ch = new ClipboardHolder(clipboard);
         AffineTransform transform = new AffineTransform();
 
-        // Define rotation y with the default base rotation.
-        double rotY = Math.toDegrees(structure.getBaseRotation());
-
-        // If random rotation is enabled, rotate the clipboard
-        if (structure.getStructureProperties().isRandomRotation() && iteration == 0) {
-            rotY = new Random().nextInt(4) * 90;
-            transform = transform.rotateY(rotY);
-            ch.setTransform(ch.getTransform().combine(transform));
-        } else if (iteration != 0) {
-            rotY = Math.toDegrees(structure.getSubSchemRotation());
+        if (rotated) {
             transform = transform.rotateY(rotY);
             ch.setTransform(ch.getTransform().combine(transform));
         }
 
+        // The compiled schematic only belongs to the main schematic of the structure.
+        CompiledSchematic compiledSchematic = null;
+        if (structure.isCompiled() && iteration == 0) {
+            compiledSchematic = plugin.getSchematicCache().getCompiledSchematic(
+                    new File(plugin.getDataFolder() + "/schematics/" + structure.getCompiledSchematic()));
+        }
+
+        PasteManifest manifest = plugin.getSchematicCache().getPasteManifest(schematicFile, clipboard);
+
+        return new PreparedSchematic(clipboard, ch, transform, rotY, compiledSchematic, manifest);
+    }
+
+    /**
+     * Paste a schematic that was read and schedule the signs & containers replacement task.
+     * <p>This method is to be called on the main Server thread.</p>
+     *
+     * @param loc               The location.
+     * @param filename          The file name of the schematic.
+     * @param useAir            If air is to be used in the schematic.
+     * @param structure         The structure that is getting spawned.
+     * @param iteration         The number of iterations in a structure.
+     * @param preparedSchematic The schematic to paste.
+     * @return A future that is completed once the schematic is pasted. (Only incremental pastes take more than a tick).
+     * @throws WorldEditException If world edit has a problem pasting the schematic.
+     */
+    private static CompletableFuture<Void> pasteSchematic(Location loc, String filename, boolean useAir, Structure structure, int iteration,
+                                                          PreparedSchematic preparedSchematic) throws WorldEditException {
+        Clipboard clipboard = preparedSchematic.clipboard();
+        ClipboardHolder ch = preparedSchematic.holder();
+
+        // Large structures can be pasted over multiple ticks, the rest of the process is done after the last section.
+        if (structure.getStructureProperties().isIncrementalPaste()) {
+            return new IncrementalPaste(clipboard, ch.getTransform(), loc, useAir, structure,
+                    structure.getStructureProperties().getPasteBlocksPerTick())
+                    .start(CustomStructures.getInstance())
+                    .thenRun(() -> finishPaste(loc, filename, structure, iteration, preparedSchematic));
+        }
+
         // Paste the schematic
         try (EditSession editSession = WorldEdit.getInstance().getEditSessionFactory()
                 .getEditSession(BukkitAdapter.adapt(Objects.requireNonNull(loc.getWorld())), -1)) {
-             /*
-                Handle the masks of the structure.
-             */
-            Mask sourceMask = null;
-            if (structure.getSourceMaskProperties().getUnionType() == MaskProperty.MaskUnion.AND) {
-                sourceMask = new MaskIntersection(structure.getSourceMaskProperties().getMasks(clipboard));
-            } else if (structure.getSourceMaskProperties().getUnionType() == MaskProperty.MaskUnion.OR) {
-                sourceMask = new MaskUnion(structure.getSourceMaskProperties().getMasks(clipboard));
-            }
+            editSession.setMask(createTargetMask(structure, editSession));
 
-            Mask targetMask = null;
-            if (structure.getTargetMaskProperties().getUnionType() == MaskProperty.MaskUnion.AND) {
-                targetMask = new MaskIntersection(structure.getTargetMaskProperties().getMasks(editSession));
-            } else if (structure.getSourceMaskProperties().getUnionType() == MaskProperty.MaskUnion.OR) {
-                targetMask = new MaskUnion(structure.getTargetMaskProperties().getMasks(editSession));
-            }
-            editSession.setMask(targetMask);
-
-            Operation operation = ch.createPaste(editSession)
-                    .to(BlockVector3.at(loc.getX(), loc.getY(), loc.getZ())).maskSource(sourceMask).ignoreAirBlocks(!useAir).build();
+            Extent target = BlockReplacementExtent.wrap(editSession, structure.getStructureLimitations().getBlockReplacement());
+            Operation operation = ch.createPaste(target)
+                    .to(BlockVector3.at(loc.getX(), loc.getY(), loc.getZ())).maskSource(createSourceMask(structure, clipboard)).ignoreAirBlocks(!useAir).build();
 
             Operations.complete(operation);
+        }
 
-            if (plugin.getConfig().getBoolean("debug")) {
-                plugin.getLogger().info(String.format("(%s) Created an instance of %s at %s, %s, %s with rotation %s", loc.getWorld().getName(), filename, loc.getBlockX(), loc.getBlockY(), loc.getBlockZ(), rotY));
-            }
+        finishPaste(loc, filename, structure, iteration, preparedSchematic);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Create the source mask of a structure.
+     *
+     * @param structure The structure.
+     * @param clipboard The clipboard of the schematic.
+     * @return The source mask. (Null if the structure does not have one).
+     */
+    static Mask createSourceMask(Structure structure, Clipboard clipboard) {
+        Mask sourceMask = null;
+        if (structure.getSourceMaskProperties().getUnionType() == MaskProperty.MaskUnion.AND) {
+            sourceMask = new MaskIntersection(structure.getSourceMaskProperties().getMasks(clipboard));
+        } else if (structure.getSourceMaskProperties().getUnionType() == MaskProperty.MaskUnion.OR) {
+            sourceMask = new MaskUnion(structure.getSourceMaskProperties().getMasks(clipboard));
+        }
+        return sourceMask;
+    }
+
+    /**
+     * Create the target mask of a structure.
+     *
+     * @param structure   The structure.
+     * @param editSession The edit session the schematic is pasted with.
+     * @return The target mask. (Null if the structure does not have one).
+     */
+    static Mask createTargetMask(Structure structure, EditSession editSession) {
+        Mask targetMask = null;
+        if (structure.getTargetMaskProperties().getUnionType() == MaskProperty.MaskUnion.AND) {
+            targetMask = new MaskIntersection(structure.getTargetMaskProperties().getMasks(editSession));
+        } else if (structure.getSourceMaskProperties().getUnionType() == MaskProperty.MaskUnion.OR) {
+            targetMask = new MaskUnion(structure.getTargetMaskProperties().getMasks(editSession));
+        }
+        return targetMask;
+    }
+
+    /**
+     * Perform the bottom fill and schedule the signs & containers replacement task once the schematic is pasted.
+     * <p>This method is to be called on the main Server thread.</p>
+     *
+     * @param loc               The location.
+     * @param filename          The file name of the schematic.
+     * @param structure         The structure that is getting spawned.
+     * @param iteration         The number of iterations in a structure.
+     * @param preparedSchematic The schematic that was pasted.
+     */
+    private static void finishPaste(Location loc, String filename, Structure structure, int iteration, PreparedSchematic preparedSchematic) {
+        CustomStructures plugin = CustomStructures.getInstance();
+        Clipboard clipboard = preparedSchematic.clipboard();
+        AffineTransform transform = preparedSchematic.transform();
+        double rotY = preparedSchematic.rotY();
+
+        if (plugin.getConfig().getBoolean("debug")) {
+            plugin.getLogger().info(String.format("(%s) Created an instance of %s at %s, %s, %s with rotation %s", Objects.requireNonNull(loc.getWorld()).getName(), filename, loc.getBlockX(), loc.getBlockY(), loc.getBlockZ(), rotY));
         }
 
         // If enabled, perform a bottom space fill.
@@ -170,32 +514,7 @@ public class SchematicHandler {
         double finalRotY = rotY;
         // Run a task later. This is done so async plugins have time to paste as needed.
         Bukkit.getScheduler().runTaskLater(plugin, () -> {
-            List<Location> containersAndSignsLocations = new ArrayList<>();
-            // If the structure is compiled, then grab the data from the cschem file.
-            if (structure.isCompiled()) {
-                ObjectDataStructure ods = new ObjectDataStructure(new File(plugin.getDataFolder() + "/schematics/" + structure.getCompiledSchematic()));
-                ListTag<ObjectTag> containers = ods.get("containers");
-                ListTag<ObjectTag> signs = ods.get("signs");
-                // Get both the max and minimum points.
-                Location minimumPoint = SchematicLocationUtils.getMinimumLocation(clipboard, loc, 0);
-                Location maximumPoint = SchematicLocationUtils.getMaximumLocation(clipboard, loc, 0);
-
-                // Find the minimum of all three axises.
-                int minX = Math.min(minimumPoint.getBlockX(), maximumPoint.getBlockX());
-                int minY = Math.min(minimumPoint.getBlockY(), maximumPoint.getBlockY());
-                int minZ = Math.min(minimumPoint.getBlockZ(), maximumPoint.getBlockZ());
-
-                for (ObjectTag con : containers.getValue()) {
-                    // Rotate con around the point and add the rotated min values.
-                    containersAndSignsLocations.add(SchematicLocationUtils.rotateAround(new BlockTag(con).getLocation(loc.getWorld()).add(minX, minY, minZ), loc, finalRotY));
-                }
-                for (ObjectTag sign : signs.getValue()) {
-                    containersAndSignsLocations.add(SchematicLocationUtils.rotateAround(new BlockTag(sign).getLocation(loc.getWorld()).add(minX, minY, minZ), loc, finalRotY));
-                }
-            } else {
-                // else find the data from the paste.
-                containersAndSignsLocations = getContainersAndSignsLocations(ch.getClipboard(), loc, finalRotY, structure);
-            }
+            List<Location> containersAndSignsLocations = getContainersAndSignsLocations(loc, preparedSchematic);
 
             for (Location location : containersAndSignsLocations) {
                 if (location.getBlock().getState() instanceof Container) {
@@ -212,9 +531,6 @@ public class SchematicHandler {
                 }
             }
 
-            // Replace the blocks of the structure (if enabled).
-            replaceBlocks(clipboard, loc, finalRotY, structure);
-
             // Call the event for use by other plugins (only if it is the first iteration though.)
             if (iteration < 1) {
                 StructureSpawnHolder structureSpawnHolder = new StructureSpawnHolder(SchematicLocationUtils.getMinimumLocation(clipboard, loc, 0),
@@ -227,19 +543,41 @@ public class SchematicHandler {
     }
 
     /**
-     * Handles the schematic.
-     * <p>This method is to be called on the main Server thread.</p>
+     * Get the locations of the containers and signs of a pasted schematic.
      *
-     * @param loc       - The location
-     * @param filename  - The file name. Ex: demo.schematic
-     * @param useAir    - if air is to be used in the schematic
-     * @param structure - The structure that is getting spawned.
-     * @throws WorldEditException If world edit has a problem pasting the schematic.
-     * @throws IOException        If an error occurs during file reading.
+     * @param loc               The location the schematic was pasted at.
+     * @param preparedSchematic The schematic that was pasted.
+     * @return The locations of the containers and signs.
      */
-    public static void placeSchematic(Location loc, String filename, boolean useAir, Structure structure)
-            throws IOException, WorldEditException {
-        placeSchematic(loc, filename, useAir, structure, 0);
+    private static List<Location> getContainersAndSignsLocations(Location loc, PreparedSchematic preparedSchematic) {
+        Clipboard clipboard = preparedSchematic.clipboard();
+        double rotY = preparedSchematic.rotY();
+        List<Location> containersAndSignsLocations = new ArrayList<>();
+        // If the structure is compiled, then grab the data from the cschem file.
+        CompiledSchematic compiledSchematic = preparedSchematic.compiledSchematic();
+        if (compiledSchematic != null) {
+            // Get both the max and minimum points.
+            Location minimumPoint = SchematicLocationUtils.getMinimumLocation(clipboard, loc, 0);
+            Location maximumPoint = SchematicLocationUtils.getMaximumLocation(clipboard, loc, 0);
+
+            // Find the minimum of all three axises.
+            int minX = Math.min(minimumPoint.getBlockX(), maximumPoint.getBlockX());
+            int minY = Math.min(minimumPoint.getBlockY(), maximumPoint.getBlockY());
+            int minZ = Math.min(minimumPoint.getBlockZ(), maximumPoint.getBlockZ());
+
+            for (CompiledSchematic.BlockEntry con : compiledSchematic.getContainers()) {
+                // Rotate con around the point and add the rotated min values.
+                containersAndSignsLocations.add(SchematicLocationUtils.rotateAround(new Location(loc.getWorld(), con.x() + minX, con.y() + minY, con.z() + minZ), loc, rotY));
+            }
+            for (CompiledSchematic.BlockEntry sign : compiledSchematic.getSigns()) {
+                containersAndSignsLocations.add(SchematicLocationUtils.rotateAround(new Location(loc.getWorld(), sign.x() + minX, sign.y() + minY, sign.z() + minZ), loc, rotY));
+            }
+        } else {
+            // else get the data from the manifest of the schematic.
+            containersAndSignsLocations.addAll(preparedSchematic.manifest().getContainers(loc, preparedSchematic.transform()));
+            containersAndSignsLocations.addAll(preparedSchematic.manifest().getSigns(loc, preparedSchematic.transform()));
+        }
+        return containersAndSignsLocations;
     }
 
     /**
@@ -321,20 +659,43 @@ public class SchematicHandler {
     private static void compileSchem(Location loc, Region reg, String name) {
         CustomStructures plugin = CustomStructures.getInstance();
 
-        IntTag intTag = new IntTag("ver", CustomStructures.COMPILED_STRUCT_VER);
-        ListTag<BlockTag> containers = new ListTag<>("containers", new ArrayList<>());
-        ListTag<BlockTag> signs = new ListTag<>("signs", new ArrayList<>());
+        List<CompiledSchematic.BlockEntry> containers = new ArrayList<>();
+        List<CompiledSchematic.BlockEntry> signs = new ArrayList<>();
+        List<BlockVector2> groundPlane = new ArrayList<>();
 
         List<Location> locations = new ArrayList<>();
 
-        Location minLoc = new Location(loc.getWorld(), reg.getMinimumPoint().getX(), reg.getMinimumPoint().getY(), reg.getMinimumPoint().getZ());
+        BlockVector3 min = reg.getMinimumPoint();
+        BlockVector3 max = reg.getMaximumPoint();
+        int width = max.getX() - min.getX() + 1;
+        int height = max.getY() - min.getY() + 1;
+        int length = max.getZ() - min.getZ() + 1;
+
+        // The block palette, indexed by y, then z, then x.
+        Map<BlockData, Integer> paletteMap = new LinkedHashMap<>();
+        int[] paletteIndex = new int[width * height * length];
 
-        for (int x = reg.getMinimumPoint().getX(); x <= reg.getMaximumPoint().getX(); x++) {
-            for (int y = reg.getMinimumPoint().getY(); y <= reg.getMaximumPoint().getY(); y++) {
-                for (int z = reg.getMinimumPoint().getZ(); z <= reg.getMaximumPoint().getZ(); z++) {
+        for (int x = min.getX(); x <= max.getX(); x++) {
+            for (int y = min.getY(); y <= max.getY(); y++) {
+                for (int z = min.getZ(); z <= max.getZ(); z++) {
                     Location location = new Location(loc.getWorld(), x, y, z);
                     Block block = location.getBlock();
-                    BlockState blockState = location.getBlock().getState();
+                    BlockState blockState = block.getState();
+                    int offsetX = x - min.getX();
+                    int offsetY = y - min.getY();
+                    int offsetZ = z - min.getZ();
+
+                    Integer index = paletteMap.get(block.getBlockData());
+                    if (index == null) {
+                        index = paletteMap.size();
+                        paletteMap.put(block.getBlockData(), index);
+                    }
+                    paletteIndex[(offsetY * length + offsetZ) * width + offsetX] = index;
+
+                    // The bottom layer is used by the bottom fill.
+                    if (offsetY == 0 && DefaultBottomFill.isGroundBlock(block.getType())) {
+                        groundPlane.add(BlockVector2.at(offsetX, offsetZ));
+                    }
 
                     if (blockState instanceof Container) {
                         if (blockState instanceof Chest chestBlockState) {
@@ -343,147 +704,66 @@ public class SchematicHandler {
                                 Location leftSideLocation = ((Chest) doubleChest.getLeftSide()).getLocation();
                                 Location rightSideLocation = ((Chest) doubleChest.getRightSide()).getLocation();
 
-                                Location roundedLocation = new Location(location.getWorld(),
-                                        Math.floor(location.getX()), Math.floor(location.getY()),
-                                        Math.floor(location.getZ()));
-
                                 // Check to see if this (or the other) side of the chest is already in the list
-                                if (leftSideLocation.distance(roundedLocation) < 1) {
+                                if (leftSideLocation.distance(location) < 1) {
                                     if (SchematicLocationUtils.isNotAlreadyIn(locations, rightSideLocation)) {
-                                        locations.add(roundedLocation);
-                                        containers.addTag(new BlockTag(Material.CHEST, location.subtract(minLoc)));
+                                        locations.add(location);
+                                        containers.add(new CompiledSchematic.BlockEntry(Material.CHEST, offsetX, offsetY, offsetZ));
                                     }
 
-                                } else if (rightSideLocation.distance(roundedLocation) < 1) {
+                                } else if (rightSideLocation.distance(location) < 1) {
                                     if (SchematicLocationUtils.isNotAlreadyIn(locations, leftSideLocation)) {
-                                        locations.add(roundedLocation);
-                                        containers.addTag(new BlockTag(Material.CHEST, location.subtract(minLoc)));
+                                        locations.add(location);
+                                        containers.add(new CompiledSchematic.BlockEntry(Material.CHEST, offsetX, offsetY, offsetZ));
                                     }
                                 }
 
                             } else if (holder instanceof Chest) {
                                 locations.add(location);
-                                containers.addTag(new BlockTag(Material.CHEST, location.subtract(minLoc)));
+                                containers.add(new CompiledSchematic.BlockEntry(Material.CHEST, offsetX, offsetY, offsetZ));
                             }
                         } else {
                             locations.add(location);
-                            containers.addTag(new BlockTag(block.getType(), location.subtract(minLoc)));
+                            containers.add(new CompiledSchematic.BlockEntry(block.getType(), offsetX, offsetY, offsetZ));
                         }
                     } else if (blockState instanceof Sign) {
                         locations.add(location);
-                        signs.addTag(new BlockTag(block.getType(), location.subtract(minLoc)));
+                        signs.add(new CompiledSchematic.BlockEntry(block.getType(), offsetX, offsetY, offsetZ));
                     }
                 }
             }
         }
-        ObjectDataStructure ods = new ObjectDataStructure(new File(plugin.getDataFolder() + File.separator + "schematics" + File.separator + name + ".cschem"));
-        ods.save(Arrays.asList(intTag, containers, signs));
-        if (plugin.isDebug()) {
-            plugin.getLogger().info("Successfully compiled the schematic: " + name);
-        }
-    }
 
-    /**
-     * Replace the blocks according to the 'replacement_blocks' section.
-     * <p>Note: This is to be used by compiled schematics. Non compiled schematics are replaced in
-     * the {@link #getContainersAndSignsLocations(Clipboard, Location, double, Structure)} method to save time.</p>
-     *
-     * @param clipboard     The clipboard of the paste.
-     * @param pasteLocation The paste location.
-     * @param rotation      The rotation of the structure.
-     * @param structure     The structure itself.
-     */
-    private static void replaceBlocks(Clipboard clipboard, Location pasteLocation, double rotation, Structure structure) {
-        if (structure.getStructureLimitations().getBlockReplacement().isEmpty()) return;
-
-        Location minLoc = SchematicLocationUtils.getMinimumLocation(clipboard, pasteLocation, rotation);
-        Location maxLoc = SchematicLocationUtils.getMaximumLocation(clipboard, pasteLocation, rotation);
-
-        int lowX = Math.min(minLoc.getBlockX(), maxLoc.getBlockX());
-        int lowY = Math.min(minLoc.getBlockY(), maxLoc.getBlockY());
-        int lowZ = Math.min(minLoc.getBlockZ(), maxLoc.getBlockZ());
-
-        for (int x = 0; x <= Math.abs(minLoc.getBlockX() - maxLoc.getBlockX()); x++) {
-            for (int y = 0; y <= Math.abs(minLoc.getBlockY() - maxLoc.getBlockY()); y++) {
-                for (int z = 0; z <= Math.abs(minLoc.getBlockZ() - maxLoc.getBlockZ()); z++) {
-                    Block block = Objects.requireNonNull(pasteLocation.getWorld()).getBlockAt(lowX + x, lowY + y, lowZ + z);
-                    if (structure.getStructureLimitations().getBlockReplacement().containsKey(block.getType())) {
-                        block.setType(structure.getStructureLimitations().getBlockReplacement().get(block.getType()));
-                        block.getState().update();
-                    }
-                }
+        String[] palette = paletteMap.keySet().stream().map(BlockData::getAsString).toArray(String[]::new);
+        File schematicsFolder = new File(plugin.getDataFolder(), "schematics");
+        try {
+            CompiledSchematic compiledSchematic = new CompiledSchematic(CustomStructures.COMPILED_STRUCT_VER,
+                    CompiledSchematic.hashSchematic(new File(schematicsFolder, name + ".schem")),
+                    width, height, length, palette, paletteIndex, containers, signs, groundPlane);
+            compiledSchematic.write(new File(schematicsFolder, name + ".cschem"));
+        } catch (IOException ex) {
+            plugin.getLogger().severe("Unable to save the compiled schematic: " + name);
+            if (plugin.isDebug()) {
+                ex.printStackTrace();
             }
+            return;
+        }
+        if (plugin.isDebug()) {
+            plugin.getLogger().info("Successfully compiled the schematic: " + name);
         }
     }
 
     /**
-     * Get the location of containers and signs.
-     * <p>This will also replace blocks from the replacement_blocks section.</p>
+     * A schematic that was read and transformed, ready to be pasted.
      *
-     * @param clipboard     The worldedit clipboard
-     * @param pasteLocation The location of the paste
-     * @param rotation      The rotate value (in degrees).
-     * @return The list of locations
+     * @param clipboard         The clipboard of the schematic.
+     * @param holder            The clipboard holder with the rotation applied.
+     * @param transform         The transform applied to the clipboard.
+     * @param rotY              The rotation of the schematic (in degrees).
+     * @param compiledSchematic The compiled schematic of the structure. (Null if the structure is not compiled).
+     * @param manifest          The paste manifest of the schematic.
      */
-    private static List<Location> getContainersAndSignsLocations(Clipboard clipboard, Location pasteLocation, double rotation, Structure structure) {
-        Location minLoc = SchematicLocationUtils.getMinimumLocation(clipboard, pasteLocation, rotation);
-        Location maxLoc = SchematicLocationUtils.getMaximumLocation(clipboard, pasteLocation, rotation);
-        List<Location> locations = new ArrayList<>();
-
-        int lowX = Math.min(minLoc.getBlockX(), maxLoc.getBlockX());
-        int lowY = Math.min(minLoc.getBlockY(), maxLoc.getBlockY());
-        int lowZ = Math.min(minLoc.getBlockZ(), maxLoc.getBlockZ());
-
-        for (int x = 0; x <= Math.abs(minLoc.getBlockX() - maxLoc.getBlockX()); x++) {
-            for (int y = 0; y <= Math.abs(minLoc.getBlockY() - maxLoc.getBlockY()); y++) {
-                for (int z = 0; z <= Math.abs(minLoc.getBlockZ() - maxLoc.getBlockZ()); z++) {
-                    Location location = new Location(pasteLocation.getWorld(), lowX + x, lowY + y, lowZ + z);
-                    Block block = location.getBlock();
-                    BlockState blockState = location.getBlock().getState();
-
-                    if (blockState instanceof Container) {
-                        if (blockState instanceof Chest) {
-                            InventoryHolder holder = ((Chest) blockState).getInventory().getHolder();
-                            if (holder instanceof DoubleChest doubleChest) {
-                                Location leftSideLocation = ((Chest) doubleChest.getLeftSide()).getLocation();
-                                Location rightSideLocation = ((Chest) doubleChest.getRightSide()).getLocation();
-
-                                Location roundedLocation = new Location(location.getWorld(),
-                                        Math.floor(location.getX()), Math.floor(location.getY()),
-                                        Math.floor(location.getZ()));
-
-                                // Check to see if this (or the other) side of the chest is already in the list
-                                if (leftSideLocation.distance(roundedLocation) < 1) {
-                                    if (SchematicLocationUtils.isNotAlreadyIn(locations, rightSideLocation)) {
-                                        locations.add(roundedLocation);
-                                    }
-
-                                } else if (rightSideLocation.distance(roundedLocation) < 1) {
-                                    if (SchematicLocationUtils.isNotAlreadyIn(locations, leftSideLocation)) {
-                                        locations.add(roundedLocation);
-                                    }
-                                }
-
-                            } else if (holder instanceof Chest) {
-                                locations.add(location);
-                            }
-                        } else {
-                            locations.add(location);
-                        }
-                    } else if (blockState instanceof Sign) {
-                        locations.add(location);
-                    } else {
-                        // For the block replacement system.
-                        if (!structure.getStructureLimitations().getBlockReplacement().isEmpty()) {
-                            if (structure.getStructureLimitations().getBlockReplacement().containsKey(block.getType())) {
-                                block.setType(structure.getStructureLimitations().getBlockReplacement().get(block.getType()));
-                                block.getState().update();
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return locations;
+    private record PreparedSchematic(Clipboard clipboard, ClipboardHolder holder, AffineTransform transform, double rotY,
+                                     CompiledSchematic compiledSchematic, PasteManifest manifest) {
     }
-}
\ No newline at end of file
+}
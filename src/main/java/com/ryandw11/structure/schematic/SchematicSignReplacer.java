@@ -16,6 +16,7 @@ import org.bukkit.block.data.type.WallSign;
 import org.bukkit.util.Vector;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.Objects;
 
 /**
  * Handle the replacement of signs in schematics.
@@ -180,12 +181,19 @@ public class SchematicSignReplacer {
                         } else if (vertRep.getNoPointSolution().equalsIgnoreCase("PREVENT_SPAWN")) {
                             return;
                         } else {
-                            newSpawnY = NumberStylizer.getStylizedSpawnY(vertRep.getNoPointSolution(), location);
+                            newSpawnY = Objects.requireNonNull(vertRep.getNoPointSpawnY()).getHeight(location);
                             location = new Location(location.getWorld(), location.getBlockX(), newSpawnY, location.getBlockZ());
                         }
                     }
                 }
-                SchematicHandler.placeSchematic(location, subSchem.getFile(), subSchem.isPlacingAir(), parentStructure, iteration + 1);
+                SchematicHandler.placeSchematicAsync(location, subSchem.getFile(), subSchem.isPlacingAir(), parentStructure, iteration + 1)
+                        .exceptionally(ex -> {
+                            plugin.getLogger().warning("An error has occurred when attempting to paste a sub schematic.");
+                            if (plugin.isDebug()) {
+                                ex.printStackTrace();
+                            }
+                            return null;
+                        });
             } catch (Exception ex) {
                 plugin.getLogger().warning("An error has occurred when attempting to paste a sub schematic.");
                 if (plugin.isDebug()) {
@@ -225,13 +233,20 @@ public class SchematicSignReplacer {
                         } else if (vertRep.getNoPointSolution().equalsIgnoreCase("PREVENT_SPAWN")) {
                             return;
                         } else {
-                            newSpawnY = NumberStylizer.getStylizedSpawnY(vertRep.getNoPointSolution(), location);
+                            newSpawnY = Objects.requireNonNull(vertRep.getNoPointSpawnY()).getHeight(location);
                             location = new Location(location.getWorld(), location.getBlockX(), newSpawnY, location.getBlockZ());
                         }
                     }
                 }
 
-                SchematicHandler.placeSchematic(location, subSchem.getFile(), subSchem.isPlacingAir(), parentStructure, iteration + 1);
+                SchematicHandler.placeSchematicAsync(location, subSchem.getFile(), subSchem.isPlacingAir(), parentStructure, iteration + 1)
+                        .exceptionally(ex -> {
+                            plugin.getLogger().warning("An error has occurred when attempting to paste a sub schematic.");
+                            if (plugin.isDebug()) {
+                                ex.printStackTrace();
+                            }
+                            return null;
+                        });
             } catch (Exception ex) {
                 plugin.getLogger().warning("An error has occurred when attempting to paste a sub schematic.");
                 if (plugin.isDebug()) {
@@ -1,103 +1,134 @@
 package com.ryandw11.structure.structure;
 
 import com.ryandw11.structure.structure.properties.StructureYSpawning;
+import com.ryandw11.structure.utils.HeightmapCache;
 import org.bukkit.Chunk;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Objects;
-import java.util.TreeSet;
+import java.util.function.Predicate;
 
 /**
  * Maintains a priority queue of structures for a spawn location.
+ *
+ * <p>The structures are ordered by priority (then probability) when the queue is created, but their spawn conditions
+ * are only tested when they are about to be polled. Structures after the one that spawns are never tested.</p>
  */
 public class PriorityStructureQueue {
 
-    private final TreeSet<PriorityStructure> priorityStructureSet;
+    // Lower priorities come first, structures with the same priority are ordered by probability.
+    private static final Comparator<Structure> PRIORITY_ORDER = Comparator.comparingInt(Structure::getPriority)
+            .thenComparingDouble(structure -> (double) structure.getProbabilityNumerator() / (double) structure.getProbabilityDenominator());
+
+    private final List<Structure> orderedStructures;
+    private final Predicate<Structure> canSpawn;
+    private int nextIndex;
+    // The next structure that passed its conditions. (Null if it has not been found yet).
+    private Structure nextStructure;
 
     /**
      * Create a priority queue of structures for a specific spawn location.
      * <p>{@link Structure#canSpawn(Block, Chunk)} must return true for the specified block
-     * and chunk for it to be added to the queue.</p>
+     * and chunk for it to be returned by the queue.</p>
      *
      * @param structures The list of structures to attempt and add to the queue.
      * @param block      The block to test the spawn conditions for.
      * @param chunk      The chunk to test the spawn conditions for.
      */
     public PriorityStructureQueue(@NotNull List<Structure> structures, @NotNull Block block, @NotNull Chunk chunk) {
-        priorityStructureSet = new TreeSet<>();
+        this(structures, block, chunk, new HeightmapCache(chunk.getWorld(), chunk.getX(), chunk.getZ()));
+    }
 
-        for (Structure structure : structures) {
+    /**
+     * Create a priority queue of structures for a specific spawn location.
+     * <p>{@link Structure#canSpawn(Block, Chunk)} must return true for the specified block
+     * and chunk for it to be returned by the queue.</p>
+     *
+     * @param structures     The list of structures to attempt and add to the queue.
+     * @param block          The block to test the spawn conditions for.
+     * @param chunk          The chunk to test the spawn conditions for.
+     * @param heightmapCache The height map cache of the chunk.
+     */
+    public PriorityStructureQueue(@NotNull List<Structure> structures, @NotNull Block block, @NotNull Chunk chunk,
+                                  @NotNull HeightmapCache heightmapCache) {
+        this(structures, structure -> {
             StructureYSpawning structureSpawnSettings = structure.getStructureLocation().getSpawnSettings();
 
             // Get the highest block according to the settings for the structure.
-            Block structureBlock = structureSpawnSettings.getHighestBlock(block.getLocation());
+            Block structureBlock = structureSpawnSettings.getHighestBlock(block.getLocation(), heightmapCache);
             if (structureBlock.getType() == Material.VOID_AIR) {
                 structureBlock = null;
             }
 
-            if (structure.canSpawn(structureBlock, chunk)) {
-                priorityStructureSet.add(new PriorityStructure(structure));
-            }
-        }
+            return structure.canSpawn(structureBlock, chunk);
+        });
+    }
+
+    /**
+     * Create a priority queue of structures.
+     *
+     * @param structures The list of structures to attempt and add to the queue.
+     * @param canSpawn   Checks if a structure can spawn. Only structures that pass are returned by the queue.
+     */
+    public PriorityStructureQueue(@NotNull List<Structure> structures, @NotNull Predicate<Structure> canSpawn) {
+        // The sort is stable, so structures with the same priority and probability keep their order.
+        this.orderedStructures = new ArrayList<>(structures);
+        this.orderedStructures.sort(PRIORITY_ORDER);
+        this.canSpawn = canSpawn;
     }
 
     /**
      * Check if there is a next structure to retrieve from the priority queue.
+     * <p>This tests the conditions of the structures until one passes.</p>
      *
      * @return If there is a next structure to retrieve.
      */
     public boolean hasNextStructure() {
-        return !priorityStructureSet.isEmpty();
+        return findNextStructure() != null;
     }
 
     /**
      * Get the next structure from the priority queue.
+     * <p>This tests the conditions of the structures until one passes.</p>
      *
      * @return The next structure. Null if queue empty.
      */
     @Nullable
     public Structure getNextStructure() {
-        if (priorityStructureSet.isEmpty()) {
-            return null;
-        }
-
-        return Objects.requireNonNull(priorityStructureSet.pollFirst()).getStructure();
+        Structure structure = findNextStructure();
+        nextStructure = null;
+        return structure;
     }
 
     /**
-     * The class that is used to store a structure and probability data.
+     * Get the number of structures whose conditions were tested.
      *
-     * <p>Note: this class has a natural ordering that is inconsistent with equals.</p>
+     * @return The number of tested structures.
      */
-    private static class PriorityStructure implements Comparable<PriorityStructure> {
-        private final Structure structure;
-        private final double probability;
-
-        public PriorityStructure(@NotNull Structure structure) {
-            this.structure = structure;
-            this.probability = (double) structure.getProbabilityNumerator() / (double) structure.getProbabilityDenominator();
-        }
+    public int getEvaluatedStructures() {
+        return nextIndex;
+    }
 
-        /**
-         * Get a structure contained within this object.
-         *
-         * @return The structure contained within this object.
-         */
-        @NotNull
-        public Structure getStructure() {
-            return structure;
-        }
+    /**
+     * Get the number of structures whose conditions have not been tested (yet).
+     *
+     * @return The number of structures that were not tested.
+     */
+    public int getSkippedStructures() {
+        return orderedStructures.size() - nextIndex;
+    }
 
-        @Override
-        public int compareTo(@NotNull PriorityStructureQueue.PriorityStructure pStructure) {
-            if (structure.getPriority() == pStructure.structure.getPriority()) {
-                return probability < pStructure.probability ? -1 : 1;
-            }
-            return structure.getPriority() < pStructure.structure.getPriority() ? -1 : 1;
+    private Structure findNextStructure() {
+        while (nextStructure == null && nextIndex < orderedStructures.size()) {
+            Structure structure = orderedStructures.get(nextIndex++);
+            if (canSpawn.test(structure))
+                nextStructure = structure;
         }
+        return nextStructure;
     }
 }
@@ -0,0 +1,295 @@
+package com.ryandw11.structure.structure;
+
+import com.ryandw11.structure.CustomStructures;
+import com.ryandw11.structure.structure.properties.StructureLocation;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The location conditions of a structure, compiled into a list of stages when the structure is loaded.
+ *
+ * <p>Every condition must pass, so the stages can be tested in any order. The stages are ordered by their expected
+ * cost per rejection: cheap stages that reject often (like the probability roll) run before the expensive distance
+ * scans. The order starts from estimates and is updated from the statistics of the stages as they are tested.
+ * The time of a stage is only measured for a sample of the tests.</p>
+ *
+ * <p>The stages read the settings of the structure on every test, so changes made through the setters of
+ * {@link StructureLocation} still apply. Stages that never reject a location are moved to the end by the statistics.
+ * The terrain conditions depend on each other (through SpawnY), so they are not part of the stages.</p>
+ *
+ * <p>This class is thread safe.</p>
+ */
+public class SpawnConditions {
+
+    // The time of the stages is measured for one in every 16 tests.
+    private static final int SAMPLE_RATE = 16;
+    // The stages are reordered every 1024 tests.
+    private static final int REORDER_RATE = 1024;
+    // The weight of the estimated rejection rate, in tests, until enough tests were done.
+    private static final int PRIOR_WEIGHT = 32;
+    private static final double MIN_REJECTION_RATE = 0.001;
+
+    private final Structure structure;
+    private volatile Stage[] stages;
+    private final AtomicLong tests = new AtomicLong();
+
+    /**
+     * Compile the conditions of a structure.
+     *
+     * @param structure The structure.
+     */
+    SpawnConditions(Structure structure) {
+        this.structure = structure;
+        StructureLocation location = structure.getStructureLocation();
+
+        List<Stage> compiled = new ArrayList<>();
+        compiled.add(new Stage(StageType.WORLD, 0.01, (world, loc, biome) -> location.canSpawnInWorld(world)));
+        // The location settings can be changed after the structure is loaded, so they are read on every test.
+        compiled.add(new Stage(StageType.SPAWN_DISTANCE, 0.1, (world, loc, biome) -> {
+            if (location.isInner())
+                return Math.abs(loc.getBlockX()) <= location.getXLimitation()
+                        && Math.abs(loc.getBlockZ()) <= location.getZLimitation();
+            return Math.abs(loc.getBlockX()) >= location.getXLimitation()
+                    && Math.abs(loc.getBlockZ()) >= location.getZLimitation();
+        }));
+        compiled.add(new Stage(StageType.SPAWN_REGION, 0.1, (world, loc, biome) -> {
+            StructureLocation.SpawnRegion spawnRegion = location.getSpawnRegion();
+            return spawnRegion == null || spawnRegion.isInRegion(loc);
+        }));
+        compiled.add(new Stage(StageType.DISTANCE, 0.1, (world, loc, biome) ->
+                CustomStructures.getInstance().getStructureHandler().validDistance(structure, loc)));
+        compiled.add(new Stage(StageType.SAME_DISTANCE, 0.1, (world, loc, biome) ->
+                CustomStructures.getInstance().getStructureHandler().validSameDistance(structure, loc)));
+        compiled.add(new Stage(StageType.PROBABILITY, 1 - getPassRate(structure), (world, loc, biome) ->
+                passesProbability(structure)));
+        compiled.add(new Stage(StageType.BIOME, 0.5, (world, loc, biome) -> location.hasBiome(biome.get())));
+
+        Stage[] ordered = compiled.toArray(new Stage[0]);
+        Arrays.sort(ordered, Comparator.comparingDouble(Stage::getRank));
+        this.stages = ordered;
+    }
+
+    /**
+     * Test the conditions for a location that is not in the void.
+     *
+     * @param world    The world.
+     * @param location The location.
+     * @param biome    Supplies the biome of the location.
+     * @return If every condition passed.
+     */
+    boolean test(@NotNull World world, @NotNull Location location, @NotNull Supplier<Biome> biome) {
+        long count = tests.incrementAndGet();
+        boolean sample = count % SAMPLE_RATE == 0;
+        boolean passed = true;
+        for (Stage stage : stages) {
+            if (!stage.test(world, location, biome, sample)) {
+                passed = false;
+                break;
+            }
+        }
+        if (count % REORDER_RATE == 0)
+            reorder();
+        return passed;
+    }
+
+    /**
+     * Test the conditions for a location in the void.
+     *
+     * <p>Only the world, probability and biome conditions apply to the void, so no stages are used.</p>
+     *
+     * @param world The world.
+     * @param biome Supplies the biome of the location.
+     * @return If every condition passed.
+     */
+    boolean testVoid(@NotNull World world, @NotNull Supplier<Biome> biome) {
+        return structure.getStructureLocation().canSpawnInWorld(world)
+                && structure.getStructureProperties().canSpawnInVoid()
+                && passesProbability(structure)
+                && structure.getStructureLocation().hasBiome(biome.get());
+    }
+
+    /**
+     * Get the statistics of the stages, in the order they are currently tested.
+     *
+     * @return The statistics of the stages.
+     */
+    @NotNull
+    public List<StageStatistics> getStatistics() {
+        List<StageStatistics> statistics = new ArrayList<>();
+        for (Stage stage : stages) {
+            statistics.add(stage.getStatistics());
+        }
+        return statistics;
+    }
+
+    /**
+     * Get the number of times the conditions were tested (outside the void).
+     *
+     * @return The number of tests.
+     */
+    public long getTests() {
+        return tests.get();
+    }
+
+    /**
+     * Reorder the stages from their statistics.
+     */
+    private void reorder() {
+        Stage[] ordered = stages.clone();
+        double[] ranks = new double[ordered.length];
+        for (int i = 0; i < ordered.length; i++) {
+            ranks[i] = ordered[i].getRank();
+        }
+        Integer[] indices = new Integer[ordered.length];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+        // The ranks are computed once, since the statistics can change while sorting.
+        Arrays.sort(indices, Comparator.comparingDouble(i -> ranks[i]));
+        Stage[] result = new Stage[ordered.length];
+        for (int i = 0; i < indices.length; i++) {
+            result[i] = ordered[indices[i]];
+        }
+        stages = result;
+    }
+
+    private static double getPassRate(Structure structure) {
+        // The roll picks from [0, denominator] and passes when it is at most the numerator.
+        double rate = (structure.getProbabilityNumerator() + 1d) / (structure.getProbabilityDenominator() + 1d);
+        return Math.max(0, Math.min(1, rate));
+    }
+
+    private static boolean passesProbability(Structure structure) {
+        return ThreadLocalRandom.current().nextInt(0, structure.getProbabilityDenominator() + 1)
+                <= structure.getProbabilityNumerator();
+    }
+
+    /**
+     * The types of stages.
+     */
+    public enum StageType {
+        /**
+         * The world of the location is enabled for the structure.
+         */
+        WORLD(20),
+        /**
+         * The location is inside (or outside) the x and z limitations around spawn.
+         */
+        SPAWN_DISTANCE(20),
+        /**
+         * The location is inside the spawn region.
+         */
+        SPAWN_REGION(40),
+        /**
+         * No other structure is too close.
+         */
+        DISTANCE(2000),
+        /**
+         * No structure of the same type is too close.
+         */
+        SAME_DISTANCE(1500),
+        /**
+         * The probability roll.
+         */
+        PROBABILITY(30),
+        /**
+         * The biome of the location is enabled for the structure.
+         */
+        BIOME(300);
+
+        private final double estimatedNanos;
+
+        StageType(double estimatedNanos) {
+            this.estimatedNanos = estimatedNanos;
+        }
+    }
+
+    /**
+     * The statistics of a stage.
+     *
+     * @param type         The type of the stage.
+     * @param tests        The number of times the stage was tested.
+     * @param rejections   The number of times the stage rejected the location.
+     * @param averageNanos The average time of the stage in nanoseconds (estimated until a test is sampled).
+     */
+    public record StageStatistics(StageType type, long tests, long rejections, double averageNanos) {
+        /**
+         * Get the fraction of the tests that were rejected.
+         *
+         * @return The rejection rate between 0 and 1.
+         */
+        public double getRejectionRate() {
+            return tests == 0 ? 0 : (double) rejections / tests;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Condition {
+        boolean test(World world, Location location, Supplier<Biome> biome);
+    }
+
+    /**
+     * A compiled condition with its statistics.
+     */
+    private static class Stage {
+        private final StageType type;
+        private final double estimatedRejectionRate;
+        private final Condition condition;
+        private final LongAdder tests = new LongAdder();
+        private final LongAdder rejections = new LongAdder();
+        private final LongAdder sampledTests = new LongAdder();
+        private final LongAdder sampledNanos = new LongAdder();
+
+        private Stage(StageType type, double estimatedRejectionRate, Condition condition) {
+            this.type = type;
+            this.estimatedRejectionRate = estimatedRejectionRate;
+            this.condition = condition;
+        }
+
+        private boolean test(World world, Location location, Supplier<Biome> biome, boolean sample) {
+            boolean passed;
+            if (sample) {
+                long start = System.nanoTime();
+                passed = condition.test(world, location, biome);
+                sampledNanos.add(System.nanoTime() - start);
+                sampledTests.increment();
+            } else {
+                passed = condition.test(world, location, biome);
+            }
+            tests.increment();
+            if (!passed)
+                rejections.increment();
+            return passed;
+        }
+
+        private double getAverageNanos() {
+            long sampled = sampledTests.sum();
+            return sampled == 0 ? type.estimatedNanos : (double) sampledNanos.sum() / sampled;
+        }
+
+        /**
+         * The expected cost per rejection. Lower ranks are tested first.
+         */
+        private double getRank() {
+            // The estimated rate counts as a few tests, so a stage is not moved by its first results.
+            double rejectionRate = (rejections.sum() + estimatedRejectionRate * PRIOR_WEIGHT)
+                    / (tests.sum() + PRIOR_WEIGHT);
+            return getAverageNanos() / Math.max(MIN_REJECTION_RATE, rejectionRate);
+        }
+
+        private StageStatistics getStatistics() {
+            return new StageStatistics(type, tests.sum(), rejections.sum(), getAverageNanos());
+        }
+    }
+}
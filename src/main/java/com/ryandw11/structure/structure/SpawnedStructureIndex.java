@@ -0,0 +1,182 @@
+package com.ryandw11.structure.structure;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A spatial index of the spawned structures used for the distance checks.
+ *
+ * <p>Each world has a grid of 128x128 block cells. Structures are stored in a grid with all the structures
+ * of a world and in a grid with only the structures of the same name. A distance check only visits the cells
+ * that overlap the radius.</p>
+ *
+ * <p>Every world has its own read/write lock, so checks can happen at the same time.</p>
+ */
+class SpawnedStructureIndex {
+
+    // Cells are 2^7 = 128 blocks wide.
+    private static final int CELL_SHIFT = 7;
+
+    private final Map<UUID, WorldGrid> worldGrids = new ConcurrentHashMap<>();
+
+    /**
+     * Add a spawned structure to the index.
+     *
+     * @param location  The location of the structure.
+     * @param structure The structure.
+     */
+    void add(@NotNull Location location, @NotNull Structure structure) {
+        World world = Objects.requireNonNull(location.getWorld());
+        WorldGrid worldGrid = worldGrids.computeIfAbsent(world.getUID(), uuid -> new WorldGrid());
+        worldGrid.lock.writeLock().lock();
+        try {
+            worldGrid.all.add(location);
+            worldGrid.byName.computeIfAbsent(structure.getName(), name -> new Grid()).add(location);
+        } finally {
+            worldGrid.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a spawned structure from the index.
+     *
+     * @param location  The location of the structure.
+     * @param structure The structure.
+     */
+    void remove(@NotNull Location location, @NotNull Structure structure) {
+        if (location.getWorld() == null) return;
+        WorldGrid worldGrid = worldGrids.get(location.getWorld().getUID());
+        if (worldGrid == null) return;
+        worldGrid.lock.writeLock().lock();
+        try {
+            worldGrid.all.remove(location);
+            Grid grid = worldGrid.byName.get(structure.getName());
+            if (grid != null && grid.remove(location) && grid.isEmpty())
+                worldGrid.byName.remove(structure.getName());
+        } finally {
+            worldGrid.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Check if there is any structure within a radius of a location.
+     *
+     * @param location The location to check.
+     * @param radius   The radius.
+     * @return If a structure is within (or exactly at) the radius.
+     */
+    boolean anyWithin(@NotNull Location location, double radius) {
+        return anyWithin(location, radius, null);
+    }
+
+    /**
+     * Check if there is any structure with a specific name within a radius of a location.
+     *
+     * @param location The location to check.
+     * @param radius   The radius.
+     * @param name     The name of the structure. (Null for any structure).
+     * @return If a structure is within (or exactly at) the radius.
+     */
+    boolean anyWithin(@NotNull Location location, double radius, String name) {
+        if (location.getWorld() == null) return false;
+        WorldGrid worldGrid = worldGrids.get(location.getWorld().getUID());
+        if (worldGrid == null) return false;
+        worldGrid.lock.readLock().lock();
+        try {
+            Grid grid = name == null ? worldGrid.all : worldGrid.byName.get(name);
+            return grid != null && grid.anyWithin(location, radius);
+        } finally {
+            worldGrid.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Remove all structures from the index.
+     */
+    void clear() {
+        worldGrids.clear();
+    }
+
+    private static long packCell(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    private static int toCell(double coordinate) {
+        // Clamp so very large radii do not overflow.
+        return (int) Math.floor(Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, coordinate))) >> CELL_SHIFT;
+    }
+
+    /**
+     * The grids of a single world.
+     */
+    private static class WorldGrid {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Grid all = new Grid();
+        private final Map<String, Grid> byName = new HashMap<>();
+    }
+
+    /**
+     * A grid of locations.
+     */
+    private static class Grid {
+        private final Map<Long, List<Location>> cells = new HashMap<>();
+
+        private void add(Location location) {
+            cells.computeIfAbsent(packCell(toCell(location.getX()), toCell(location.getZ())), cell -> new ArrayList<>())
+                    .add(location);
+        }
+
+        private boolean remove(Location location) {
+            long cell = packCell(toCell(location.getX()), toCell(location.getZ()));
+            List<Location> locations = cells.get(cell);
+            if (locations == null || !locations.remove(location)) return false;
+            if (locations.isEmpty())
+                cells.remove(cell);
+            return true;
+        }
+
+        private boolean isEmpty() {
+            return cells.isEmpty();
+        }
+
+        private boolean anyWithin(Location location, double radius) {
+            double radiusSquared = radius * radius;
+            int minX = toCell(location.getX() - radius);
+            int maxX = toCell(location.getX() + radius);
+            int minZ = toCell(location.getZ() - radius);
+            int maxZ = toCell(location.getZ() + radius);
+
+            // For large radii it is cheaper to check every occupied cell.
+            if ((long) (maxX - minX + 1) * (maxZ - minZ + 1) > cells.size()) {
+                for (List<Location> locations : cells.values()) {
+                    if (anyWithin(locations, location, radiusSquared)) return true;
+                }
+                return false;
+            }
+
+            for (int x = minX; x <= maxX; x++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    List<Location> locations = cells.get(packCell(x, z));
+                    if (locations != null && anyWithin(locations, location, radiusSquared)) return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean anyWithin(List<Location> locations, Location location, double radiusSquared) {
+            for (Location other : locations) {
+                double dx = other.getX() - location.getX();
+                double dy = other.getY() - location.getY();
+                double dz = other.getZ() - location.getZ();
+                if (dx * dx + dy * dy + dz * dz <= radiusSquared) return true;
+            }
+            return false;
+        }
+    }
+}
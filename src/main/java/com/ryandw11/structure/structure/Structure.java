@@ -10,6 +10,8 @@ import com.ryandw11.structure.utils.RandomCollection;
 import com.sk89q.worldedit.WorldEditException;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
 import org.bukkit.block.Block;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -18,7 +20,7 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
 /**
  * Represents a complete Structure for the plugin.
@@ -48,6 +50,7 @@ public class Structure {
     private final Map<LootTableType, RandomCollection<LootTable>> lootTables;
     private final List<StructureSection> structureSections;
     private final double baseRotation;
+    private final SpawnConditions spawnConditions;
 
     private double subSchemRotation = 0d;
 
@@ -75,6 +78,7 @@ public class Structure {
         this.lootTables = builder.lootTables;
         this.structureSections = builder.structureSections;
         this.baseRotation = builder.baseRotation;
+        this.spawnConditions = new SpawnConditions(this);
     }
 
     /**
@@ -262,48 +266,36 @@ public class Structure {
      * @return If the structure can spawn
      */
     public boolean canSpawn(@Nullable Block block, @NotNull Chunk chunk) {
-        // Check to see if the structure can spawn in the current world.
-        if (!getStructureLocation().canSpawnInWorld(chunk.getWorld())) {
-            return false;
-        }
-
-        // If the block is null, that means it is in the void, check if it can spawn in the void.
-        if (block == null && !getStructureProperties().canSpawnInVoid())
-            return false;
-        else if (block == null) {
-            if (ThreadLocalRandom.current().nextInt(0, getProbabilityDenominator() + 1) > getProbabilityNumerator())
-                return false;
-
-            return getStructureLocation().hasBiome(chunk.getBlock(0, 20, 0).getBiome());
-        }
-
-        // Check to see if the structure is far enough away from spawn.
-        if (getStructureLocation().isInner()) {
-            if (Math.abs(block.getX()) > getStructureLocation().getXLimitation()
-                    || Math.abs(block.getZ()) > getStructureLocation().getZLimitation()) return false;
-        } else {
-            if (Math.abs(block.getX()) < getStructureLocation().getXLimitation()
-                    || Math.abs(block.getZ()) < getStructureLocation().getZLimitation()) return false;
-        }
-
-        if (getStructureLocation().getSpawnRegion() != null &&
-                !getStructureLocation().getSpawnRegion().isInRegion(block.getLocation())) {
-            // Check if the structure is not in the spawn region
-            return false;
-        }
-
-        if (!CustomStructures.getInstance().getStructureHandler().validDistance(this, block.getLocation()))
-            return false;
+        return canSpawn(chunk.getWorld(), block == null ? null : block.getLocation(),
+                () -> block == null ? chunk.getBlock(0, 20, 0).getBiome() : block.getBiome());
+    }
 
-        if (!CustomStructures.getInstance().getStructureHandler().validSameDistance(this, block.getLocation()))
-            return false;
+    /**
+     * Checks to see if the structure can spawn at a location.
+     * <p>This also checks structure locations. The blocks of the world are not accessed, so this can be used
+     * while a chunk is being generated.</p>
+     * <p>The conditions are tested in the order of {@link #getSpawnConditions()}.</p>
+     *
+     * @param world    The world.
+     * @param location The location of the block. (Null means it is spawning in the void.)
+     * @param biome    Supplies the biome of the block. (Only called if the biome condition is tested).
+     * @return If the structure can spawn
+     */
+    public boolean canSpawn(@NotNull World world, @Nullable Location location, @NotNull Supplier<Biome> biome) {
+        // If the location is null, that means it is in the void.
+        if (location == null)
+            return spawnConditions.testVoid(world, biome);
 
-        // Check to see if the structure has the chance to spawn
-        if (ThreadLocalRandom.current().nextInt(0, getProbabilityDenominator() + 1) > getProbabilityNumerator())
-            return false;
+        return spawnConditions.test(world, location, biome);
+    }
 
-        // Check to see if the structure can spawn in the current biome.
-        return getStructureLocation().hasBiome(block.getBiome());
+    /**
+     * Get the compiled location conditions of the structure.
+     *
+     * @return The spawn conditions.
+     */
+    public SpawnConditions getSpawnConditions() {
+        return spawnConditions;
     }
 
     /**
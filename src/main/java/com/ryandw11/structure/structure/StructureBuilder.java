@@ -5,6 +5,7 @@ import com.ryandw11.structure.api.structaddon.CustomStructureAddon;
 import com.ryandw11.structure.api.structaddon.StructureSection;
 import com.ryandw11.structure.api.structaddon.StructureSectionProvider;
 import com.ryandw11.structure.exceptions.StructureConfigurationException;
+import com.ryandw11.structure.io.CompiledSchematic;
 import com.ryandw11.structure.loottables.LootTable;
 import com.ryandw11.structure.loottables.LootTableType;
 import com.ryandw11.structure.structure.properties.*;
@@ -17,6 +18,8 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * This class is used to make a new Structure. (This class is also used internally to load structures
@@ -39,6 +42,7 @@ public class StructureBuilder {
 
     private FileConfiguration config;
     private final CustomStructures plugin;
+    private final Logger logger;
 
     protected String name;
     protected String schematic;
@@ -79,6 +83,7 @@ public class StructureBuilder {
      */
     public StructureBuilder(String name, String schematic, List<StructureSection> sections) {
         this.plugin = CustomStructures.getInstance();
+        this.logger = plugin.getLogger();
         this.name = name;
         this.schematic = schematic;
         this.priority = 100;
@@ -96,6 +101,7 @@ public class StructureBuilder {
      */
     public StructureBuilder(String name, String schematic, StructureSection... sections) {
         this.plugin = CustomStructures.getInstance();
+        this.logger = plugin.getLogger();
         this.name = name;
         this.schematic = schematic;
         this.priority = 100;
@@ -114,11 +120,35 @@ public class StructureBuilder {
      * @param file The file to read from.
      */
     public StructureBuilder(String name, File file) {
-        if (!file.exists())
-            throw new RuntimeException("Cannot build structure: That file does not exist!");
-        config = YamlConfiguration.loadConfiguration(file);
+        this(name, loadConfiguration(file));
+    }
+
+    /**
+     * Build a structure using a yaml configuration that was already loaded.
+     * <p>No further editing of this class is required if you use this method.</p>
+     *
+     * @param name   The name of the structure.
+     * @param config The configuration of the structure.
+     */
+    public StructureBuilder(String name, FileConfiguration config) {
+        this(name, config, CustomStructures.getInstance().getLogger());
+        finishConfiguration();
+    }
+
+    /**
+     * Read a structure from a yaml configuration that was already loaded, without the loot tables and addon sections.
+     * <p>This does not access the world or the addons, so it can be called off the main Server thread. Call
+     * {@link #finishConfiguration()} on the main Server thread before the structure is built.</p>
+     *
+     * @param name   The name of the structure.
+     * @param config The configuration of the structure.
+     * @param logger The logger to report configuration problems to.
+     */
+    StructureBuilder(String name, FileConfiguration config, Logger logger) {
+        this.config = config;
 
         plugin = CustomStructures.getInstance();
+        this.logger = logger;
 
         this.name = name;
         this.structureSections = new ArrayList<>();
@@ -135,20 +165,33 @@ public class StructureBuilder {
             isCompiled = new File(CustomStructures.getInstance().getDataFolder() + "/schematics/" +
                     Objects.requireNonNull(config.getString("CompiledSchematic"))).exists();
             if (!isCompiled)
-                CustomStructures.getInstance().getLogger().severe("Invalid compiled schematic file for: " + name);
-            else
+                logger.severe("Invalid compiled schematic file for: " + name);
+            else {
                 compiledSchematic = config.getString("CompiledSchematic");
+                checkCompiledSchematic();
+            }
         }
 
         structureLocation = new StructureLocation(config);
         structureProperties = new StructureProperties(config);
         structureLimitations = new StructureLimitations(config);
+        for (String biome : structureLocation.getUnknownBiomes())
+            logger.warning("The biome " + biome + " in the structure " + name + " does not exist and will be ignored.");
+        for (String block : structureLimitations.getUnknownBlocks())
+            logger.warning("The spawn block " + block + " in the structure " + name + " does not exist and will be ignored.");
         sourceMaskProperty = new MaskProperty("SourceMask", config);
         targetMaskProperty = new MaskProperty("TargetMask", config);
-        subSchematics = new SubSchematics(config, CustomStructures.getInstance());
-        advancedSubSchematics = new AdvancedSubSchematics(config, CustomStructures.getInstance());
+        subSchematics = new SubSchematics(config, logger);
+        advancedSubSchematics = new AdvancedSubSchematics(config, CustomStructures.getInstance(), logger);
         bottomSpaceFill = new BottomSpaceFill(config);
+    }
 
+    /**
+     * Resolve the loot tables and set up the structure sections of the addons.
+     * <p>This method is to be called on the main Server thread, since addons do not expect their sections to be set
+     * up on other threads.</p>
+     */
+    void finishConfiguration() {
         lootTables = new HashMap<>();
         if (config.contains("LootTables")) {
             ConfigurationSection lootableConfig = config.getConfigurationSection("LootTables");
@@ -231,6 +274,30 @@ public class StructureBuilder {
         }
     }
 
+    private static FileConfiguration loadConfiguration(File file) {
+        if (!file.exists())
+            throw new RuntimeException("Cannot build structure: That file does not exist!");
+        return YamlConfiguration.loadConfiguration(file);
+    }
+
+    /**
+     * Check if the compiled schematic can be read and was compiled from the current schematic.
+     */
+    private void checkCompiledSchematic() {
+        File folder = new File(plugin.getDataFolder(), "schematics");
+        try {
+            CompiledSchematic cs = plugin.getSchematicCache().getCompiledSchematic(new File(folder, compiledSchematic));
+            if (!cs.matchesSchematic(new File(folder, schematic))) {
+                logger.warning("The compiled schematic for " + name + " is outdated! Please compile the structure again.");
+            }
+        } catch (IOException ex) {
+            logger.severe("Unable to read the compiled schematic for: " + name);
+            if (plugin.isDebug())
+                logger.log(Level.SEVERE, ex.getMessage(), ex);
+            isCompiled = false;
+        }
+    }
+
     private void checkValidity() {
         if (!config.contains("Schematic")) {
             throw new StructureConfigurationException("Invalid structure config: No Schematic found!");
@@ -479,6 +546,10 @@ public class StructureBuilder {
         config.set("StructureProperties.IgnorePlants", structureProperties.isIgnoringPlants());
         config.set("StructureProperties.SpawnInWater", structureProperties.canSpawnInWater());
         config.set("StructureProperties.SpawnInLavaLakes", structureProperties.canSpawnInLavaLakes());
+        if (structureProperties.isIncrementalPaste()) {
+            config.set("StructureProperties.IncrementalPaste", true);
+            config.set("StructureProperties.PasteBlocksPerTick", structureProperties.getPasteBlocksPerTick());
+        }
 
         config.set("StructureLimitations.WhitelistSpawnBlocks", structureLimitations.getWhitelistBlocks());
 
@@ -0,0 +1,189 @@
+package com.ryandw11.structure.structure;
+
+import com.ryandw11.structure.CustomStructures;
+import com.ryandw11.structure.utils.HeightmapCache;
+import org.bukkit.Chunk;
+import org.bukkit.HeightMap;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+import org.bukkit.block.Block;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+/**
+ * An index of the structures that can possibly spawn in a chunk.
+ *
+ * <p>The world and biome requirements of every structure are resolved once when the index is built. This allows
+ * structures that can never spawn in a chunk to be skipped before any of their (more expensive) spawn conditions
+ * are tested. A new index is built when the structures are reloaded.</p>
+ *
+ * <p>Structures that pass the index must still pass {@link Structure#canSpawn(org.bukkit.block.Block, Chunk)}.</p>
+ */
+public class StructureCandidateIndex {
+
+    private final CustomStructures plugin;
+    private final List<Structure> structures;
+    // The biomes each structure is limited to. Structures that can spawn in any biome are not in this map.
+    private final Map<Structure, Set<Biome>> biomeRequirements;
+    // The candidates of each world, computed the first time a chunk of that world is evaluated.
+    private final Map<String, WorldCandidates> worldCandidates = new ConcurrentHashMap<>();
+
+    private final AtomicLong evaluatedCandidates = new AtomicLong();
+    private final AtomicLong prunedCandidates = new AtomicLong();
+
+    /**
+     * Build the candidate index.
+     *
+     * <p>For internal use only. Access through {@link StructureHandler#getCandidateIndex()}.</p>
+     *
+     * @param structures The list of structures to index.
+     * @param plugin     The instance of the plugin.
+     */
+    public StructureCandidateIndex(@NotNull List<Structure> structures, @NotNull CustomStructures plugin) {
+        this.plugin = plugin;
+        this.structures = List.copyOf(structures);
+
+        Map<Structure, Set<Biome>> requirements = new HashMap<>();
+        for (Structure structure : this.structures) {
+            // An empty list means all biomes. Unknown biomes never match, so they are left out of the set.
+            if (structure.getStructureLocation().getBiomes().isEmpty()) continue;
+            requirements.put(structure, structure.getStructureLocation().getBiomeSet());
+        }
+        this.biomeRequirements = Collections.unmodifiableMap(requirements);
+    }
+
+    /**
+     * Get the structures that can possibly spawn in a chunk.
+     *
+     * <p>The order of the structures is the same as {@link StructureHandler#getStructures()}.</p>
+     *
+     * @param chunk The chunk to get the candidates for.
+     * @return The unmodifiable list of candidates.
+     */
+    @NotNull
+    public List<Structure> getCandidates(@NotNull Chunk chunk) {
+        return getCandidates(chunk, new HeightmapCache(chunk.getWorld(), chunk.getX(), chunk.getZ()));
+    }
+
+    /**
+     * Get the structures that can possibly spawn in a chunk.
+     *
+     * <p>Structures are tested at the highest block of the center column of the chunk (by their height map), or at
+     * 0, 20, 0 in the void. The biome of that block is only looked up when a structure with a biome requirement is
+     * checked, and once per height map.</p>
+     *
+     * <p>The order of the structures is the same as {@link StructureHandler#getStructures()}.</p>
+     *
+     * @param chunk          The chunk to get the candidates for.
+     * @param heightmapCache The height map cache of the chunk.
+     * @return The unmodifiable list of candidates.
+     */
+    @NotNull
+    public List<Structure> getCandidates(@NotNull Chunk chunk, @NotNull HeightmapCache heightmapCache) {
+        World world = chunk.getWorld();
+        int x = (chunk.getX() << 4) + 8;
+        int z = (chunk.getZ() << 4) + 8;
+        Map<HeightMap, Biome> biomes = new EnumMap<>(HeightMap.class);
+        return getCandidates(world, (structure, requiredBiomes) -> requiredBiomes.contains(biomes.computeIfAbsent(
+                structure.getStructureLocation().getSpawnSettings().getHeightMap(), heightMap -> {
+                    Block block = world.getBlockAt(x, heightmapCache.getHighestBlockYAt(x, z, heightMap), z);
+                    return block.getType() == Material.VOID_AIR ? chunk.getBlock(0, 20, 0).getBiome() : block.getBiome();
+                })));
+    }
+
+    /**
+     * Get the structures that can possibly spawn in an area.
+     *
+     * <p>The order of the structures is the same as {@link StructureHandler#getStructures()}.</p>
+     *
+     * @param world         The world of the area.
+     * @param containsBiome Checks if a biome is in the area.
+     * @return The unmodifiable list of candidates.
+     */
+    @NotNull
+    public List<Structure> getCandidates(@NotNull World world, @NotNull Predicate<Biome> containsBiome) {
+        // Each biome is only looked up once per area.
+        Map<Biome, Boolean> areaBiomes = new EnumMap<>(Biome.class);
+        return getCandidates(world, (structure, requiredBiomes) -> {
+            for (Biome biome : requiredBiomes) {
+                if (areaBiomes.computeIfAbsent(biome, containsBiome::test))
+                    return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Get the structures of a world that pass their biome requirement.
+     *
+     * @param world        The world.
+     * @param biomeMatches Checks if a structure can spawn with its required biomes. (Only called for structures that
+     *                     have a biome requirement).
+     * @return The unmodifiable list of candidates.
+     */
+    private List<Structure> getCandidates(World world, BiPredicate<Structure, Set<Biome>> biomeMatches) {
+        WorldCandidates candidates = worldCandidates.computeIfAbsent(world.getName(),
+                name -> new WorldCandidates(world));
+
+        List<Structure> result;
+        if (!candidates.biomeRestricted) {
+            result = candidates.structures;
+        } else {
+            result = new ArrayList<>(candidates.structures.size());
+            for (Structure structure : candidates.structures) {
+                Set<Biome> biomes = biomeRequirements.get(structure);
+                if (biomes == null || biomeMatches.test(structure, biomes))
+                    result.add(structure);
+            }
+            result = Collections.unmodifiableList(result);
+        }
+
+        evaluatedCandidates.addAndGet(result.size());
+        prunedCandidates.addAndGet(structures.size() - result.size());
+        return result;
+    }
+
+    /**
+     * Get the total number of structures that the index allowed to be evaluated.
+     *
+     * @return The total number of candidates that were evaluated.
+     */
+    public long getEvaluatedCandidates() {
+        return evaluatedCandidates.get();
+    }
+
+    /**
+     * Get the total number of structures that were skipped by the index.
+     *
+     * @return The total number of candidates that were pruned.
+     */
+    public long getPrunedCandidates() {
+        return prunedCandidates.get();
+    }
+
+    /**
+     * The structures that can spawn in a specific world.
+     */
+    private class WorldCandidates {
+        private final List<Structure> structures;
+        private final boolean biomeRestricted;
+
+        private WorldCandidates(World world) {
+            List<Structure> candidates = new ArrayList<>();
+            if (plugin.canStructureSpawnInWorld(world)) {
+                for (Structure structure : StructureCandidateIndex.this.structures) {
+                    if (structure.getStructureLocation().canSpawnInWorld(world))
+                        candidates.add(structure);
+                }
+            }
+            this.structures = Collections.unmodifiableList(candidates);
+            this.biomeRestricted = candidates.stream().anyMatch(biomeRequirements::containsKey);
+        }
+    }
+}
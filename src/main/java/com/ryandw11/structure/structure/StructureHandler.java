@@ -3,13 +3,24 @@ package com.ryandw11.structure.structure;
 import com.ryandw11.structure.CustomStructures;
 import com.ryandw11.structure.api.CustomStructuresAPI;
 import com.ryandw11.structure.exceptions.StructureConfigurationException;
+import com.ryandw11.structure.io.EvaluatedChunkStore;
 import com.ryandw11.structure.io.StructureDatabaseHandler;
+import com.ryandw11.structure.loottables.LootTableType;
 import com.ryandw11.structure.threading.CheckStructureList;
+import com.ryandw11.structure.threading.StructureSpawnScheduler;
 import com.ryandw11.structure.utils.Pair;
 import org.bukkit.Location;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 /**
@@ -21,13 +32,25 @@ import java.util.stream.Collectors;
  */
 public class StructureHandler {
 
+    // Ties are broken so that structures the same distance from the origin do not replace each other.
     private final SortedMap<Pair<Location, Long>, Structure> spawnedStructures = new TreeMap<>(
-            Comparator.comparingDouble(o -> o.getLeft().distance(new Location(o.getLeft().getWorld(), 0, 0, 0)))
+            Comparator.<Pair<Location, Long>>comparingDouble(o -> o.getLeft().distance(new Location(o.getLeft().getWorld(), 0, 0, 0)))
+                    .thenComparingLong(Pair::getRight)
+                    .thenComparingDouble(o -> o.getLeft().getX())
+                    .thenComparingDouble(o -> o.getLeft().getY())
+                    .thenComparingDouble(o -> o.getLeft().getZ())
+                    .thenComparing(o -> o.getLeft().getWorld() == null ? "" : o.getLeft().getWorld().getUID().toString())
     );
+    // The read only view of the spawned structures. This is also the lock for the spawned structures.
+    private final SortedMap<Pair<Location, Long>, Structure> spawnedStructuresView = Collections.unmodifiableSortedMap(spawnedStructures);
+    private final SpawnedStructureIndex spawnedStructureIndex = new SpawnedStructureIndex();
 
     private final List<Structure> structures;
     private final List<String> names;
+    private final StructureCandidateIndex candidateIndex;
     private final CheckStructureList checkStructureList;
+    private final StructureSpawnScheduler spawnScheduler;
+    private EvaluatedChunkStore evaluatedChunkStore;
     private StructureDatabaseHandler structureDatabaseHandler;
 
     /**
@@ -41,6 +64,71 @@ public class StructureHandler {
         structures = new ArrayList<>();
         names = new ArrayList<>();
         cs.getLogger().info("Loading structures from files.");
+        long start = System.nanoTime();
+        int threads = cs.getConfig().getInt("StructureLoading.Threads", 0);
+        if (threads <= 0)
+            threads = Runtime.getRuntime().availableProcessors();
+        threads = Math.max(1, Math.min(threads, stringStructs.size()));
+        ExecutorService executor = null;
+        if (threads > 1) {
+            AtomicInteger threadCount = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "CustomStructures-Loader-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        Executor loader = executor != null ? executor : Runnable::run;
+        try {
+            loadStructures(stringStructs, cs, loader);
+        } finally {
+            if (executor != null)
+                executor.shutdown();
+        }
+
+        long indexStart = System.nanoTime();
+        candidateIndex = new StructureCandidateIndex(structures, cs);
+        long end = System.nanoTime();
+        cs.getLogger().info(String.format("Loaded %d structures in %.1f ms using %d thread(s) (index: %.1f ms).",
+                structures.size(), (end - start) / 1e6, threads, (end - indexStart) / 1e6));
+
+        checkStructureList = new CheckStructureList(this);
+        // Run every 5 minutes.
+        checkStructureList.runTaskTimerAsynchronously(cs, 20, 6000);
+
+        if (cs.getConfig().getBoolean("EvaluatedChunks.Enabled", true)) {
+            evaluatedChunkStore = new EvaluatedChunkStore(cs);
+            // Save the modified regions every 30 seconds.
+            evaluatedChunkStore.runTaskTimerAsynchronously(cs, 600, 600);
+        }
+
+        spawnScheduler = new StructureSpawnScheduler(cs, evaluatedChunkStore);
+        // Drain the chunk queue every tick.
+        spawnScheduler.runTaskTimer(cs, 1, 1);
+
+        if (cs.getConfig().getBoolean("logStructures")) {
+            structureDatabaseHandler = new StructureDatabaseHandler(cs);
+            // Run every second, structures are saved once a batch is full or the deadline is reached.
+            structureDatabaseHandler.runTaskTimerAsynchronously(cs, 20, 20);
+        }
+    }
+
+    /**
+     * Load the structures from their files.
+     *
+     * <p>The files are read, their loot tables are loaded and the structures are read on the executor. Each phase
+     * finishes before the next one starts. The structures are registered on the calling thread in the order of the
+     * list, so the result does not depend on the order the tasks finish in. The messages of each structure are
+     * logged when it is registered, and the loot tables and addon sections are set up on the calling thread.</p>
+     *
+     * @param stringStructs The list of structures.
+     * @param cs            The plugin.
+     * @param executor      The executor to load the structures on.
+     */
+    private void loadStructures(List<String> stringStructs, CustomStructures cs, Executor executor) {
+        long readStart = System.nanoTime();
+        List<String> structNames = new ArrayList<>();
+        List<CompletableFuture<FileConfiguration>> configs = new ArrayList<>();
         for (String s : stringStructs) {
             File struct = new File(cs.getDataFolder() + File.separator + "structures" + File.separator + s.replace(".yml", "") + ".yml");
             if (!struct.exists()) {
@@ -48,32 +136,97 @@ public class StructureHandler {
                 cs.getLogger().warning("For more information please check to wiki.");
                 continue;
             }
+            structNames.add(s);
+            configs.add(CompletableFuture.supplyAsync(() -> YamlConfiguration.loadConfiguration(struct), executor));
+        }
+        CompletableFuture.allOf(configs.toArray(new CompletableFuture[0])).join();
+
+        // Load every loot table used by the structures before they are built.
+        long lootStart = System.nanoTime();
+        Set<String> lootTableNames = new LinkedHashSet<>();
+        for (CompletableFuture<FileConfiguration> config : configs) {
+            ConfigurationSection lootTables = config.join().getConfigurationSection("LootTables");
+            if (lootTables == null) continue;
+            for (String type : lootTables.getKeys(false)) {
+                ConfigurationSection tables = lootTables.getConfigurationSection(type);
+                if (LootTableType.exists(type) && tables != null)
+                    lootTableNames.addAll(tables.getKeys(false));
+            }
+        }
+        cs.getLootTableHandler().loadLootTables(lootTableNames, executor);
+
+        long buildStart = System.nanoTime();
+        List<CompletableFuture<StructureBuilder>> builds = new ArrayList<>();
+        List<List<LogRecord>> messages = new ArrayList<>();
+        for (int i = 0; i < structNames.size(); i++) {
+            String name = structNames.get(i).replace(".yml", "");
+            FileConfiguration config = configs.get(i).join();
+            List<LogRecord> records = new ArrayList<>();
+            Logger logger = createBufferedLogger(records);
+            messages.add(records);
+            builds.add(CompletableFuture.supplyAsync(() -> new StructureBuilder(name, config, logger), executor));
+        }
+
+        for (int i = 0; i < structNames.size(); i++) {
+            String s = structNames.get(i);
             try {
-                Structure tempStruct = new StructureBuilder(s.replace(".yml", ""), struct).build();
+                StructureBuilder builder;
+                try {
+                    builder = builds.get(i).join();
+                } finally {
+                    messages.get(i).forEach(cs.getLogger()::log);
+                }
+                builder.finishConfiguration();
+                Structure tempStruct = builder.build();
                 structures.add(tempStruct);
                 names.add(tempStruct.getName());
-            } catch (StructureConfigurationException ex) {
-                cs.getLogger().warning("The structure '" + s + "' has an invalid configuration file:");
-                cs.getLogger().warning(ex.getMessage());
-            } catch (Exception ex) {
-                cs.getLogger().severe("An unexpected error has occurred when trying to load the structure: " + s + ".");
-                cs.getLogger().severe("Please ensure that your configuration file is valid!");
-                if (cs.isDebug()) {
-                    ex.printStackTrace();
+            } catch (RuntimeException exception) {
+                Throwable ex = exception instanceof CompletionException && exception.getCause() != null ? exception.getCause() : exception;
+                if (ex instanceof StructureConfigurationException) {
+                    cs.getLogger().warning("The structure '" + s + "' has an invalid configuration file:");
+                    cs.getLogger().warning(ex.getMessage());
                 } else {
-                    cs.getLogger().severe("Please enable debug mode to see the full error.");
+                    cs.getLogger().severe("An unexpected error has occurred when trying to load the structure: " + s + ".");
+                    cs.getLogger().severe("Please ensure that your configuration file is valid!");
+                    if (cs.isDebug()) {
+                        ex.printStackTrace();
+                    } else {
+                        cs.getLogger().severe("Please enable debug mode to see the full error.");
+                    }
                 }
             }
         }
+        long end = System.nanoTime();
 
-        checkStructureList = new CheckStructureList(this);
-        // Run every 5 minutes.
-        checkStructureList.runTaskTimerAsynchronously(cs, 20, 6000);
+        cs.getLogger().info(String.format("Read %d structure files in %.1f ms, loaded %d loot tables in %.1f ms, built %d structures in %.1f ms.",
+                configs.size(), (lootStart - readStart) / 1e6, lootTableNames.size(), (buildStart - lootStart) / 1e6,
+                structures.size(), (end - buildStart) / 1e6));
+    }
 
-        if (cs.getConfig().getBoolean("logStructures")) {
-            structureDatabaseHandler = new StructureDatabaseHandler(cs);
-            structureDatabaseHandler.runTaskTimerAsynchronously(cs, 20, 300);
-        }
+    /**
+     * Create a logger that collects the messages of a structure that is read on another thread.
+     *
+     * @param records The list to add the messages to.
+     * @return The logger.
+     */
+    private static Logger createBufferedLogger(List<LogRecord> records) {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return logger;
     }
 
     /**
@@ -120,12 +273,18 @@ public class StructureHandler {
 
     /**
      * Get the Map of spawned structures.
-     * <p>Note: This map is not synchronized by default and can be modified on a different thread.</p>
+     * <p>Note: This map is not synchronized by default and can be modified on a different thread.
+     * Synchronize on the map while iterating over it.</p>
+     * <p>This map is read only: modifying it (or its key set, values, entry set or their iterators) throws an
+     * {@link UnsupportedOperationException}. Earlier versions returned the internal map, so addons that removed
+     * entries directly must use {@link #removeSpawnedStructure(Pair)} with the key of the entry instead. Use
+     * {@link #putSpawnedStructure(Location, Structure)} to add structures.</p>
+     * <p>To remove entries while iterating, collect their keys and remove them after the loop.</p>
      *
      * @return The list of spawned structures.
      */
     public SortedMap<Pair<Location, Long>, Structure> getSpawnedStructures() {
-        return spawnedStructures;
+        return spawnedStructuresView;
     }
 
     /**
@@ -138,11 +297,48 @@ public class StructureHandler {
      * @param struct The structure.
      */
     public void putSpawnedStructure(Location loc, Structure struct) {
-        synchronized (spawnedStructures) {
+        synchronized (spawnedStructuresView) {
             if (structureDatabaseHandler != null) {
                 structureDatabaseHandler.addStructure(loc, struct);
             }
-            this.spawnedStructures.put(Pair.of(loc, System.currentTimeMillis()), struct);
+            Structure previous = this.spawnedStructures.put(Pair.of(loc, System.currentTimeMillis()), struct);
+            if (previous != null)
+                spawnedStructureIndex.remove(loc, previous);
+            spawnedStructureIndex.add(loc, struct);
+        }
+    }
+
+    /**
+     * Add a structure to the list of spawned structures if it is far enough away from the other structures.
+     * <p>The distances are checked and the structure is added while the list is locked, so structures that are
+     * spawned on different threads at the same time cannot end up too close to each other.</p>
+     *
+     * @param loc    The location.
+     * @param struct The structure.
+     * @return If the structure was added. (False if it is too close to another structure).
+     */
+    public boolean putSpawnedStructureIfValid(Location loc, Structure struct) {
+        synchronized (spawnedStructuresView) {
+            if (!validDistance(struct, loc) || !validSameDistance(struct, loc))
+                return false;
+            putSpawnedStructure(loc, struct);
+            return true;
+        }
+    }
+
+    /**
+     * Remove a structure from the list of spawned structures.
+     * <p>Note: This will not remove the structure from the world or the structure database.</p>
+     *
+     * @param key The key of the structure in {@link #getSpawnedStructures()}.
+     * @return The structure that was removed. (Null if the key was not in the list).
+     */
+    public Structure removeSpawnedStructure(Pair<Location, Long> key) {
+        synchronized (spawnedStructuresView) {
+            Structure struct = spawnedStructures.remove(key);
+            if (struct != null)
+                spawnedStructureIndex.remove(key.getLeft(), struct);
+            return struct;
         }
     }
 
@@ -154,16 +350,7 @@ public class StructureHandler {
      * @return If the distance is valid according to its config.
      */
     public boolean validDistance(Structure struct, Location location) {
-        double closest = Double.MAX_VALUE;
-        synchronized (spawnedStructures) {
-            for (Map.Entry<Pair<Location, Long>, Structure> entry : spawnedStructures.entrySet()) {
-                if (entry.getKey().getLeft().getWorld() != location.getWorld()) continue;
-
-                if (entry.getKey().getLeft().distance(location) < closest)
-                    closest = entry.getKey().getLeft().distance(location);
-            }
-        }
-        return struct.getStructureLocation().getDistanceFromOthers() < closest;
+        return !spawnedStructureIndex.anyWithin(location, struct.getStructureLocation().getDistanceFromOthers());
     }
 
     /**
@@ -174,22 +361,7 @@ public class StructureHandler {
      * @return If the distance is valid according to its config.
      */
     public boolean validSameDistance(Structure struct, Location location) {
-
-        synchronized (spawnedStructures) {
-            double closest = Double.MAX_VALUE;
-            for (Map.Entry<Pair<Location, Long>, Structure> entry : spawnedStructures.entrySet()) {
-
-                if (entry.getKey().getLeft().getWorld() != location.getWorld()) continue;
-
-                if (!Objects.equals(entry.getValue().getName(), struct.getName())) continue;
-
-                if (entry.getKey().getLeft().distance(location) < closest) {
-                    closest = entry.getKey().getLeft().distance(location);
-                }
-            }
-            return struct.getStructureLocation().getDistanceFromSame() < closest;
-        }
-
+        return !spawnedStructureIndex.anyWithin(location, struct.getStructureLocation().getDistanceFromSame(), struct.getName());
     }
 
     /**
@@ -202,13 +374,47 @@ public class StructureHandler {
         return Optional.ofNullable(structureDatabaseHandler);
     }
 
+    /**
+     * Get the index of structures that can possibly spawn in a chunk.
+     *
+     * @return The structure candidate index.
+     */
+    public StructureCandidateIndex getCandidateIndex() {
+        return candidateIndex;
+    }
+
+    /**
+     * Get the scheduler that evaluates loaded chunks for structure spawns.
+     *
+     * @return The spawn scheduler.
+     */
+    public StructureSpawnScheduler getSpawnScheduler() {
+        return spawnScheduler;
+    }
+
+    /**
+     * Get the store of chunks that were already evaluated for structure spawns.
+     * <p>This feature must be enabled via the config.</p>
+     *
+     * @return An Optional of the EvaluatedChunkStore.
+     */
+    public Optional<EvaluatedChunkStore> getEvaluatedChunkStore() {
+        return Optional.ofNullable(evaluatedChunkStore);
+    }
+
     /**
      * Shutdown internal processes.
      */
     public void cleanup() {
         checkStructureList.cancel();
+        spawnScheduler.cancel();
+        if (evaluatedChunkStore != null)
+            evaluatedChunkStore.cancel();
         if (structureDatabaseHandler != null)
             structureDatabaseHandler.cancel();
-        spawnedStructures.clear();
+        synchronized (spawnedStructuresView) {
+            spawnedStructures.clear();
+            spawnedStructureIndex.clear();
+        }
     }
 }
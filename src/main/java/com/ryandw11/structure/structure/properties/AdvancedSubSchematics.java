@@ -8,6 +8,8 @@ import org.bukkit.configuration.file.FileConfiguration;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * The advanced SubSchematic feature.
@@ -24,6 +26,17 @@ public class AdvancedSubSchematics {
      * @param plugin        The instance of custom structures. (CustomStructures.getInstance()).
      */
     public AdvancedSubSchematics(@NotNull FileConfiguration configuration, @NotNull CustomStructures plugin) {
+        this(configuration, plugin, plugin.getLogger());
+    }
+
+    /**
+     * Get the sub schematics from a configuration file.
+     *
+     * @param configuration The configuration file.
+     * @param plugin        The instance of custom structures. (CustomStructures.getInstance()).
+     * @param logger        The logger to report configuration problems to.
+     */
+    public AdvancedSubSchematics(@NotNull FileConfiguration configuration, @NotNull CustomStructures plugin, @NotNull Logger logger) {
         schematicCategories = new HashMap<>();
         if (!configuration.contains("AdvancedSubSchematics")) {
             enabled = false;
@@ -44,11 +57,11 @@ public class AdvancedSubSchematics {
                 }
             } catch (RuntimeException ex) {
                 enabled = false;
-                plugin.getLogger().warning("Unable to enable AdvancedSubStructures on structure " + configuration.getName() + ".");
-                plugin.getLogger().warning("The following error occurred:");
-                plugin.getLogger().warning(ex.getMessage());
+                logger.warning("Unable to enable AdvancedSubStructures on structure " + configuration.getName() + ".");
+                logger.warning("The following error occurred:");
+                logger.warning(ex.getMessage());
                 if (plugin.isDebug())
-                    ex.printStackTrace();
+                    logger.log(Level.WARNING, ex.getMessage(), ex);
             }
             schematicCategories.put(category, schematics);
         }
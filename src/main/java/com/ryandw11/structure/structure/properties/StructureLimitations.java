@@ -15,6 +15,10 @@ public class StructureLimitations {
     private int iterationLimit;
     private final List<String> whitelistSpawnBlocks;
     private final List<String> blacklistSpawnBlocks;
+    // The spawn blocks resolved when the limitations are created.
+    private final Set<Material> whitelistTypes;
+    private final Set<Material> blacklistTypes;
+    private final List<String> unknownBlocks = new ArrayList<>();
     private final BlockLevelLimit blockLevelLimit;
     private final Map<Material, Material> blockReplacement;
     private double replacementBlocksDelay;
@@ -46,6 +50,9 @@ public class StructureLimitations {
         else
             blacklistSpawnBlocks = configuration.getStringList("StructureLimitations.BlacklistSpawnBlocks");
 
+        whitelistTypes = resolveTypes(whitelistSpawnBlocks);
+        blacklistTypes = resolveTypes(blacklistSpawnBlocks);
+
         this.blockLevelLimit = new BlockLevelLimit(configuration);
 
         replacementBlocksDelay = !configuration.contains("StructureLimitations.ReplaceBlockDelay") ? 0
@@ -74,6 +81,8 @@ public class StructureLimitations {
         this.worldHeightRestriction = -1;
         this.whitelistSpawnBlocks = whitelistSpawnBlocks;
         this.blacklistSpawnBlocks = blacklistSpawnBlocks;
+        this.whitelistTypes = resolveTypes(whitelistSpawnBlocks);
+        this.blacklistTypes = resolveTypes(blacklistSpawnBlocks);
         this.blockLevelLimit = blockLevelLimit;
         this.blockReplacement = blockReplacement;
     }
@@ -98,6 +107,7 @@ public class StructureLimitations {
 
     /**
      * Get the whitelisted blocks.
+     * <p>The blocks are resolved when the limitations are created, changes to this list are not checked.</p>
      *
      * @return The whitelisted blocks.
      */
@@ -107,6 +117,7 @@ public class StructureLimitations {
 
     /**
      * Get the blacklisted blocks.
+     * <p>The blocks are resolved when the limitations are created, changes to this list are not checked.</p>
      *
      * @return The blacklisted blocks.
      */
@@ -114,6 +125,16 @@ public class StructureLimitations {
         return blacklistSpawnBlocks;
     }
 
+    /**
+     * Get the names in the whitelist and blacklist that are not blocks.
+     * <p>These names never match a block.</p>
+     *
+     * @return The unknown block names.
+     */
+    public List<String> getUnknownBlocks() {
+        return Collections.unmodifiableList(unknownBlocks);
+    }
+
     /**
      * Check to see if the whitelist has a block.
      *
@@ -121,12 +142,18 @@ public class StructureLimitations {
      * @return If the whitelist has the block. (Returns true if there is no whitelist)
      */
     public boolean hasWhitelistBlock(Block b) {
+        return hasWhitelistBlock(b.getType());
+    }
+
+    /**
+     * Check to see if the whitelist has a type of block.
+     *
+     * @param type The type of block to check
+     * @return If the whitelist has the type. (Returns true if there is no whitelist)
+     */
+    public boolean hasWhitelistBlock(Material type) {
         if (whitelistSpawnBlocks.isEmpty()) return true;
-        for (String block : whitelistSpawnBlocks) {
-            if (block.equalsIgnoreCase(b.getType().toString()))
-                return true;
-        }
-        return false;
+        return whitelistTypes.contains(type);
     }
 
     /**
@@ -136,12 +163,29 @@ public class StructureLimitations {
      * @return If the blacklist has the block. (Returns false if there is no blacklist)
      */
     public boolean hasBlacklistBlock(Block b) {
-        if (blacklistSpawnBlocks.isEmpty()) return false;
-        for (String block : blacklistSpawnBlocks) {
-            if (block.equalsIgnoreCase(b.getType().toString()))
-                return true;
+        return hasBlacklistBlock(b.getType());
+    }
+
+    /**
+     * Check to see if the blacklist has a type of block.
+     *
+     * @param type The type of block to check.
+     * @return If the blacklist has the type. (Returns false if there is no blacklist)
+     */
+    public boolean hasBlacklistBlock(Material type) {
+        return blacklistTypes.contains(type);
+    }
+
+    private Set<Material> resolveTypes(List<String> names) {
+        Set<Material> types = EnumSet.noneOf(Material.class);
+        for (String name : names) {
+            Material type = Material.matchMaterial(name);
+            if (type == null)
+                unknownBlocks.add(name);
+            else
+                types.add(type);
         }
-        return false;
+        return types;
     }
 
     /**
@@ -156,6 +200,9 @@ public class StructureLimitations {
     /**
      * Get the block replacement map.
      *
+     * <p>The blocks are replaced while the schematic is pasted, so only the blocks from the schematic are replaced.
+     * The terrain in the bounding box of the structure is no longer changed.</p>
+     *
      * @return The block replacement map.
      */
     public Map<Material, Material> getBlockReplacement() {
@@ -165,7 +212,11 @@ public class StructureLimitations {
     /**
      * Get the replacement block delay.
      *
-     * @return The replacement block delay.
+     * <p>This delays the loot of the containers, the signs (and sub-schematics) of the structure and the
+     * {@link com.ryandw11.structure.api.StructureSpawnEvent}. The blocks from {@link #getBlockReplacement()} are
+     * replaced while the schematic is pasted, so they are not delayed.</p>
+     *
+     * @return The replacement block delay (in seconds).
      */
     public double getReplacementBlocksDelay() {
         return replacementBlocksDelay;
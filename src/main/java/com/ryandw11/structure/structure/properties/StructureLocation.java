@@ -12,7 +12,10 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * The configuration section for the Structure Location.
@@ -23,6 +26,9 @@ public class StructureLocation implements StructureProperty {
     private List<String> worldBlacklist;
     private StructureYSpawning spawnY;
     private List<String> biomes;
+    // The biomes resolved when the list of biomes is set.
+    private Set<Biome> biomeSet;
+    private List<String> unknownBiomes;
     private double distanceFromOthers;
     private double distanceFromSame;
     private boolean inner;
@@ -67,6 +73,7 @@ public class StructureLocation implements StructureProperty {
             this.biomes = cs.getStringList("Biome");
         else
             this.biomes = new ArrayList<>();
+        resolveBiomes();
 
         if (cs.contains("DistanceFromOthers"))
             this.distanceFromOthers = Math.max(0, cs.getDouble("DistanceFromOthers"));
@@ -118,6 +125,7 @@ public class StructureLocation implements StructureProperty {
         this.worldBlacklist = new ArrayList<>();
         this.spawnY = spawnSettings;
         this.biomes = biomes;
+        resolveBiomes();
         this.distanceFromOthers = 100;
         this.distanceFromSame = 100;
         this.xLimitation = 0;
@@ -179,6 +187,7 @@ public class StructureLocation implements StructureProperty {
 
     /**
      * Get the list of biomes.
+     * <p>The biomes are resolved when the list is set, use {@link #setBiomes(List)} to change them.</p>
      *
      * @return The list of biomes.
      */
@@ -186,6 +195,26 @@ public class StructureLocation implements StructureProperty {
         return biomes;
     }
 
+    /**
+     * Get the set of biomes the structure can spawn in.
+     * <p>An empty list of biomes means all biomes, check {@link #getBiomes()} first.</p>
+     *
+     * @return The unmodifiable set of biomes.
+     */
+    public Set<Biome> getBiomeSet() {
+        return biomeSet;
+    }
+
+    /**
+     * Get the names in the list of biomes that are not biomes.
+     * <p>These names never match a biome.</p>
+     *
+     * @return The unknown biome names.
+     */
+    public List<String> getUnknownBiomes() {
+        return unknownBiomes;
+    }
+
     /**
      * Set the list of worlds.
      *
@@ -212,6 +241,7 @@ public class StructureLocation implements StructureProperty {
      */
     public void setBiomes(List<String> biomes) {
         this.biomes = biomes;
+        resolveBiomes();
     }
 
     /**
@@ -224,11 +254,21 @@ public class StructureLocation implements StructureProperty {
     public boolean hasBiome(Biome b) {
         if (biomes.isEmpty())
             return true;
+        return biomeSet.contains(b);
+    }
+
+    private void resolveBiomes() {
+        Set<Biome> resolved = EnumSet.noneOf(Biome.class);
+        List<String> unknown = new ArrayList<>();
         for (String biome : biomes) {
-            if (b.toString().equalsIgnoreCase(biome.replace("minecraft:", "")))
-                return true;
+            try {
+                resolved.add(Biome.valueOf(biome.replace("minecraft:", "").toUpperCase()));
+            } catch (IllegalArgumentException ex) {
+                unknown.add(biome);
+            }
         }
-        return false;
+        this.biomeSet = Collections.unmodifiableSet(resolved);
+        this.unknownBiomes = Collections.unmodifiableList(unknown);
     }
 
     /**
@@ -15,6 +15,8 @@ public class StructureProperties {
     private boolean spawnInLavaLakes;
     private boolean spawnInVoid;
     private boolean ignoreWater;
+    private boolean incrementalPaste;
+    private int pasteBlocksPerTick;
 
     /**
      * Create StructureProperties from a config file.
@@ -30,6 +32,8 @@ public class StructureProperties {
             this.spawnInWater = true;
             this.spawnInLavaLakes = true;
             this.spawnInVoid = false;
+            this.incrementalPaste = false;
+            this.pasteBlocksPerTick = 8192;
             return;
         }
         this.placeAir = cs.contains("PlaceAir") && cs.getBoolean("PlaceAir");
@@ -39,6 +43,8 @@ public class StructureProperties {
         this.spawnInLavaLakes = cs.contains("SpawnInLavaLakes") && cs.getBoolean("SpawnInLavaLakes");
         this.spawnInVoid = cs.contains("SpawnInVoid") && cs.getBoolean("SpawnInVoid");
         this.ignoreWater = cs.contains("IgnoreWater") && cs.getBoolean("IgnoreWater");
+        this.incrementalPaste = cs.contains("IncrementalPaste") && cs.getBoolean("IncrementalPaste");
+        this.pasteBlocksPerTick = Math.max(1, cs.getInt("PasteBlocksPerTick", 8192));
     }
 
     /**
@@ -52,6 +58,8 @@ public class StructureProperties {
         this.spawnInLavaLakes = true;
         this.spawnInVoid = false;
         this.ignoreWater = false;
+        this.incrementalPaste = false;
+        this.pasteBlocksPerTick = 8192;
     }
 
     /**
@@ -181,4 +189,47 @@ public class StructureProperties {
     public void setIgnoreWater(boolean ignoreWater) {
         this.ignoreWater = ignoreWater;
     }
+
+    /**
+     * Get if the structure is pasted over multiple ticks.
+     *
+     * @return If the structure is pasted over multiple ticks.
+     */
+    public boolean isIncrementalPaste() {
+        return incrementalPaste;
+    }
+
+    /**
+     * Set if the structure should be pasted over multiple ticks.
+     *
+     * <p>The structure is split into 16x16x16 sections which are pasted a few at a time. Loot tables, signs and
+     * block replacement are processed once every section is pasted.</p>
+     *
+     * @param incrementalPaste If the structure should be pasted over multiple ticks.
+     */
+    public void setIncrementalPaste(boolean incrementalPaste) {
+        this.incrementalPaste = incrementalPaste;
+    }
+
+    /**
+     * Get the maximum number of blocks pasted per tick when the structure is pasted over multiple ticks.
+     *
+     * @return The maximum number of blocks pasted per tick.
+     */
+    public int getPasteBlocksPerTick() {
+        return pasteBlocksPerTick;
+    }
+
+    /**
+     * Set the maximum number of blocks pasted per tick when the structure is pasted over multiple ticks.
+     *
+     * <p>At least one section is always pasted per tick.</p>
+     *
+     * @param pasteBlocksPerTick The maximum number of blocks pasted per tick. (Must be positive).
+     */
+    public void setPasteBlocksPerTick(int pasteBlocksPerTick) {
+        if (pasteBlocksPerTick < 1)
+            throw new IllegalArgumentException("The number of blocks per tick must be greater than 0!");
+        this.pasteBlocksPerTick = pasteBlocksPerTick;
+    }
 }
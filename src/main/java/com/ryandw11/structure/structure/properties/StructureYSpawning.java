@@ -1,7 +1,8 @@
 package com.ryandw11.structure.structure.properties;
 
 import com.ryandw11.structure.exceptions.StructureConfigurationException;
-import com.ryandw11.structure.utils.NumberStylizer;
+import com.ryandw11.structure.utils.HeightmapCache;
+import com.ryandw11.structure.utils.SpawnYExpression;
 import org.bukkit.HeightMap;
 import org.bukkit.Location;
 import org.bukkit.block.Block;
@@ -9,16 +10,16 @@ import org.bukkit.configuration.file.FileConfiguration;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Objects;
-import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * This handles the SpawnY of a structure.
  */
 public class StructureYSpawning {
 
-    private boolean top = false;
+    private final boolean top;
     private boolean calculateSpawnYFirst = true;
     private final String value;
+    private final SpawnYExpression expression;
     private final HeightMap heightMap;
 
     /**
@@ -31,6 +32,8 @@ public class StructureYSpawning {
             throw new StructureConfigurationException("The structure must have a SpawnY value and SpawnY Height Map!");
 
         value = fc.getString("StructureLocation.SpawnY");
+        assert value != null;
+        expression = SpawnYExpression.compile(value);
 
         try {
             heightMap = HeightMap.valueOf(Objects.requireNonNull(fc.getString("StructureLocation.SpawnYHeightMap")).toUpperCase());
@@ -38,9 +41,7 @@ public class StructureYSpawning {
             throw new StructureConfigurationException("Invalid SpawnY HeightMap value! Please check your configuration!");
         }
 
-        assert value != null;
-        if (value.equalsIgnoreCase("top"))
-            top = true;
+        top = expression.isTop();
 
         if (fc.contains("StructureLocation.CalculateSpawnFirst")) {
             calculateSpawnYFirst = fc.getBoolean("StructureLocation.CalculateSpawnFirst");
@@ -53,12 +54,13 @@ public class StructureYSpawning {
      * @param value                The value of SpawnY.
      * @param heightMap            The height map for the Structure to use to spawn.
      * @param calculateSpawnYFirst If you want the SpawnY to be calculated before the other checks are completed (ex: block whitelist).
+     * @throws StructureConfigurationException If the value is not a valid SpawnY value.
      */
     public StructureYSpawning(String value, HeightMap heightMap, boolean calculateSpawnYFirst) {
         this.value = value;
+        this.expression = SpawnYExpression.compile(value);
         this.heightMap = heightMap;
-        if (value.equalsIgnoreCase("top"))
-            top = true;
+        top = expression.isTop();
         this.calculateSpawnYFirst = calculateSpawnYFirst;
     }
 
@@ -71,6 +73,15 @@ public class StructureYSpawning {
         return value;
     }
 
+    /**
+     * Get the compiled value of SpawnY.
+     *
+     * @return The compiled value of SpawnY.
+     */
+    public SpawnYExpression getExpression() {
+        return expression;
+    }
+
     /**
      * Get the SpawnY Height Map.
      *
@@ -121,6 +132,18 @@ public class StructureYSpawning {
         return Objects.requireNonNull(loc.getWorld()).getHighestBlockAt(loc, heightMap);
     }
 
+    /**
+     * Get the highest block at a location according the structure rules, using the height maps of a chunk.
+     *
+     * @param loc            The initial location (Y does not matter).
+     * @param heightmapCache The height map cache of the chunk that is evaluated.
+     * @return The Highest block according to the structure rules for Height Maps.
+     */
+    public Block getHighestBlock(Location loc, HeightmapCache heightmapCache) {
+        return Objects.requireNonNull(loc.getWorld()).getBlockAt(loc.getBlockX(),
+                heightmapCache.getHighestBlockYAt(loc.getBlockX(), loc.getBlockZ(), heightMap), loc.getBlockZ());
+    }
+
     /**
      * Get the height from SpawnY value.
      *
@@ -130,6 +153,16 @@ public class StructureYSpawning {
      * @return The height according to the rules of SpawnY.
      */
     public int getHeight(@Nullable Location location) {
-        return NumberStylizer.getStylizedSpawnY(value, location);
+        return expression.getHeight(location);
+    }
+
+    /**
+     * Get the height from SpawnY value.
+     *
+     * @param topY The y coordinate of the top block (What Y value top should return).
+     * @return The height according to the rules of SpawnY.
+     */
+    public int getHeight(int topY) {
+        return expression.getHeight(topY);
     }
 }
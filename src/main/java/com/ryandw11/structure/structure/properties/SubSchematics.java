@@ -9,6 +9,7 @@ import org.jetbrains.annotations.NotNull;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.logging.Logger;
 
 /**
  * The simple SubSchematic feature.
@@ -25,6 +26,16 @@ public class SubSchematics {
      * @param plugin        The instance of custom structures. (CustomStructures.getInstance()).
      */
     public SubSchematics(@NotNull FileConfiguration configuration, @NotNull CustomStructures plugin) {
+        this(configuration, plugin.getLogger());
+    }
+
+    /**
+     * Get the sub schematics from a configuration file.
+     *
+     * @param configuration The configuration file.
+     * @param logger        The logger to report configuration problems to.
+     */
+    public SubSchematics(@NotNull FileConfiguration configuration, @NotNull Logger logger) {
         schematics = new ArrayList<>();
         if (!configuration.contains("SubSchematics")) {
             enabled = false;
@@ -40,9 +51,9 @@ public class SubSchematics {
             }
         } catch (RuntimeException ex) {
             enabled = false;
-            plugin.getLogger().warning("Unable to enable SubStructures on structure " + configuration.getName() + ".");
-            plugin.getLogger().warning("The following error occurred:");
-            plugin.getLogger().warning(ex.getMessage());
+            logger.warning("Unable to enable SubStructures on structure " + configuration.getName() + ".");
+            logger.warning("The following error occurred:");
+            logger.warning(ex.getMessage());
         }
 
         enabled = true;
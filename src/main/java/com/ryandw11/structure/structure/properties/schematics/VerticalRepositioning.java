@@ -2,6 +2,7 @@ package com.ryandw11.structure.structure.properties.schematics;
 
 import com.ryandw11.structure.utils.NumberStylizer;
 import com.ryandw11.structure.utils.Pair;
+import com.ryandw11.structure.utils.SpawnYExpression;
 import org.bukkit.HeightMap;
 import org.bukkit.Location;
 import org.bukkit.configuration.ConfigurationSection;
@@ -15,6 +16,10 @@ public class VerticalRepositioning {
     private final String spawnY;
     private final HeightMap spawnYHeightMap;
     private final String noPointSolution;
+    // The settings compiled when they are created.
+    private final Pair<Integer, Integer> compiledRange;
+    private final SpawnYExpression spawnYExpression;
+    private final SpawnYExpression noPointSpawnY;
 
     /**
      * Construct the settings from a configuration file.
@@ -42,6 +47,10 @@ public class VerticalRepositioning {
             noPointSolution = section.getString("NoPointSolution");
         else
             noPointSolution = "CURRENT";
+
+        this.compiledRange = compileRange(range);
+        this.spawnYExpression = SpawnYExpression.compile(spawnY);
+        this.noPointSpawnY = compileNoPointSolution(noPointSolution);
     }
 
     /**
@@ -51,12 +60,17 @@ public class VerticalRepositioning {
      * @param spawnY          The SpawnY setting for the vertical repositioning.
      * @param heightMap       The height map to pick the top block from.
      * @param noPointSolution What to do when the SpawnY selected is out of the range. (CURRENT, PREVENT_SPAWN, Stylized SpawnY Int (without top)).
+     * @throws com.ryandw11.structure.exceptions.StructureConfigurationException If a SpawnY value is not valid.
+     * @throws NumberFormatException If the range is not valid.
      */
     public VerticalRepositioning(String range, String spawnY, HeightMap heightMap, String noPointSolution) {
         this.range = range;
         this.spawnY = spawnY;
         this.spawnYHeightMap = heightMap;
         this.noPointSolution = noPointSolution;
+        this.compiledRange = compileRange(range);
+        this.spawnYExpression = SpawnYExpression.compile(spawnY);
+        this.noPointSpawnY = compileNoPointSolution(noPointSolution);
     }
 
     /**
@@ -66,10 +80,7 @@ public class VerticalRepositioning {
      */
     @Nullable
     public Pair<Integer, Integer> getRange() {
-        if(range.isEmpty()) {
-            return null;
-        }
-        return NumberStylizer.parseRangedInput(range);
+        return compiledRange;
     }
 
     /**
@@ -88,7 +99,7 @@ public class VerticalRepositioning {
      * @return The location.
      */
     public int getSpawnY(@Nullable Location location) {
-        return NumberStylizer.getStylizedSpawnY(spawnY, location);
+        return spawnYExpression.getHeight(location);
     }
 
     /**
@@ -108,4 +119,30 @@ public class VerticalRepositioning {
     public String getNoPointSolution() {
         return noPointSolution;
     }
+
+    /**
+     * Get the compiled SpawnY value of the no-point solution.
+     *
+     * @return The compiled SpawnY value. (Null if the solution is CURRENT or PREVENT_SPAWN).
+     */
+    @Nullable
+    public SpawnYExpression getNoPointSpawnY() {
+        return noPointSpawnY;
+    }
+
+    @Nullable
+    private static Pair<Integer, Integer> compileRange(String range) {
+        if (range.isEmpty()) {
+            return null;
+        }
+        return NumberStylizer.parseRangedInput(range);
+    }
+
+    @Nullable
+    private static SpawnYExpression compileNoPointSolution(String noPointSolution) {
+        if (noPointSolution.equalsIgnoreCase("CURRENT") || noPointSolution.equalsIgnoreCase("PREVENT_SPAWN")) {
+            return null;
+        }
+        return SpawnYExpression.compile(noPointSolution);
+    }
 }
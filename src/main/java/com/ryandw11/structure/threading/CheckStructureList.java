@@ -33,7 +33,7 @@ public class CheckStructureList extends BukkitRunnable {
                 } else if (handler.getSpawnedStructures().size() - locationsToRemove.size() > MAX_STORED_STRUCTURES)
                     locationsToRemove.add(entry.getKey());
             }
-            handler.getSpawnedStructures().keySet().removeAll(locationsToRemove);
+            locationsToRemove.forEach(handler::removeSpawnedStructure);
         }
     }
 }
@@ -0,0 +1,329 @@
+package com.ryandw11.structure.threading;
+
+import com.ryandw11.structure.CustomStructures;
+import com.ryandw11.structure.io.EvaluatedChunkStore;
+import com.ryandw11.structure.utils.StructurePicker;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates newly loaded chunks for structure spawns.
+ *
+ * <p>Chunks are queued by {@link #queueChunk(Chunk)} and drained every tick until the configured
+ * time budget (<code>SpawnScheduler.TickBudget</code>, in milliseconds) is used up. Duplicate chunks are coalesced and
+ * the queue is bounded by <code>SpawnScheduler.MaxQueueSize</code>. Chunks that were already evaluated (see
+ * {@link EvaluatedChunkStore}) are not queued again.</p>
+ *
+ * <p>While the terrain of a chunk is checked on a separate thread, or the picker waits for the chunks of the check
+ * to load (see {@link StructurePicker#isWaiting()}), the scheduler moves on to the next chunk. Up to <code>SpawnScheduler.MaxTerrainChecks</code> chunks can wait at once.</p>
+ *
+ * <p>This task runs on the main server thread.</p>
+ */
+public class StructureSpawnScheduler extends BukkitRunnable {
+
+    private final CustomStructures plugin;
+    private final LinkedHashSet<ChunkKey> pendingChunks = new LinkedHashSet<>();
+    private final long tickBudgetNanos;
+    private final int maxQueueSize;
+    private final int maxTerrainChecks;
+    private final EvaluatedChunkStore evaluatedChunkStore;
+
+    // The picker for the chunk currently being evaluated. (Can span multiple ticks.)
+    private StructurePicker currentPicker;
+    private ChunkKey currentChunk;
+    // The pickers waiting for a terrain check to finish.
+    private final Map<ChunkKey, StructurePicker> waitingPickers = new LinkedHashMap<>();
+
+    private long queuedChunks;
+    private long coalescedChunks;
+    private long droppedChunks;
+    private long evaluatedChunks;
+    private long terrainChecks;
+    private long testedStructures;
+    private long skippedStructures;
+    private long lastTickNanos;
+
+    private long rateWindowStart = System.nanoTime();
+    private long rateWindowEvaluated;
+    private double drainRate;
+
+    /**
+     * Construct the spawn scheduler.
+     *
+     * <p>For internal use only. Access through {@link com.ryandw11.structure.structure.StructureHandler#getSpawnScheduler()}.</p>
+     *
+     * @param plugin              The instance of the plugin.
+     * @param evaluatedChunkStore The store of evaluated chunks. (Null if disabled).
+     */
+    public StructureSpawnScheduler(CustomStructures plugin, @Nullable EvaluatedChunkStore evaluatedChunkStore) {
+        this.plugin = plugin;
+        this.evaluatedChunkStore = evaluatedChunkStore;
+        this.tickBudgetNanos = (long) (Math.max(0.1, plugin.getConfig().getDouble("SpawnScheduler.TickBudget", 5)) * 1_000_000);
+        this.maxQueueSize = Math.max(1, plugin.getConfig().getInt("SpawnScheduler.MaxQueueSize", 5000));
+        this.maxTerrainChecks = Math.max(1, plugin.getConfig().getInt("SpawnScheduler.MaxTerrainChecks", 16));
+    }
+
+    /**
+     * Queue a chunk to be evaluated for structure spawns.
+     *
+     * @param chunk The chunk to evaluate.
+     * @return If the chunk was queued. (False if it was already queued, already evaluated or the queue is full).
+     */
+    public boolean queueChunk(@NotNull Chunk chunk) {
+        ChunkKey key = new ChunkKey(chunk.getWorld().getUID(), chunk.getX(), chunk.getZ());
+        if (pendingChunks.contains(key) || key.equals(currentChunk) || waitingPickers.containsKey(key)) {
+            coalescedChunks++;
+            return false;
+        }
+        if (evaluatedChunkStore != null && evaluatedChunkStore.isEvaluated(chunk.getWorld(), chunk.getX(), chunk.getZ()))
+            return false;
+        if (pendingChunks.size() >= maxQueueSize) {
+            droppedChunks++;
+            return false;
+        }
+        pendingChunks.add(key);
+        queuedChunks++;
+        return true;
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        long deadline = start + tickBudgetNanos;
+
+        do {
+            if (currentPicker == null && !resumeWaitingPicker()) {
+                // Do not start more chunks while too many terrain checks are running.
+                if (waitingPickers.size() >= maxTerrainChecks)
+                    break;
+                currentPicker = nextPicker();
+                if (currentPicker == null)
+                    break;
+            }
+
+            if (currentPicker.evaluateNext()) {
+                markEvaluated(currentChunk);
+                testedStructures += currentPicker.getEvaluatedStructures();
+                skippedStructures += currentPicker.getSkippedStructures();
+                currentPicker = null;
+                currentChunk = null;
+                evaluatedChunks++;
+                rateWindowEvaluated++;
+            } else if (currentPicker.isWaiting()) {
+                waitingPickers.put(currentChunk, currentPicker);
+                terrainChecks++;
+                currentPicker = null;
+                currentChunk = null;
+            }
+        } while (System.nanoTime() < deadline);
+
+        long now = System.nanoTime();
+        lastTickNanos = now - start;
+
+        // Update the drain rate once a second.
+        if (now - rateWindowStart >= TimeUnit.SECONDS.toNanos(1)) {
+            drainRate = rateWindowEvaluated / ((now - rateWindowStart) / 1e9);
+            rateWindowEvaluated = 0;
+            rateWindowStart = now;
+        }
+    }
+
+    /**
+     * Create a picker for the next loaded chunk in the queue.
+     *
+     * @return The picker for the next chunk. (Null if the queue is empty).
+     */
+    private StructurePicker nextPicker() {
+        Iterator<ChunkKey> iterator = pendingChunks.iterator();
+        while (iterator.hasNext()) {
+            ChunkKey key = iterator.next();
+            iterator.remove();
+
+            World world = Bukkit.getWorld(key.world());
+            // The chunk was unloaded before it could be evaluated.
+            if (world == null || !world.isChunkLoaded(key.x(), key.z())) {
+                droppedChunks++;
+                continue;
+            }
+
+            Chunk chunk = world.getChunkAt(key.x(), key.z());
+            try {
+                StructurePicker picker = new StructurePicker(chunk.getBlock(8, 5, 8), chunk, plugin);
+                currentChunk = key;
+                return picker;
+            } catch (RuntimeException ex) {
+                // ignore, error already logged.
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Continue a picker whose terrain check has finished.
+     *
+     * @return If a picker was resumed.
+     */
+    private boolean resumeWaitingPicker() {
+        Iterator<Map.Entry<ChunkKey, StructurePicker>> iterator = waitingPickers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<ChunkKey, StructurePicker> entry = iterator.next();
+            if (entry.getValue().isWaiting()) continue;
+            iterator.remove();
+
+            ChunkKey key = entry.getKey();
+            World world = Bukkit.getWorld(key.world());
+            // The chunk was unloaded while the terrain was checked.
+            if (world == null || !world.isChunkLoaded(key.x(), key.z())) {
+                droppedChunks++;
+                continue;
+            }
+
+            currentPicker = entry.getValue();
+            currentChunk = key;
+            return true;
+        }
+        return false;
+    }
+
+    private void markEvaluated(ChunkKey key) {
+        if (evaluatedChunkStore == null) return;
+        World world = Bukkit.getWorld(key.world());
+        if (world != null)
+            evaluatedChunkStore.markEvaluated(world, key.x(), key.z());
+    }
+
+    /**
+     * Get the number of chunks waiting to be evaluated.
+     *
+     * @return The number of chunks waiting to be evaluated.
+     */
+    public int getQueueDepth() {
+        return pendingChunks.size() + waitingPickers.size() + (currentPicker == null ? 0 : 1);
+    }
+
+    /**
+     * Get the number of chunks waiting for a terrain check to finish.
+     *
+     * @return The number of chunks waiting for a terrain check.
+     */
+    public int getWaitingChunks() {
+        return waitingPickers.size();
+    }
+
+    /**
+     * Get the total number of terrain checks that were done on a separate thread.
+     *
+     * @return The total number of terrain checks.
+     */
+    public long getTerrainChecks() {
+        return terrainChecks;
+    }
+
+    /**
+     * Get the maximum number of chunks that can wait in the queue.
+     *
+     * @return The maximum queue size.
+     */
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    /**
+     * Get the time budget per tick.
+     *
+     * @return The time budget per tick in milliseconds.
+     */
+    public double getTickBudget() {
+        return tickBudgetNanos / 1e6;
+    }
+
+    /**
+     * Get the total number of chunks that were queued.
+     *
+     * @return The total number of chunks that were queued.
+     */
+    public long getQueuedChunks() {
+        return queuedChunks;
+    }
+
+    /**
+     * Get the number of chunks that were ignored since they were already in the queue.
+     *
+     * @return The number of coalesced chunks.
+     */
+    public long getCoalescedChunks() {
+        return coalescedChunks;
+    }
+
+    /**
+     * Get the number of chunks that were skipped because the queue was full or the chunk was unloaded.
+     *
+     * @return The number of dropped chunks.
+     */
+    public long getDroppedChunks() {
+        return droppedChunks;
+    }
+
+    /**
+     * Get the total number of chunks that were fully evaluated.
+     *
+     * @return The total number of evaluated chunks.
+     */
+    public long getEvaluatedChunks() {
+        return evaluatedChunks;
+    }
+
+    /**
+     * Get the total number of structures whose spawn conditions were tested in the evaluated chunks.
+     *
+     * @return The total number of tested structures.
+     */
+    public long getTestedStructures() {
+        return testedStructures;
+    }
+
+    /**
+     * Get the total number of structures whose spawn conditions did not need to be tested in the evaluated chunks,
+     * since a structure with a higher priority was picked.
+     *
+     * @return The total number of skipped structures.
+     */
+    public long getSkippedStructures() {
+        return skippedStructures;
+    }
+
+    /**
+     * Get the number of chunks evaluated per second.
+     *
+     * @return The number of chunks evaluated per second.
+     */
+    public double getDrainRate() {
+        return drainRate;
+    }
+
+    /**
+     * Get the time spent evaluating chunks during the last tick.
+     *
+     * @return The time spent during the last tick in milliseconds.
+     */
+    public double getLastTickTime() {
+        return lastTickNanos / 1e6;
+    }
+
+    /**
+     * Identifies a chunk in a world.
+     *
+     * @param world The UUID of the world.
+     * @param x     The x coordinate of the chunk.
+     * @param z     The z coordinate of the chunk.
+     */
+    private record ChunkKey(UUID world, int x, int z) {
+    }
+}
@@ -2,6 +2,7 @@ package com.ryandw11.structure.utils;
 
 import com.ryandw11.structure.structure.Structure;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.configuration.ConfigurationSection;
 
 import java.util.Objects;
@@ -11,6 +12,9 @@ import java.util.UUID;
  * General utilities for Custom Structures.
  */
 public class CSUtils {
+    // World#getMinHeight() was added in 1.17, older worlds start at 0.
+    private static final boolean HAS_MIN_HEIGHT = hasMethod(World.class, "getMinHeight");
+
     /**
      * Replace the placeholders on commands in the command group.
      *
@@ -104,4 +108,24 @@ public class CSUtils {
         if (pair.getLeft() + localPin > value) return false;
         return pair.getRight() + localPin > value;
     }
+
+    /**
+     * Get the minimum height of a world.
+     * <p>This is safe to call on versions before 1.17, where the minimum height is always 0.</p>
+     *
+     * @param world The world.
+     * @return The minimum height of the world.
+     */
+    public static int getMinHeight(World world) {
+        return HAS_MIN_HEIGHT ? world.getMinHeight() : 0;
+    }
+
+    private static boolean hasMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        try {
+            clazz.getMethod(name, parameterTypes);
+            return true;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
 }
@@ -0,0 +1,120 @@
+package com.ryandw11.structure.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * An immutable {@link RandomCollection} where the next value can be obtained in constant time.
+ *
+ * <p>The collection uses Vose's alias method. Every value has a column with the probability of the column picking
+ * the value itself, otherwise the column picks its alias. A draw picks a random column and does not allocate.</p>
+ *
+ * <p>Create a frozen collection using {@link RandomCollection#freeze()}.</p>
+ *
+ * @param <E> The type of collection.
+ */
+public final class FrozenRandomCollection<E> {
+    private final Object[] values;
+    private final double[] probability;
+    private final int[] alias;
+    private final Random random;
+
+    /**
+     * Construct the frozen collection.
+     *
+     * @param weights The weights of the values. (All must be above 0).
+     * @param values  The values.
+     * @param random  The random to draw values with.
+     */
+    FrozenRandomCollection(double[] weights, Object[] values, Random random) {
+        int size = values.length;
+        this.values = values;
+        this.probability = new double[size];
+        this.alias = new int[size];
+        this.random = random;
+        if (size == 0) return;
+
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+
+        // Scale the weights so the average column has a probability of 1.
+        double[] scaled = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallSize = 0;
+        int largeSize = 0;
+        for (int i = 0; i < size; i++) {
+            scaled[i] = weights[i] * size / total;
+            if (scaled[i] < 1)
+                small[smallSize++] = i;
+            else
+                large[largeSize++] = i;
+        }
+
+        while (smallSize > 0 && largeSize > 0) {
+            int less = small[--smallSize];
+            int more = large[--largeSize];
+            probability[less] = scaled[less];
+            alias[less] = more;
+            // The large value fills the rest of the small column.
+            scaled[more] = (scaled[more] + scaled[less]) - 1;
+            if (scaled[more] < 1)
+                small[smallSize++] = more;
+            else
+                large[largeSize++] = more;
+        }
+
+        // The remaining columns are (up to rounding errors) full.
+        while (largeSize > 0) {
+            probability[large[--largeSize]] = 1;
+        }
+        while (smallSize > 0) {
+            probability[small[--smallSize]] = 1;
+        }
+    }
+
+    /**
+     * Get the next value randomly based upon defined probabilities.
+     *
+     * @return The next value. (Null if the collection is empty).
+     */
+    @SuppressWarnings("unchecked")
+    public E next() {
+        if (values.length == 0) return null;
+        double value = random.nextDouble() * values.length;
+        int column = (int) value;
+        return (E) (value - column < probability[column] ? values[column] : values[alias[column]]);
+    }
+
+    /**
+     * Check if the collection is empty.
+     *
+     * @return If the collection is empty.
+     */
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+    /**
+     * Get the number of values in the collection.
+     *
+     * @return The number of values.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Convert the collection into a list.
+     *
+     * @return A list of values.
+     */
+    @SuppressWarnings("unchecked")
+    public List<E> toList() {
+        return new ArrayList<>((List<E>) Arrays.asList(values));
+    }
+}
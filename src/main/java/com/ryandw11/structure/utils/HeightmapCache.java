@@ -0,0 +1,95 @@
+package com.ryandw11.structure.utils;
+
+import org.bukkit.HeightMap;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Caches the height maps of a chunk during the evaluation of the chunk.
+ *
+ * <p>Every structure that is evaluated in a chunk looks up the highest block of the chunk. Structures that use the
+ * same {@link HeightMap} share the lookups. Each height map type has an array with the 256 columns of the chunk,
+ * which is filled as columns are looked up. Columns outside the chunk are not cached.</p>
+ *
+ * <p>The heights are looked up in the world by default. While a chunk is generated, they can be looked up through
+ * a {@link HeightLookup} instead (such as a {@link org.bukkit.generator.LimitedRegion}, which only exists since 1.17).</p>
+ *
+ * <p>This class is not thread safe. A new cache is created for every evaluation, so it never contains outdated
+ * heights.</p>
+ */
+public final class HeightmapCache {
+
+    private static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private final HeightLookup heightLookup;
+    private final int chunkX;
+    private final int chunkZ;
+    private final int[][] heights = new int[HeightMap.values().length][];
+
+    /**
+     * Create a height map cache for a chunk of a world.
+     *
+     * @param world  The world to look up the heights in.
+     * @param chunkX The x coordinate of the chunk.
+     * @param chunkZ The z coordinate of the chunk.
+     */
+    public HeightmapCache(@NotNull World world, int chunkX, int chunkZ) {
+        this(world::getHighestBlockYAt, chunkX, chunkZ);
+    }
+
+    /**
+     * Create a height map cache for a chunk.
+     *
+     * @param heightLookup Looks up the heights that are not cached.
+     * @param chunkX       The x coordinate of the chunk.
+     * @param chunkZ       The z coordinate of the chunk.
+     */
+    public HeightmapCache(@NotNull HeightLookup heightLookup, int chunkX, int chunkZ) {
+        this.heightLookup = heightLookup;
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+    }
+
+    /**
+     * Get the y coordinate of the highest block of a column.
+     *
+     * @param x         The x coordinate of the column.
+     * @param z         The z coordinate of the column.
+     * @param heightMap The height map to use.
+     * @return The y coordinate of the highest block.
+     */
+    public int getHighestBlockYAt(int x, int z, @NotNull HeightMap heightMap) {
+        if (x >> 4 != chunkX || z >> 4 != chunkZ)
+            return heightLookup.getHighestBlockYAt(x, z, heightMap);
+
+        int[] columns = heights[heightMap.ordinal()];
+        if (columns == null) {
+            columns = new int[256];
+            Arrays.fill(columns, UNKNOWN);
+            heights[heightMap.ordinal()] = columns;
+        }
+
+        int index = ((z & 15) << 4) | (x & 15);
+        if (columns[index] == UNKNOWN)
+            columns[index] = heightLookup.getHighestBlockYAt(x, z, heightMap);
+        return columns[index];
+    }
+
+    /**
+     * Looks up the highest block of a column.
+     */
+    @FunctionalInterface
+    public interface HeightLookup {
+        /**
+         * Get the y coordinate of the highest block of a column.
+         *
+         * @param x         The x coordinate of the column.
+         * @param z         The z coordinate of the column.
+         * @param heightMap The height map to use.
+         * @return The y coordinate of the highest block.
+         */
+        int getHighestBlockYAt(int x, int z, @NotNull HeightMap heightMap);
+    }
+}
@@ -54,6 +54,25 @@ public final class NumberStylizer {
         }
     }
 
+    /**
+     * Parse a random range or an exact number into the lower and upper value.
+     *
+     * <p>This follows the format of {@link #getStylizedInt(String)}, so it can be parsed once and picked from
+     * many times. An exact number has the same lower and upper value.</p>
+     *
+     * @param input The String input.
+     * @return The Pair containing the lower and upper integers.
+     * @throws NumberFormatException If the input is not a number or a range, or if the first number of a range is
+     *                               greater than the second number.
+     */
+    public static Pair<Integer, Integer> parseStylizedInt(String input) {
+        if (input.contains(";"))
+            return parseRangedInput(input);
+
+        int num = Integer.parseInt(input.trim());
+        return Pair.of(num, num);
+    }
+
     /**
      * Parse an int range into the lower and upper value.
      *
@@ -125,116 +144,16 @@ public final class NumberStylizer {
     /**
      * Stylize a SpawnY Value.
      *
+     * <p>This parses the value on every call. Compile the value once with {@link SpawnYExpression#compile(String)}
+     * when it is used many times.</p>
+     *
      * @param value    The SpawnY Value.
      * @param location The location of the "top" block.
      * @return The location of the top block.
+     * @throws StructureConfigurationException If the value is not valid, or if the location is null and the value
+     *                                         is not absolute.
      */
     public static int getStylizedSpawnY(String value, @Nullable Location location) {
-        boolean top = value.equalsIgnoreCase("top");
-
-        // Ensure that the spawnY is configured correctly for the void.
-        if (location == null) {
-            if (top) throw new StructureConfigurationException("A structure that can spawn in the void must have an " +
-                    "absolute spawn y value. Top is not absolute.");
-            if (value.startsWith("+"))
-                throw new StructureConfigurationException("A structure that can spawn in the void must have an " +
-                        "absolute spawn y value. Relative value is not absolute.");
-            if (value.startsWith("-"))
-                throw new StructureConfigurationException("A structure that can spawn in the void must have an " +
-                        "absolute spawn y value. Relative value is not absolute.");
-        }
-
-        // Get the highest block at the specified location.
-        int currentHeight = -1;
-        if (location != null) {
-            currentHeight = location.getBlockY();
-        }
-
-        if (top) return currentHeight;
-        // If it is a range
-        if (value.contains(";")) {
-            //If +[num;num]
-            if (value.startsWith("+")) {
-                String v = value.replace("[", "").replace("]", "").replace("+", "");
-                String[] out = v.split(";");
-                try {
-                    int num1 = Integer.parseInt(out[0]);
-                    int num2 = Integer.parseInt(out[1]);
-
-                    if (num1 > num2)
-                        throw new StructureConfigurationException("SpawnY Value 1 must be greater than value 2 in '[value1;value2]'.");
-
-                    int randomValue = ThreadLocalRandom.current().nextInt(num1, num2 + 1);
-                    return currentHeight + randomValue;
-
-                } catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
-                    return currentHeight;
-                }
-            }
-            // if -[num;num]
-            else if (value.startsWith("-")) {
-                String v = value.replace("[", "").replace("]", "").replace("-", "");
-                String[] out = v.split(";");
-                try {
-                    int num1 = Integer.parseInt(out[0]);
-                    int num2 = Integer.parseInt(out[1]);
-
-                    if (num1 > num2)
-                        throw new StructureConfigurationException("SpawnY Value 1 must be greater than value 2 in '[value1;value2]'.");
-
-                    int randomValue = ThreadLocalRandom.current().nextInt(num1, num2 + 1);
-                    return currentHeight - randomValue;
-
-                } catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
-                    return currentHeight;
-                }
-            }
-            // if just [num;num]
-            else {
-                String v = value.replace("[", "").replace("]", "");
-                String[] out = v.split(";");
-                try {
-                    int num1 = Integer.parseInt(out[0]);
-                    int num2 = Integer.parseInt(out[1]);
-
-                    if (num1 > num2)
-                        throw new StructureConfigurationException("SpawnY Value 1 must be greater than value 2 in '[value1;value2]'.");
-
-                    return ThreadLocalRandom.current().nextInt(num1, num2 + 1);
-
-                } catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
-                    return currentHeight;
-                }
-            }
-        }
-        // if +[num]
-        else if (value.startsWith("+[")) {
-            String v = value.replace("+", "").replace("[", "").replace("]", "");
-            try {
-                int num = Integer.parseInt(v);
-                return currentHeight + num;
-            } catch (NumberFormatException ex) {
-                return currentHeight;
-            }
-        }
-        // if -[num]
-        else if (value.startsWith("-[")) {
-            String v = value.replace("-", "").replace("[", "").replace("]", "");
-
-            try {
-                int num = Integer.parseInt(v);
-                return currentHeight - num;
-            } catch (NumberFormatException ex) {
-                return currentHeight;
-            }
-        }
-        // if just num
-        else {
-            try {
-                return Integer.parseInt(value);
-            } catch (NumberFormatException ex) {
-                return currentHeight;
-            }
-        }
+        return SpawnYExpression.compile(value).getHeight(location);
     }
 }
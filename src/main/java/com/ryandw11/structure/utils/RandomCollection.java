@@ -29,12 +29,17 @@ import java.util.*;
  *     </tr>
  * </table>
  *
+ * <p>Values are drawn from a {@link FrozenRandomCollection} that is created on the first draw after the collection
+ * is modified, so each draw takes constant time.</p>
+ *
  * @param <E> The type of collection.
  */
 public class RandomCollection<E> {
     private final NavigableMap<Double, E> map = new TreeMap<>();
     private final Random random;
     private double total = 0;
+    // The frozen copy of the map that values are drawn from. (Null if the map was modified).
+    private volatile FrozenRandomCollection<E> frozen;
 
     /**
      * Construct the random collection with a new random.
@@ -67,6 +72,7 @@ public class RandomCollection<E> {
             return this;
         total += weight;
         map.put(total, result);
+        frozen = null;
         return this;
     }
 
@@ -79,8 +85,36 @@ public class RandomCollection<E> {
      * @return The next value.
      */
     public E next() {
-        double value = random.nextDouble() * total;
-        return map.higherEntry(value).getValue();
+        FrozenRandomCollection<E> frozenCollection = frozen;
+        // The internal map can be modified through getMap().
+        if (frozenCollection == null || frozenCollection.size() != map.size()) {
+            frozenCollection = freeze();
+            frozen = frozenCollection;
+        }
+        if (frozenCollection.isEmpty())
+            throw new NoSuchElementException("The collection is empty.");
+        return frozenCollection.next();
+    }
+
+    /**
+     * Create an immutable copy of the collection that can draw values in constant time.
+     *
+     * <p>The copy uses the random of this collection.</p>
+     *
+     * @return The frozen collection.
+     */
+    public FrozenRandomCollection<E> freeze() {
+        double[] weights = new double[map.size()];
+        Object[] values = new Object[map.size()];
+        double previous = 0;
+        int i = 0;
+        for (Map.Entry<Double, E> entry : map.entrySet()) {
+            weights[i] = entry.getKey() - previous;
+            values[i] = entry.getValue();
+            previous = entry.getKey();
+            i++;
+        }
+        return new FrozenRandomCollection<>(weights, values, random);
     }
 
     /**
@@ -0,0 +1,148 @@
+package com.ryandw11.structure.utils;
+
+import com.ryandw11.structure.exceptions.StructureConfigurationException;
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A compiled SpawnY value.
+ *
+ * <p>The value is parsed once, so finding the height is only arithmetic and (for ranges) one random draw.</p>
+ * <p>
+ * Valid Inputs:
+ * <p>
+ * top      --> The height of the top block.
+ * 10       --> The number 10.
+ * [4;10]   --> A random number between 4 and 10.
+ * +[5]     --> 5 blocks above the top block. (-[5] for below).
+ * +[4;10]  --> A random number of blocks between 4 and 10 above the top block. (-[4;10] for below).
+ * <p>
+ * This class is immutable.
+ */
+public final class SpawnYExpression {
+
+    private final String value;
+    private final Type type;
+    private final int min;
+    private final int max;
+
+    private SpawnYExpression(String value, Type type, int min, int max) {
+        this.value = value;
+        this.type = type;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Compile a SpawnY value.
+     *
+     * @param value The SpawnY value.
+     * @return The compiled value.
+     * @throws StructureConfigurationException If the value is not a valid SpawnY value.
+     */
+    @NotNull
+    public static SpawnYExpression compile(@NotNull String value) {
+        String trimmed = value.trim();
+        if (trimmed.equalsIgnoreCase("top"))
+            return new SpawnYExpression(value, Type.TOP, 0, 0);
+
+        // +[num], -[num], +[num;num] and -[num;num] are relative to the top block.
+        boolean relative = trimmed.startsWith("+[") || trimmed.startsWith("-[")
+                || ((trimmed.startsWith("+") || trimmed.startsWith("-")) && trimmed.contains(";"));
+        int sign = relative && trimmed.startsWith("-") ? -1 : 1;
+        String numbers = (relative ? trimmed.substring(1) : trimmed).replace("[", "").replace("]", "");
+
+        String[] parts = numbers.split(";");
+        if (parts.length > 2)
+            throw new StructureConfigurationException("Invalid SpawnY value '" + value + "'.");
+        int first;
+        int second;
+        try {
+            first = Integer.parseInt(parts[0].trim());
+            second = parts.length == 2 ? Integer.parseInt(parts[1].trim()) : first;
+        } catch (NumberFormatException ex) {
+            throw new StructureConfigurationException("Invalid SpawnY value '" + value + "'.");
+        }
+        if (first > second)
+            throw new StructureConfigurationException("SpawnY Value 1 must be greater than value 2 in '[value1;value2]'.");
+
+        // The offsets below the top block are stored as negative offsets.
+        return sign < 0
+                ? new SpawnYExpression(value, Type.RELATIVE, -second, -first)
+                : new SpawnYExpression(value, relative ? Type.RELATIVE : Type.ABSOLUTE, first, second);
+    }
+
+    /**
+     * Get the height from the SpawnY value.
+     *
+     * @param location The location of the top block. (Null if the structure spawns in the void).
+     * @return The height.
+     * @throws StructureConfigurationException If the structure spawns in the void and the value is not absolute.
+     */
+    public int getHeight(@Nullable Location location) {
+        if (location == null) {
+            if (type == Type.TOP)
+                throw new StructureConfigurationException("A structure that can spawn in the void must have an " +
+                        "absolute spawn y value. Top is not absolute.");
+            if (type == Type.RELATIVE)
+                throw new StructureConfigurationException("A structure that can spawn in the void must have an " +
+                        "absolute spawn y value. Relative value is not absolute.");
+            return pick();
+        }
+        return getHeight(location.getBlockY());
+    }
+
+    /**
+     * Get the height from the SpawnY value.
+     *
+     * @param topY The y coordinate of the top block.
+     * @return The height.
+     */
+    public int getHeight(int topY) {
+        return switch (type) {
+            case TOP -> topY;
+            case RELATIVE -> topY + pick();
+            case ABSOLUTE -> pick();
+        };
+    }
+
+    /**
+     * Get if the value is the top block.
+     *
+     * @return If the value is top.
+     */
+    public boolean isTop() {
+        return type == Type.TOP;
+    }
+
+    /**
+     * Get if the value does not depend on the top block.
+     *
+     * @return If the value is absolute.
+     */
+    public boolean isAbsolute() {
+        return type == Type.ABSOLUTE;
+    }
+
+    /**
+     * Get the raw SpawnY value.
+     *
+     * @return The raw value.
+     */
+    public String getValue() {
+        return value;
+    }
+
+    private int pick() {
+        return min == max ? min : ThreadLocalRandom.current().nextInt(min, max + 1);
+    }
+
+    private enum Type {
+        TOP,
+        ABSOLUTE,
+        RELATIVE
+    }
+}
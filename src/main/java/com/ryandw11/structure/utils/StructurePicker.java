@@ -8,38 +8,51 @@ import com.ryandw11.structure.schematic.SchematicHandler;
 import com.ryandw11.structure.structure.PriorityStructureQueue;
 import com.ryandw11.structure.structure.Structure;
 import com.ryandw11.structure.structure.StructureHandler;
-import com.ryandw11.structure.structure.properties.BlockLevelLimit;
 import com.ryandw11.structure.structure.properties.StructureYSpawning;
-import com.sk89q.worldedit.WorldEditException;
+import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
 import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class prevents the server from crashing when it attempts to pick a
  * structure.
  * <p>
- * The server will still lag a bit thanks to the nature of 1.14.
+ * Each call to {@link #evaluateNext()} tests a single structure from the queue. The pickers are driven by the
+ * {@link com.ryandw11.structure.threading.StructureSpawnScheduler}.
  * </p>
  *
  * @author Ryandw11
  */
-public class StructurePicker extends BukkitRunnable {
+public class StructurePicker {
+
+    // How long to wait for the chunks of a terrain check to load.
+    private static final long CHUNK_WAIT_NANOS = TimeUnit.SECONDS.toNanos(5);
 
     private final CustomStructures plugin;
 
     private final PriorityStructureQueue priorityStructureQueue;
+    private final HeightmapCache heightmapCache;
     private final IgnoreBlocks ignoreBlocks;
 
     private final Block bl;
     private final Chunk ch;
     // Variable that contains the structureBlock of the current structure being processed.
     private Block structureBlock;
+    // The terrain check running on a separate thread, and the structure it is for.
+    private CompletableFuture<OptionalInt> pendingTerrainCheck;
+    private Structure pendingStructure;
+    // When to stop waiting for the chunks of the terrain check to load.
+    private long chunkDeadline;
 
     public StructurePicker(@Nullable Block bl, Chunk ch, CustomStructures plugin) {
         this.plugin = plugin;
@@ -54,16 +67,38 @@ public class StructurePicker extends BukkitRunnable {
             throw new RuntimeException("Plugin Not Initialized.");
         }
 
-        priorityStructureQueue = new PriorityStructureQueue(structureHandler.getStructures(), Objects.requireNonNull(bl), ch);
+        heightmapCache = new HeightmapCache(ch.getWorld(), ch.getX(), ch.getZ());
+        priorityStructureQueue = new PriorityStructureQueue(structureHandler.getCandidateIndex().getCandidates(ch, heightmapCache),
+                Objects.requireNonNull(bl), ch, heightmapCache);
     }
 
-    @Override
-    public void run() {
-        Structure gStructure = null;
+    /**
+     * Evaluate the next structure in the queue and schedule it to be pasted if it can spawn.
+     *
+     * <p>The terrain conditions of structures that read a large area (see {@link TerrainCheck#readsFootprint}) are
+     * tested on snapshots of the chunks on a separate thread. The chunks are not loaded for this: the picker waits
+     * a few seconds for them to load, otherwise the structure cannot spawn. While the picker waits for the chunks
+     * or the check, {@link #isWaiting()} is true and this method returns false.</p>
+     *
+     * @return If the picker is finished. (A structure was picked or there are no more structures to test).
+     */
+    public boolean evaluateNext() {
+        Structure gStructure = pendingStructure;
         try {
+            if (pendingTerrainCheck != null) {
+                if (!pendingTerrainCheck.isDone()) return false;
+                OptionalInt spawnY = pendingTerrainCheck.join();
+                pendingTerrainCheck = null;
+                pendingStructure = null;
+                return finishEvaluation(gStructure, spawnY);
+            }
+            if (pendingStructure != null) {
+                // The chunks of the terrain check were not loaded.
+                return startTerrainCheck(pendingStructure);
+            }
+
             if (!priorityStructureQueue.hasNextStructure()) {
-                this.cancel();
-                return;
+                return true;
             }
 
             gStructure = priorityStructureQueue.getNextStructure();
@@ -72,7 +107,7 @@ public class StructurePicker extends BukkitRunnable {
             StructureYSpawning structureSpawnSettings = structure.getStructureLocation().getSpawnSettings();
 
             // Get the highest block according to the settings for the structure.
-            structureBlock = structureSpawnSettings.getHighestBlock(bl.getLocation());
+            structureBlock = structureSpawnSettings.getHighestBlock(bl.getLocation(), heightmapCache);
 
             // If the block is the void, then set it to null to maintain compatibility.
             if (structureBlock.getType() == Material.VOID_AIR) {
@@ -83,160 +118,178 @@ public class StructurePicker extends BukkitRunnable {
             if (structureBlock == null) {
                 structureBlock = ch.getBlock(8, structureSpawnSettings.getHeight(null), 8);
                 // Now to finally paste the schematic
-                plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, () -> {
-                    // It is assumed at this point that the structure has been spawned.
-                    // Add it to the list of spawned structures.
-                    plugin.getStructureHandler().putSpawnedStructure(structureBlock.getLocation(),
-                            structure);
-                    try {
-                        SchematicHandler.placeSchematic(structureBlock.getLocation(),
-                                structure.getSchematic(),
-                                structure.getStructureProperties().canPlaceAir(),
-                                structure);
-                    } catch (IOException | WorldEditException e) {
-                        e.printStackTrace();
-                    }
-                });
-
-                // Cancel the process and return.
-                this.cancel();
-                return;
+                return scheduleSpawn(structure);
             }
 
-            // Allows the structures to no longer spawn on plant life.
-            if (structure.getStructureProperties().isIgnoringPlants() && ignoreBlocks.getBlocks().contains(structureBlock.getType())) {
-                for (int i = structureBlock.getY(); i >= 4; i--) {
-                    if (!ignoreBlocks.getBlocks().contains(ch.getBlock(8, i, 8).getType()) && !ch.getBlock(8, i, 8).getType().isAir()) {
-                        structureBlock = ch.getBlock(8, i, 8);
-                        break;
-                    }
-                }
-            }
+            World world = ch.getWorld();
+            int x = structureBlock.getX();
+            int y = structureBlock.getY();
+            int z = structureBlock.getZ();
+            Set<Material> ignoredBlocks = ignoreBlocks.getBlocks();
 
-            // calculate SpawnY if first is true
-            if (structureSpawnSettings.isCalculateSpawnYFirst()) {
-                structureBlock = ch.getBlock(8, structureSpawnSettings.getHeight(structureBlock.getLocation()), 8);
+            if (TerrainCheck.readsFootprint(structure, structureBlock.getType(), ignoredBlocks)) {
+                chunkDeadline = System.nanoTime() + CHUNK_WAIT_NANOS;
+                return startTerrainCheck(structure);
             }
 
-            if (!structure.getStructureLimitations().hasWhitelistBlock(structureBlock))
-                return;
-
-            if (structure.getStructureLimitations().hasBlacklistBlock(structureBlock))
-                return;
+            return finishEvaluation(structure, TerrainCheck.check(structure, world::getType, world, x, y, z, ignoredBlocks));
+        } catch (CompletionException ex) {
+            return handleError(gStructure, ex.getCause() != null ? ex.getCause() : ex);
+        } catch (Exception ex) {
+            return handleError(gStructure, ex);
+        }
+    }
 
-            // If it can spawn in water
-            if (!structure.getStructureProperties().canSpawnInWater()) {
-                if (structureBlock.getType() == Material.WATER) return;
-            }
+    /**
+     * Get the number of structures whose spawn conditions were tested.
+     *
+     * @return The number of tested structures.
+     */
+    public int getEvaluatedStructures() {
+        return priorityStructureQueue.getEvaluatedStructures();
+    }
 
-            // If the structure can spawn in lava
-            if (!structure.getStructureProperties().canSpawnInLavaLakes()) {
-                if (structureBlock.getType() == Material.LAVA) return;
-            }
+    /**
+     * Get the number of structures whose spawn conditions were not tested, since a structure with a higher
+     * priority was picked.
+     *
+     * @return The number of structures that were not tested.
+     */
+    public int getSkippedStructures() {
+        return priorityStructureQueue.getSkippedStructures();
+    }
 
-            // calculate SpawnY if first is false
-            if (!structureSpawnSettings.isCalculateSpawnYFirst()) {
-                structureBlock = ch.getBlock(8, structureSpawnSettings.getHeight(structureBlock.getLocation()), 8);
-            }
+    /**
+     * Check if the picker is waiting for a terrain check to finish (or for the chunks of the check to load).
+     *
+     * @return If the picker is waiting.
+     */
+    public boolean isWaiting() {
+        if (pendingTerrainCheck != null)
+            return !pendingTerrainCheck.isDone();
+        return pendingStructure != null && System.nanoTime() < chunkDeadline
+                && !TerrainCheck.isLoaded(ch.getWorld(), pendingStructure, structureBlock.getX(), structureBlock.getZ());
+    }
 
-            // If the structure is going to be cut off by the world height limit, pick a new structure.
-            if (structure.getStructureLimitations().getWorldHeightRestriction() != -1 &&
-                    structureBlock.getLocation().getY() > ch.getWorld().getMaxHeight() - structure.getStructureLimitations().getWorldHeightRestriction())
-                return;
-
-            // If the structure can follows block level limit.
-            // This only triggers if it spawns on the top.
-            if (structure.getStructureLimitations().getBlockLevelLimit().isEnabled()) {
-                BlockLevelLimit limit = structure.getStructureLimitations().getBlockLevelLimit();
-                if (limit.getMode().equalsIgnoreCase("flat")) {
-                    for (int x = limit.getX1() + structureBlock.getX(); x <= limit.getX2() + structureBlock.getX(); x++) {
-                        for (int z = limit.getZ1() + structureBlock.getZ(); z <= limit.getZ2() + structureBlock.getZ(); z++) {
-                            Block top = ch.getWorld().getBlockAt(x, structureBlock.getY() + 1, z);
-                            Block bottom = ch.getWorld().getBlockAt(x, structureBlock.getY() - 1, z);
-                            if (!(top.getType().isAir() || ignoreBlocks.getBlocks().contains(top.getType())))
-                                return;
-                            if (bottom.getType().isAir())
-                                return;
-                        }
-                    }
-                } else if (limit.getMode().equalsIgnoreCase("flat_error")) {
-                    int total = 0;
-                    int error = 0;
-                    for (int x = limit.getX1() + structureBlock.getX(); x <= limit.getX2() + structureBlock.getX(); x++) {
-                        for (int z = limit.getZ1() + structureBlock.getZ(); z <= limit.getZ2() + structureBlock.getZ(); z++) {
-                            Block top = ch.getWorld().getBlockAt(x, structureBlock.getY() + 1, z);
-                            Block bottom = ch.getWorld().getBlockAt(x, structureBlock.getY() - 1, z);
-                            if (!(top.getType().isAir() || ignoreBlocks.getBlocks().contains(top.getType())))
-                                error++;
-                            if (bottom.getType().isAir())
-                                error++;
-
-                            total += 2;
-                        }
-                    }
-
-                    if (((double) error / total) > limit.getError())
-                        return;
-                }
-            }
+    /**
+     * Capture the chunks of the terrain check and start it on a separate thread.
+     * <p>Chunks are not loaded for the terrain check. If they are not loaded, the picker waits for them
+     * (see {@link #isWaiting()}) until the deadline passes, then the structure cannot spawn.</p>
+     *
+     * @param structure The structure.
+     * @return If the picker is finished. (Always false).
+     */
+    private boolean startTerrainCheck(Structure structure) {
+        World world = ch.getWorld();
+        int x = structureBlock.getX();
+        int y = structureBlock.getY();
+        int z = structureBlock.getZ();
+        Set<Material> ignoredBlocks = ignoreBlocks.getBlocks();
+
+        // Capture the chunks now, the blocks are read on a separate thread.
+        TerrainCheck.TerrainView terrain = TerrainCheck.capture(world, structure, x, z);
+        if (terrain == null) {
+            pendingStructure = System.nanoTime() < chunkDeadline ? structure : null;
+            return false;
+        }
+        pendingStructure = structure;
+        pendingTerrainCheck = CompletableFuture.supplyAsync(
+                () -> TerrainCheck.check(structure, terrain, world, x, y, z, ignoredBlocks),
+                task -> Bukkit.getScheduler().runTaskAsynchronously(plugin, task));
+        return false;
+    }
 
-            for (StructureSection section : structure.getStructureSections()) {
-                // Check if the structure can spawn according to the section.
-                // If an error occurs, report it to the user.
-                try {
-                    if (!section.checkStructureConditions(structure, structureBlock, ch)) return;
-                } catch (Exception ex) {
-                    plugin.getLogger().severe(String.format("[CS Addon] An error has occurred when attempting to spawn " +
-                            "the structure %s with the custom property %s!", structure.getName(), section.getName()));
-                    plugin.getLogger().severe("This is not a CustomStructures error! Please report " +
-                            "this to the developer of the addon.");
-                    if (plugin.isDebug()) {
-                        ex.printStackTrace();
-                    } else {
-                        plugin.getLogger().severe("Enable debug mode to see the stack trace.");
-                    }
-                    return;
+    /**
+     * Test the conditions of the addon sections and schedule the structure to be pasted.
+     *
+     * @param structure The structure.
+     * @param spawnY    The result of the terrain check.
+     * @return If the picker is finished.
+     */
+    private boolean finishEvaluation(Structure structure, OptionalInt spawnY) {
+        if (spawnY.isEmpty())
+            return false;
+        structureBlock = ch.getWorld().getBlockAt(structureBlock.getX(), spawnY.getAsInt(), structureBlock.getZ());
+
+        for (StructureSection section : structure.getStructureSections()) {
+            // Check if the structure can spawn according to the section.
+            // If an error occurs, report it to the user.
+            try {
+                if (!section.checkStructureConditions(structure, structureBlock, ch)) return false;
+            } catch (Exception ex) {
+                plugin.getLogger().severe(String.format("[CS Addon] An error has occurred when attempting to spawn " +
+                        "the structure %s with the custom property %s!", structure.getName(), section.getName()));
+                plugin.getLogger().severe("This is not a CustomStructures error! Please report " +
+                        "this to the developer of the addon.");
+                if (plugin.isDebug()) {
+                    ex.printStackTrace();
+                } else {
+                    plugin.getLogger().severe("Enable debug mode to see the stack trace.");
                 }
+                return false;
             }
+        }
 
-            // Now to finally paste the schematic
-            plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, () -> {
-                // It is assumed at this point that the structure has been spawned.
-                // Add it to the list of spawned structures.
-                plugin.getStructureHandler().putSpawnedStructure(structureBlock.getLocation(),
-                        structure);
-                try {
-                    SchematicHandler.placeSchematic(structureBlock.getLocation(),
-                            structure.getSchematic(),
-                            structure.getStructureProperties().canPlaceAir(),
-                            structure);
-                } catch (IOException | WorldEditException e) {
-                    e.printStackTrace();
-                }
-            });
-
-            this.cancel();// return after pasting
-        } catch (StructureConfigurationException ex) {
+        // Now to finally paste the schematic
+        return scheduleSpawn(structure);
+    }
 
-            this.cancel();
-            if (gStructure != null) {
+    /**
+     * Report an error that occurred while evaluating a structure.
+     *
+     * @param structure The structure that was evaluated. (Can be null).
+     * @param ex        The error.
+     * @return If the picker is finished. (Always true).
+     */
+    private boolean handleError(@Nullable Structure structure, Throwable ex) {
+        pendingTerrainCheck = null;
+        pendingStructure = null;
+        if (ex instanceof StructureConfigurationException) {
+            if (structure != null) {
                 plugin.getLogger().severe("A configuration error was encountered when attempting to spawn the structure: "
-                        + gStructure.getName());
+                        + structure.getName());
             } else {
                 plugin.getLogger().severe("A configuration error was encountered when attempting to spawn a structure.");
             }
             plugin.getLogger().severe(ex.getMessage());
+            return true;
+        }
 
-        } catch (Exception ex) {
+        plugin.getLogger().severe("An error was encountered during the schematic pasting section.");
+        plugin.getLogger().severe("The task was stopped for the safety of your server!");
+        plugin.getLogger().severe("For more information enable debug mode.");
+        if (plugin.isDebug())
+            ex.printStackTrace();
+        return true;
+    }
 
-            this.cancel();
-            plugin.getLogger().severe("An error was encountered during the schematic pasting section.");
-            plugin.getLogger().severe("The task was stopped for the safety of your server!");
-            plugin.getLogger().severe("For more information enable debug mode.");
-            if (plugin.isDebug())
+    /**
+     * Add the structure to the list of spawned structures and start pasting it.
+     *
+     * @param structure The structure to spawn at the current structure block.
+     * @return If the structure is spawning. (False if another structure spawned too close to it).
+     */
+    private boolean scheduleSpawn(Structure structure) {
+        Block spawnBlock = structureBlock;
+        // Other structures could have spawned nearby while the terrain was checked (or on a generation thread).
+        // Add it to the list of spawned structures right away so other chunks evaluated
+        // during the same tick respect the distance limitations.
+        if (!plugin.getStructureHandler().putSpawnedStructureIfValid(spawnBlock.getLocation(), structure))
+            return false;
+        SchematicHandler.placeSchematicAsync(spawnBlock.getLocation(),
+                structure.getSchematic(),
+                structure.getStructureProperties().canPlaceAir(),
+                structure).exceptionally(ex -> {
+            plugin.getLogger().severe("An error was encountered when attempting to paste the structure: " + structure.getName());
+            plugin.getLogger().severe(ex.getCause() != null ? ex.getCause().getMessage() : ex.getMessage());
+            if (plugin.isDebug()) {
                 ex.printStackTrace();
-
-        }
+            } else {
+                plugin.getLogger().severe("Enable debug mode to see the stack trace.");
+            }
+            return null;
+        });
+        return true;
     }
 
 }
@@ -0,0 +1,231 @@
+package com.ryandw11.structure.utils;
+
+import com.ryandw11.structure.structure.Structure;
+import com.ryandw11.structure.structure.properties.BlockLevelLimit;
+import com.ryandw11.structure.structure.properties.StructureYSpawning;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+
+/**
+ * The terrain conditions of a structure: plant skipping, SpawnY, the whitelist and blacklist of spawn blocks, water,
+ * lava, the world height restriction and the block level limit.
+ *
+ * <p>The conditions only read the types of blocks through a {@link TerrainView}. This allows them to be tested
+ * against the world, the region of a chunk that is being generated, or snapshots of chunks on another thread.</p>
+ */
+public final class TerrainCheck {
+
+    private TerrainCheck() {
+    }
+
+    /**
+     * Reads the types of blocks for the terrain conditions.
+     */
+    @FunctionalInterface
+    public interface TerrainView {
+        /**
+         * Get the type of a block.
+         *
+         * @param x The x coordinate of the block.
+         * @param y The y coordinate of the block. (Always inside the height of the world).
+         * @param z The z coordinate of the block.
+         * @return The type of the block.
+         */
+        Material getType(int x, int y, int z);
+    }
+
+    /**
+     * Check if the terrain conditions of a structure read more than a few blocks.
+     *
+     * <p>This is the case for structures with a block level limit, or structures that ignore plants and are on top
+     * of a plant.</p>
+     *
+     * @param structure    The structure.
+     * @param topType      The type of the highest block.
+     * @param ignoreBlocks The blocks that are considered plants.
+     * @return If the terrain conditions read the footprint of the structure.
+     */
+    public static boolean readsFootprint(@NotNull Structure structure, @NotNull Material topType, @NotNull Set<Material> ignoreBlocks) {
+        return structure.getStructureLimitations().getBlockLevelLimit().isEnabled()
+                || (structure.getStructureProperties().isIgnoringPlants() && ignoreBlocks.contains(topType));
+    }
+
+    /**
+     * Check if the chunks that the terrain conditions of a structure read are loaded.
+     *
+     * <p>This method is to be called on the main Server thread.</p>
+     *
+     * @param world     The world.
+     * @param structure The structure.
+     * @param x         The x coordinate of the spawn column.
+     * @param z         The z coordinate of the spawn column.
+     * @return If all the chunks are loaded.
+     */
+    public static boolean isLoaded(@NotNull World world, @NotNull Structure structure, int x, int z) {
+        int[] bounds = getChunkBounds(structure, x, z);
+        for (int chunkX = bounds[0]; chunkX <= bounds[1]; chunkX++) {
+            for (int chunkZ = bounds[2]; chunkZ <= bounds[3]; chunkZ++) {
+                if (!world.isChunkLoaded(chunkX, chunkZ)) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Capture snapshots of the chunks that the terrain conditions of a structure read.
+     *
+     * <p>This method is to be called on the main Server thread. Chunks are never loaded (or generated) by this
+     * method: if any of the chunks is not loaded, nothing is captured. The returned view is safe to use on any
+     * thread.</p>
+     *
+     * @param world     The world.
+     * @param structure The structure.
+     * @param x         The x coordinate of the spawn column.
+     * @param z         The z coordinate of the spawn column.
+     * @return The view of the captured chunks. (Null if any of the chunks is not loaded).
+     */
+    @Nullable
+    public static TerrainView capture(@NotNull World world, @NotNull Structure structure, int x, int z) {
+        if (!isLoaded(world, structure, x, z)) return null;
+
+        int[] bounds = getChunkBounds(structure, x, z);
+        Map<Long, ChunkSnapshot> snapshots = new HashMap<>();
+        for (int chunkX = bounds[0]; chunkX <= bounds[1]; chunkX++) {
+            for (int chunkZ = bounds[2]; chunkZ <= bounds[3]; chunkZ++) {
+                snapshots.put(chunkKey(chunkX, chunkZ), world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false));
+            }
+        }
+        return (blockX, blockY, blockZ) -> snapshots.get(chunkKey(blockX >> 4, blockZ >> 4))
+                .getBlockType(blockX & 15, blockY, blockZ & 15);
+    }
+
+    /**
+     * Get the chunks that the terrain conditions of a structure read.
+     *
+     * @return The minimum x, maximum x, minimum z and maximum z coordinates of the chunks.
+     */
+    private static int[] getChunkBounds(Structure structure, int x, int z) {
+        int minX = x, maxX = x, minZ = z, maxZ = z;
+        BlockLevelLimit limit = structure.getStructureLimitations().getBlockLevelLimit();
+        if (limit.isEnabled()) {
+            minX = Math.min(minX, x + Math.min(limit.getX1(), limit.getX2()));
+            maxX = Math.max(maxX, x + Math.max(limit.getX1(), limit.getX2()));
+            minZ = Math.min(minZ, z + Math.min(limit.getZ1(), limit.getZ2()));
+            maxZ = Math.max(maxZ, z + Math.max(limit.getZ1(), limit.getZ2()));
+        }
+        return new int[]{minX >> 4, maxX >> 4, minZ >> 4, maxZ >> 4};
+    }
+
+    /**
+     * Test the terrain conditions of a structure.
+     *
+     * <p>This method is safe to call off the main Server thread if the terrain view is.</p>
+     *
+     * @param structure    The structure.
+     * @param terrain      The view of the terrain.
+     * @param world        The world.
+     * @param x            The x coordinate of the spawn column.
+     * @param y            The y coordinate of the highest block (according to the height map of the structure).
+     * @param z            The z coordinate of the spawn column.
+     * @param ignoreBlocks The blocks that are considered plants.
+     * @return The y coordinate to spawn the structure at. (Empty if the structure cannot spawn).
+     */
+    @NotNull
+    public static OptionalInt check(@NotNull Structure structure, @NotNull TerrainView terrain, @NotNull World world,
+                                    int x, int y, int z, @NotNull Set<Material> ignoreBlocks) {
+        StructureYSpawning structureSpawnSettings = structure.getStructureLocation().getSpawnSettings();
+
+        // Allows the structures to no longer spawn on plant life.
+        if (structure.getStructureProperties().isIgnoringPlants() && ignoreBlocks.contains(getType(terrain, world, x, y, z))) {
+            for (int i = y; i >= 4; i--) {
+                Material type = getType(terrain, world, x, i, z);
+                if (!ignoreBlocks.contains(type) && !type.isAir()) {
+                    y = i;
+                    break;
+                }
+            }
+        }
+
+        // calculate SpawnY if first is true
+        if (structureSpawnSettings.isCalculateSpawnYFirst()) {
+            y = structureSpawnSettings.getHeight(y);
+        }
+
+        Material type = getType(terrain, world, x, y, z);
+
+        if (!structure.getStructureLimitations().hasWhitelistBlock(type))
+            return OptionalInt.empty();
+
+        if (structure.getStructureLimitations().hasBlacklistBlock(type))
+            return OptionalInt.empty();
+
+        // If it can spawn in water
+        if (!structure.getStructureProperties().canSpawnInWater() && type == Material.WATER)
+            return OptionalInt.empty();
+
+        // If the structure can spawn in lava
+        if (!structure.getStructureProperties().canSpawnInLavaLakes() && type == Material.LAVA)
+            return OptionalInt.empty();
+
+        // calculate SpawnY if first is false
+        if (!structureSpawnSettings.isCalculateSpawnYFirst()) {
+            y = structureSpawnSettings.getHeight(y);
+        }
+
+        // If the structure is going to be cut off by the world height limit, pick a new structure.
+        if (structure.getStructureLimitations().getWorldHeightRestriction() != -1 &&
+                y > world.getMaxHeight() - structure.getStructureLimitations().getWorldHeightRestriction())
+            return OptionalInt.empty();
+
+        // If the structure can follows block level limit.
+        // This only triggers if it spawns on the top.
+        BlockLevelLimit limit = structure.getStructureLimitations().getBlockLevelLimit();
+        if (limit.isEnabled()) {
+            boolean flat = limit.getMode().equalsIgnoreCase("flat");
+            if (!flat && !limit.getMode().equalsIgnoreCase("flat_error"))
+                return OptionalInt.of(y);
+
+            int total = 0;
+            int error = 0;
+            for (int blockX = limit.getX1() + x; blockX <= limit.getX2() + x; blockX++) {
+                for (int blockZ = limit.getZ1() + z; blockZ <= limit.getZ2() + z; blockZ++) {
+                    Material top = getType(terrain, world, blockX, y + 1, blockZ);
+                    Material bottom = getType(terrain, world, blockX, y - 1, blockZ);
+                    if (!(top.isAir() || ignoreBlocks.contains(top)))
+                        error++;
+                    if (bottom.isAir())
+                        error++;
+                    // Flat does not allow any errors.
+                    if (flat && error > 0)
+                        return OptionalInt.empty();
+
+                    total += 2;
+                }
+            }
+
+            if (!flat && ((double) error / total) > limit.getError())
+                return OptionalInt.empty();
+        }
+
+        return OptionalInt.of(y);
+    }
+
+    private static Material getType(TerrainView terrain, World world, int x, int y, int z) {
+        // Like the world, blocks outside the height of the world are void air.
+        if (y < CSUtils.getMinHeight(world) || y >= world.getMaxHeight())
+            return Material.VOID_AIR;
+        return terrain.getType(x, y, z);
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,178 @@
+package com.ryandw11.structure.io;
+
+import com.ryandw11.structure.io.sql.DistanceFunction;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sqlite.Function;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares finding the closest structures by computing the distance of every structure in the world (how
+ * {@link StructureDatabaseHandler#findNearby} used to work) with the search through rings of cells.
+ *
+ * <p>The database has 1,000,000 structures spread over 400,000 by 400,000 blocks. The ring search mirrors
+ * <code>StructureDatabaseHandler#findNearbyStructures</code>, without creating the locations.</p>
+ *
+ * <p>Run with <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ryandw11.structure.io.NearbyStructuresBenchmark</code>, or through the main method in an
+ * IDE.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class NearbyStructuresBenchmark {
+
+    private static final int STRUCTURES = 1_000_000;
+    private static final int WORLD_RADIUS = 200_000;
+    private static final String[] NAMES = {"village", "tower", "ruins", "temple", "well"};
+
+    /**
+     * The number of structures to find.
+     */
+    @Param({"1", "10"})
+    public int limit;
+
+    private File databaseFile;
+    private Connection connection;
+    private PreparedStatement fullScanStatement;
+    private PreparedStatement ringStatement;
+    private Random random;
+
+    @Setup
+    public void setup() throws IOException, SQLException {
+        databaseFile = Files.createTempFile("structures", ".db").toFile();
+        connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+        Function.create(connection, "DIST", new DistanceFunction());
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("""
+                    CREATE TABLE Structures (
+                        id INTEGER PRIMARY KEY,
+                        name VARCHAR(100) NOT NULL,
+                        x DOUBLE NOT NULL,
+                        y DOUBLE NOT NULL,
+                        z DOUBLE NOT NULL,
+                        world VARCHAR(300) NOT NULL,
+                        cellX INTEGER,
+                        cellZ INTEGER
+                    )
+                    """);
+        }
+
+        connection.setAutoCommit(false);
+        Random positions = new Random(42);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO Structures (name, x, y, z, world, cellX, cellZ) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < STRUCTURES; i++) {
+                int x = positions.nextInt(WORLD_RADIUS * 2) - WORLD_RADIUS;
+                int z = positions.nextInt(WORLD_RADIUS * 2) - WORLD_RADIUS;
+                insert.setString(1, NAMES[i % NAMES.length]);
+                insert.setDouble(2, x);
+                insert.setDouble(3, 64);
+                insert.setDouble(4, z);
+                insert.setString(5, "world");
+                insert.setInt(6, x >> StructureDatabaseHandler.CELL_SHIFT);
+                insert.setInt(7, z >> StructureDatabaseHandler.CELL_SHIFT);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE INDEX StructuresCell ON Structures (world, cellX, cellZ)");
+            statement.executeUpdate("CREATE INDEX StructuresNameCell ON Structures (name, world, cellX, cellZ)");
+        }
+
+        fullScanStatement = connection.prepareStatement(
+                "SELECT *, DIST(?, ?, ?, x, y, z) AS dist FROM Structures WHERE world = ? ORDER BY dist LIMIT ?");
+        ringStatement = connection.prepareStatement(StructureDatabaseHandler.getNearbyQuery(false));
+        random = new Random(42);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+        if (!databaseFile.delete())
+            databaseFile.deleteOnExit();
+    }
+
+    @Benchmark
+    public List<Double> fullScan() throws SQLException {
+        int x = random.nextInt(WORLD_RADIUS * 2) - WORLD_RADIUS;
+        int z = random.nextInt(WORLD_RADIUS * 2) - WORLD_RADIUS;
+        fullScanStatement.setInt(1, x);
+        fullScanStatement.setInt(2, 64);
+        fullScanStatement.setInt(3, z);
+        fullScanStatement.setString(4, "world");
+        fullScanStatement.setInt(5, limit);
+
+        List<Double> result = new ArrayList<>();
+        try (ResultSet resultSet = fullScanStatement.executeQuery()) {
+            while (resultSet.next()) {
+                result.add(resultSet.getDouble("dist"));
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Double> ringSearch() throws SQLException {
+        int x = random.nextInt(WORLD_RADIUS * 2) - WORLD_RADIUS;
+        int z = random.nextInt(WORLD_RADIUS * 2) - WORLD_RADIUS;
+        int centerX = x >> StructureDatabaseHandler.CELL_SHIFT;
+        int centerZ = z >> StructureDatabaseHandler.CELL_SHIFT;
+
+        List<Double> result = new ArrayList<>();
+        int innerRadius = -1;
+        int radius = 0;
+        while (true) {
+            ringStatement.setInt(1, x);
+            ringStatement.setInt(2, 64);
+            ringStatement.setInt(3, z);
+            ringStatement.setString(4, "world");
+            ringStatement.setInt(5, centerX - radius);
+            ringStatement.setInt(6, centerX + radius);
+            ringStatement.setInt(7, centerZ - radius);
+            ringStatement.setInt(8, centerZ + radius);
+            ringStatement.setInt(9, centerX - innerRadius);
+            ringStatement.setInt(10, centerX + innerRadius);
+            ringStatement.setInt(11, centerZ - innerRadius);
+            ringStatement.setInt(12, centerZ + innerRadius);
+
+            try (ResultSet resultSet = ringStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    result.add(resultSet.getDouble("dist"));
+                }
+            }
+            result.sort(null);
+
+            if (result.size() >= limit && result.get(limit - 1) <= (double) radius * StructureDatabaseHandler.CELL_SIZE)
+                break;
+            if (radius >= StructureDatabaseHandler.MAX_CELL_RADIUS)
+                break;
+
+            innerRadius = radius;
+            radius = radius == 0 ? 1 : Math.min(radius * 2, StructureDatabaseHandler.MAX_CELL_RADIUS);
+        }
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NearbyStructuresBenchmark.class.getSimpleName()).build()).run();
+    }
+}
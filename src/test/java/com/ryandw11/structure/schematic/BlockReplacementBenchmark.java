@@ -0,0 +1,117 @@
+package com.ryandw11.structure.schematic;
+
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares replacing the blocks from the 'ReplaceBlocks' section after the paste (how the structures used to be
+ * pasted) with replacing them while the schematic is pasted (see {@link BlockReplacementExtent}).
+ *
+ * <p>WorldEdit and the server are not available, so the world and the schematic are modeled as arrays of types. The
+ * old approach pastes the schematic, then reads every block of the bounding box and writes each replaced block twice
+ * (<code>setType</code> and the state update). It also replaces the terrain in the bounding box. The new approach maps
+ * the types while it pastes, so only the blocks of the schematic are replaced. The number of block writes per paste is
+ * reported as the <code>writes</code> counter.</p>
+ *
+ * <p>Run with <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ryandw11.structure.schematic.BlockReplacementBenchmark</code>, or through the main method in
+ * an IDE.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BlockReplacementBenchmark {
+
+    private static final Material[] PALETTE = {Material.AIR, Material.AIR, Material.STONE, Material.COBBLESTONE,
+            Material.OAK_PLANKS, Material.GLASS};
+
+    /**
+     * The width, height and length of the schematic.
+     */
+    @Param({"16", "48"})
+    public int size;
+
+    private Material[] schematic;
+    private Material[] world;
+    private Map<Material, Material> replacements;
+
+    /**
+     * Counts the block writes of each paste.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Writes {
+        public long writes;
+    }
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        schematic = new Material[size * size * size];
+        for (int i = 0; i < schematic.length; i++) {
+            schematic[i] = PALETTE[random.nextInt(PALETTE.length)];
+        }
+        replacements = new EnumMap<>(Material.class);
+        replacements.put(Material.STONE, Material.MOSSY_COBBLESTONE);
+        replacements.put(Material.GLASS, Material.WHITE_STAINED_GLASS);
+        world = new Material[schematic.length];
+    }
+
+    @Setup(Level.Invocation)
+    public void resetWorld() {
+        // The lower half of the bounding box is terrain.
+        int half = world.length / 2;
+        for (int i = 0; i < world.length; i++) {
+            world[i] = i < half ? Material.STONE : Material.AIR;
+        }
+    }
+
+    @Benchmark
+    public Material[] replaceAfterPaste(Writes writes) {
+        long count = 0;
+        for (int i = 0; i < schematic.length; i++) {
+            if (schematic[i] == Material.AIR) continue;
+            world[i] = schematic[i];
+            count++;
+        }
+        for (int i = 0; i < world.length; i++) {
+            Material replacement = replacements.get(world[i]);
+            if (replacement != null) {
+                world[i] = replacement;
+                // The type is set, then the state is updated.
+                world[i] = replacement;
+                count += 2;
+            }
+        }
+        writes.writes += count;
+        return world;
+    }
+
+    @Benchmark
+    public Material[] replaceDuringPaste(Writes writes) {
+        long count = 0;
+        for (int i = 0; i < schematic.length; i++) {
+            if (schematic[i] == Material.AIR) continue;
+            Material replacement = replacements.get(schematic[i]);
+            world[i] = replacement != null ? replacement : schematic[i];
+            count++;
+        }
+        writes.writes += count;
+        return world;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BlockReplacementBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,195 @@
+package com.ryandw11.structure.schematic;
+
+import com.ryandw11.structure.loottables.LootTable;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Proxy;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Compares filling a chest one unit at a time with a full inventory write per unit (how
+ * {@link LootTableReplacer#replaceChestContent} used to work) with planning the layout first and writing it once.
+ *
+ * <p>There is no server, so the inventory is simulated: like the server, {@link Inventory#setContents} copies every
+ * item and {@link Inventory#getContents} returns a new array. The number of inventory writes per fill is reported
+ * as the <code>writes</code> counter.</p>
+ *
+ * <p>Run with <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ryandw11.structure.schematic.ChestFillBenchmark</code>, or through the main method in an
+ * IDE.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChestFillBenchmark {
+
+    private static final Material[] ITEMS = {Material.IRON_INGOT, Material.GOLD_INGOT, Material.DIAMOND,
+            Material.BREAD, Material.ARROW, Material.EMERALD};
+
+    /**
+     * The amount of each rolled item.
+     */
+    @Param({"1", "16", "64"})
+    public int amount;
+
+    /**
+     * The number of rolls of the loot table.
+     */
+    @Param({"8"})
+    public int rolls;
+
+    private LootTable lootTable;
+    private Random random;
+
+    /**
+     * Counts the inventory writes of each fill.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Writes {
+        public long writes;
+    }
+
+    @Setup
+    public void setup() {
+        installServer();
+        Random items = new Random(42);
+        lootTable = new LootTable() {
+            @Override
+            public String getName() {
+                return "benchmark";
+            }
+
+            @Override
+            public int getRolls() {
+                return rolls;
+            }
+
+            @Override
+            public void setRolls(int rolls) {
+            }
+
+            @Override
+            public ItemStack getRandomWeightedItem() {
+                return new ItemStack(ITEMS[items.nextInt(ITEMS.length)], amount);
+            }
+        };
+        random = new Random(42);
+    }
+
+    @Benchmark
+    public ItemStack[] perUnitWrites(Writes writes) {
+        SimulatedInventory inventory = new SimulatedInventory(27);
+        for (int roll = 0; roll < lootTable.getRolls(); roll++) {
+            ItemStack[] containerContent = inventory.getContents();
+            ItemStack randomItem = lootTable.getRandomWeightedItem();
+
+            for (int j = 0; j < randomItem.getAmount(); j++) {
+                for (int attempts = 0; attempts < containerContent.length; attempts++) {
+                    int randomPos = random.nextInt(containerContent.length);
+                    ItemStack randomPosItem = inventory.getItem(randomPos);
+                    if (randomPosItem != null) {
+                        if (randomPosItem.getType() == randomItem.getType()
+                                && Objects.equals(randomPosItem.getItemMeta(), randomItem.getItemMeta())
+                                && randomPosItem.getAmount() < randomItem.getMaxStackSize()) {
+                            ItemStack randomItemCopy = randomItem.clone();
+                            randomItemCopy.setAmount(randomPosItem.getAmount() + 1);
+                            containerContent[randomPos] = randomItemCopy;
+                            inventory.setContents(containerContent);
+                            break;
+                        }
+                    } else {
+                        ItemStack randomItemCopy = randomItem.clone();
+                        randomItemCopy.setAmount(1);
+                        containerContent[randomPos] = randomItemCopy;
+                        inventory.setContents(containerContent);
+                        break;
+                    }
+                }
+            }
+        }
+        writes.writes += inventory.writes;
+        return inventory.contents;
+    }
+
+    @Benchmark
+    public ItemStack[] plannedWrite(Writes writes) {
+        SimulatedInventory inventory = new SimulatedInventory(27);
+        ItemStack[] containerContent = inventory.getContents();
+        ChestContentPlanner.plan(lootTable, random, containerContent);
+        inventory.setContents(containerContent);
+        writes.writes += inventory.writes;
+        return inventory.contents;
+    }
+
+    /**
+     * Items need the item factory of the server for their metadata. Items without metadata do not have any.
+     */
+    private static void installServer() {
+        if (Bukkit.getServer() != null) return;
+        ItemFactory itemFactory = (ItemFactory) Proxy.newProxyInstance(ChestFillBenchmark.class.getClassLoader(),
+                new Class<?>[]{ItemFactory.class}, (proxy, method, args) -> defaultValue(method.getReturnType()));
+        Logger logger = Logger.getLogger("ChestFillBenchmark");
+        Bukkit.setServer((Server) Proxy.newProxyInstance(ChestFillBenchmark.class.getClassLoader(),
+                new Class<?>[]{Server.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getItemFactory" -> itemFactory;
+                    case "getLogger" -> logger;
+                    default -> defaultValue(method.getReturnType());
+                }));
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0D;
+        if (type == float.class) return 0F;
+        return null;
+    }
+
+    /**
+     * The parts of a chest inventory used to fill it.
+     */
+    private static final class SimulatedInventory {
+        private final ItemStack[] contents;
+        private int writes;
+
+        private SimulatedInventory(int size) {
+            this.contents = new ItemStack[size];
+        }
+
+        private ItemStack[] getContents() {
+            return contents.clone();
+        }
+
+        private ItemStack getItem(int slot) {
+            return contents[slot];
+        }
+
+        private void setContents(ItemStack[] items) {
+            writes++;
+            for (int i = 0; i < contents.length; i++) {
+                contents[i] = items[i] == null ? null : items[i].clone();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ChestFillBenchmark.class.getSimpleName()).build()).run();
+    }
+}
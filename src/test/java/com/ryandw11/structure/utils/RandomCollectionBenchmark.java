@@ -0,0 +1,71 @@
+package com.ryandw11.structure.utils;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares drawing a value from a {@link TreeMap} of cumulative weights (how {@link RandomCollection} used to draw
+ * values) with the alias method of {@link FrozenRandomCollection}.
+ *
+ * <p>Run with <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ryandw11.structure.utils.RandomCollectionBenchmark</code>, or through the main method in an
+ * IDE.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RandomCollectionBenchmark {
+
+    /**
+     * The number of values in the collection. (Loot tables usually have a few to a few dozen items).
+     */
+    @Param({"4", "32", "256"})
+    public int size;
+
+    private NavigableMap<Double, Integer> cumulativeWeights;
+    private double total;
+    private Random random;
+    private FrozenRandomCollection<Integer> frozen;
+
+    @Setup
+    public void setup() {
+        Random weights = new Random(42);
+        RandomCollection<Integer> collection = new RandomCollection<>(new Random(42));
+        for (int i = 0; i < size; i++) {
+            collection.add(1 + weights.nextInt(100), i);
+        }
+
+        cumulativeWeights = new TreeMap<>();
+        for (Map.Entry<Double, Integer> entry : collection.getMap().entrySet()) {
+            cumulativeWeights.put(entry.getKey(), entry.getValue());
+        }
+        total = cumulativeWeights.lastKey();
+        random = new Random(42);
+        frozen = collection.freeze();
+    }
+
+    @Benchmark
+    public Integer treeMap() {
+        return cumulativeWeights.higherEntry(random.nextDouble() * total).getValue();
+    }
+
+    @Benchmark
+    public Integer alias() {
+        return frozen.next();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RandomCollectionBenchmark.class.getSimpleName()).build()).run();
+    }
+}